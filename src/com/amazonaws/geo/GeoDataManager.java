@@ -16,24 +16,46 @@
 package com.amazonaws.geo;
 
 import com.amazonaws.geo.dynamodb.internal.DynamoDBManager;
+import com.amazonaws.geo.metrics.GeoMetricsPublisher;
+import com.amazonaws.geo.metrics.GeoQueryPhase;
 import com.amazonaws.geo.model.*;
+import com.amazonaws.geo.s2.internal.GeoFilter;
+import com.amazonaws.geo.s2.internal.S2Corridor;
 import com.amazonaws.geo.s2.internal.S2Manager;
 import com.amazonaws.geo.s2.internal.S2Util;
-import com.amazonaws.geo.util.GeoJsonMapper;
+import com.amazonaws.geo.trace.GeoTraceListener;
+import com.amazonaws.geo.util.GeoLocationCodec;
+import com.google.common.geometry.S2Cell;
 import com.google.common.geometry.S2CellId;
 import com.google.common.geometry.S2CellUnion;
 import com.google.common.geometry.S2LatLng;
 import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2RegionCoverer;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValueUpdate;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 /**
  * <p>
@@ -46,6 +68,26 @@ import java.util.concurrent.Future;
  * </p>
  * */
 public class GeoDataManager {
+	/**
+	 * Consecutive items decoded or filtered as one task when a page is filtered in parallel.
+	 */
+	private static final int FILTER_CHUNK_SIZE = 1024;
+
+	/**
+	 * Most parallel queries a geohash range expected to take several pages is split into.
+	 */
+	private static final int MAX_RANGE_PARTS = 8;
+
+	/**
+	 * Most time buckets a time window may span, which bounds the number of range queries.
+	 */
+	private static final int MAX_TIME_BUCKETS = 1024;
+
+	/**
+	 * Most cells a heatmap query is expected to count. Each cell inside the area is its own Select.COUNT query.
+	 */
+	public static final int MAX_HEATMAP_CELLS = 10000;
+
 	private final GeoDataManagerConfiguration config;
 	private final DynamoDBManager dynamoDBManager;
 
@@ -90,8 +132,8 @@ public class GeoDataManager {
 	/**
 	 * <p>
 	 * Put a point into the Amazon DynamoDB table. Once put, you cannot update attributes specified in
-	 * GeoDataManagerConfiguration: hash key, range key, geohash and geoJson. If you want to update these columns, you
-	 * need to insert a new record and delete the old record.
+	 * GeoDataManagerConfiguration: hash key, range key, geohash and geoJson. If you want to change the location of a
+	 * point, use {@link #movePoint(MovePointRequest)}.
 	 * </p>
 	 * <b>Sample usage:</b>
 	 * 
@@ -118,8 +160,8 @@ public class GeoDataManager {
 	/**
 	 * <p>
 	 * Put a list of points into the Amazon DynamoDB table. Once put, you cannot update attributes specified in
-	 * GeoDataManagerConfiguration: hash key, range key, geohash and geoJson. If you want to update these columns, you
-	 * need to insert a new record and delete the old record.
+	 * GeoDataManagerConfiguration: hash key, range key, geohash and geoJson. If you want to change the location of a
+	 * point, use {@link #movePoint(MovePointRequest)}.
 	 * </p>
 	 * <b>Sample usage:</b>
 	 * 
@@ -173,7 +215,8 @@ public class GeoDataManager {
 	 * <p>
 	 * Query a rectangular area constructed by two points and return all points within the area. Two points need to
 	 * construct a rectangle from minimum and maximum latitudes and longitudes. If minPoint.getLongitude() >
-	 * maxPoint.getLongitude(), the rectangle spans the 180 degree longitude line.
+	 * maxPoint.getLongitude(), the rectangle spans the 180 degree longitude line. If a GeoReplica is configured, the
+	 * query is answered from it.
 	 * </p>
 	 * <b>Sample usage:</b>
 	 * 
@@ -195,19 +238,34 @@ public class GeoDataManager {
 	 * @return Response of rectangle query request.
 	 */
 	public QueryRectangleResponse queryRectangle(QueryRectangleRequest queryRectangleRequest) {
+		long startNanos = System.nanoTime();
+		if (isAnsweredByReplica(queryRectangleRequest)) {
+			QueryRectangleResponse queryRectangleResponse = config.getReplica().queryRectangle(queryRectangleRequest);
+			publishStats(queryRectangleRequest, queryRectangleResponse.getQueryStats(), startNanos);
+			return queryRectangleResponse;
+		}
+
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = beforePhase(queryRectangleRequest, GeoQueryPhase.COVERING);
 		S2LatLngRect latLngRect = S2Util.getBoundingLatLngRect(queryRectangleRequest);
 
 		S2CellUnion cellUnion = S2Manager.findCellIds(latLngRect);
+		S2CellUnion interiorCellUnion = S2Manager.findInteriorCellIds(S2Util.getRegion(queryRectangleRequest),
+				config.getCoveringMaxCells());
+		stats.setCellCount(cellUnion.size());
+		GeoFilter geoFilter = S2Util.getGeoFilter(queryRectangleRequest);
+		stats.setCoveringNanos(afterPhase(queryRectangleRequest, GeoQueryPhase.COVERING, coveringStartNanos));
 
-		List<GeohashRange> ranges = mergeCells(cellUnion);
-		cellUnion = null;
-
-		return new QueryRectangleResponse(dispatchQueries(ranges, queryRectangleRequest));
+		dispatchQueries(cellUnion, interiorCellUnion, geoFilter, queryRectangleRequest, geoQueryResponse, startNanos);
+		return new QueryRectangleResponse(geoQueryResponse);
 	}
 
 	/**
 	 * <p>
-	 * Query a circular area constructed by a center point and its radius.
+	 * Query a circular area constructed by a center point and its radius. If a GeoReplica is configured, the query is
+	 * answered from it.
 	 * </p>
 	 * <b>Sample usage:</b>
 	 * 
@@ -228,21 +286,448 @@ public class GeoDataManager {
 	 * @return Response of radius query request.
 	 * */
 	public QueryRadiusResponse queryRadius(QueryRadiusRequest queryRadiusRequest) {
+		long startNanos = System.nanoTime();
+		if (isAnsweredByReplica(queryRadiusRequest)) {
+			QueryRadiusResponse queryRadiusResponse = config.getReplica().queryRadius(queryRadiusRequest);
+			publishStats(queryRadiusRequest, queryRadiusResponse.getQueryStats(), startNanos);
+			return queryRadiusResponse;
+		}
+
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = beforePhase(queryRadiusRequest, GeoQueryPhase.COVERING);
 		S2LatLngRect latLngRect = S2Util.getBoundingLatLngRect(queryRadiusRequest);
 
 		S2CellUnion cellUnion = S2Manager.findCellIds(latLngRect);
+		S2CellUnion interiorCellUnion = S2Manager.findInteriorCellIds(S2Util.getRegion(queryRadiusRequest),
+				config.getCoveringMaxCells());
+		stats.setCellCount(cellUnion.size());
+		GeoFilter geoFilter = S2Util.getGeoFilter(queryRadiusRequest);
+		stats.setCoveringNanos(afterPhase(queryRadiusRequest, GeoQueryPhase.COVERING, coveringStartNanos));
 
-		List<GeohashRange> ranges = mergeCells(cellUnion);
-		cellUnion = null;
+		dispatchQueries(cellUnion, interiorCellUnion, geoFilter, queryRadiusRequest, geoQueryResponse, startNanos);
+		return new QueryRadiusResponse(geoQueryResponse);
+	}
+
+	/**
+	 * <p>
+	 * Run several radius queries together. The coverings of all queries are unioned and each distinct geohash range is
+	 * read once, then every item read is routed to each query whose circle contains it. Use this for overlapping
+	 * circles, e.g. many nearby searches around the same area.
+	 * </p>
+	 * <p>
+	 * All responses share a single GeoQueryStats describing the whole batch.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * List&lt;QueryRadiusRequest&gt; queryRadiusRequests = Arrays.asList(
+	 * 		new QueryRadiusRequest(new GeoPoint(47.5, -122.3), 1000),
+	 * 		new QueryRadiusRequest(new GeoPoint(47.51, -122.31), 1000));
+	 * 
+	 * List&lt;QueryRadiusResponse&gt; queryRadiusResponses = geoIndexManager.batchQueryRadius(queryRadiusRequests);
+	 * </pre>
+	 * 
+	 * @param queryRadiusRequests
+	 *            Radius queries to run.
+	 * 
+	 * @return Responses of the radius queries, in the same order as the requests.
+	 * */
+	public List<QueryRadiusResponse> batchQueryRadius(List<QueryRadiusRequest> queryRadiusRequests) {
+		long startNanos = System.nanoTime();
+		BatchQueryRadiusRequest batchQueryRadiusRequest = new BatchQueryRadiusRequest(queryRadiusRequests);
+		GeoQueryStats stats = new GeoQueryStats();
+
+		List<GeoQueryResponse> geoQueryResponses = new ArrayList<GeoQueryResponse>(queryRadiusRequests.size());
+		List<QueryTarget> targets = new ArrayList<QueryTarget>(queryRadiusRequests.size());
+		List<S2CellId> cellIds = new ArrayList<S2CellId>();
+
+		if (!queryRadiusRequests.isEmpty() && queryRadiusRequests.get(0).hasTimeWindow()) {
+			batchQueryRadiusRequest.setTimeWindow(queryRadiusRequests.get(0).getStartTimestamp(),
+					queryRadiusRequests.get(0).getEndTimestamp());
+		}
+
+		long coveringStartNanos = beforePhase(batchQueryRadiusRequest, GeoQueryPhase.COVERING);
+		for (QueryRadiusRequest queryRadiusRequest : queryRadiusRequests) {
+			// Every range is read once for the whole batch, so every query must read the same time buckets.
+			if (!Objects.equals(queryRadiusRequest.getStartTimestamp(), batchQueryRadiusRequest.getStartTimestamp())
+					|| !Objects.equals(queryRadiusRequest.getEndTimestamp(), batchQueryRadiusRequest.getEndTimestamp())) {
+				throw new IllegalArgumentException("The radius queries of a batch must have the same time window.");
+			}
+			S2LatLngRect latLngRect = S2Util.getBoundingLatLngRect(queryRadiusRequest);
+			S2CellUnion cellUnion = S2Manager.findCellIds(latLngRect);
+			cellIds.addAll(cellUnion.cellIds());
+
+			GeoQueryResponse geoQueryResponse = new GeoQueryResponse(stats);
+			geoQueryResponses.add(geoQueryResponse);
+			targets.add(new QueryTarget(S2Util.getGeoFilter(queryRadiusRequest), geoQueryResponse,
+					mergeCells(cellUnion)));
+		}
+
+		S2CellUnion cellUnion = new S2CellUnion();
+		cellUnion.initFromCellIds(new ArrayList<S2CellId>(cellIds)); // This removes duplicate and contained cells.
+		cellIds = null;
+		stats.setCellCount(cellUnion.size());
+		stats.setCoveringNanos(afterPhase(batchQueryRadiusRequest, GeoQueryPhase.COVERING, coveringStartNanos));
+
+		// A range inside one circle is not inside the others, so every item is filtered.
+		dispatchQueries(cellUnion, null, targets, batchQueryRadiusRequest, stats, startNanos);
+
+		List<QueryRadiusResponse> queryRadiusResponses = new ArrayList<QueryRadiusResponse>(geoQueryResponses.size());
+		for (GeoQueryResponse geoQueryResponse : geoQueryResponses) {
+			queryRadiusResponses.add(new QueryRadiusResponse(geoQueryResponse));
+		}
+
+		return queryRadiusResponses;
+	}
+
+	/**
+	 * <p>
+	 * Query an area bounded by a polygon and return all points within the polygon. The polygon is covered by S2 cells
+	 * that follow its shape, see {@link GeoDataManagerConfiguration#setCoveringMaxCells(int)}, and items are filtered
+	 * with an edge index of the polygon.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * List&lt;GeoPoint&gt; vertices = Arrays.asList(new GeoPoint(47.60, -122.34), new GeoPoint(47.62, -122.30),
+	 * 		new GeoPoint(47.58, -122.28));
+	 * 
+	 * QueryPolygonRequest queryPolygonRequest = new QueryPolygonRequest(vertices);
+	 * QueryPolygonResponse queryPolygonResponse = geoIndexManager.queryPolygon(queryPolygonRequest);
+	 * 
+	 * for (Map&lt;String, AttributeValue&gt; item : queryPolygonResponse.getItem()) {
+	 * 	System.out.println(&quot;item: &quot; + item);
+	 * }
+	 * </pre>
+	 * 
+	 * @param queryPolygonRequest
+	 *            Container for the necessary parameters to execute polygon query request.
+	 * 
+	 * @return Response of polygon query request.
+	 * */
+	public QueryPolygonResponse queryPolygon(QueryPolygonRequest queryPolygonRequest) {
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = beforePhase(queryPolygonRequest, GeoQueryPhase.COVERING);
+		S2Polygon polygon = S2Util.getPolygon(queryPolygonRequest);
+
+		S2CellUnion cellUnion = S2Manager.findCellIds(polygon, config.getCoveringMaxCells());
+		S2CellUnion interiorCellUnion = S2Manager.findInteriorCellIds(polygon, config.getCoveringMaxCells());
+		stats.setCellCount(cellUnion.size());
+		GeoFilter geoFilter = GeoFilter.forPolygon(polygon);
+		stats.setCoveringNanos(afterPhase(queryPolygonRequest, GeoQueryPhase.COVERING, coveringStartNanos));
+
+		dispatchQueries(cellUnion, interiorCellUnion, geoFilter, queryPolygonRequest, geoQueryResponse, startNanos);
+		return new QueryPolygonResponse(geoQueryResponse);
+	}
+
+	/**
+	 * <p>
+	 * Query the area within a distance of a route and return all points within the area. The buffered route is covered
+	 * once, so overlapping parts of the route are read only once, and items are filtered by their distance to the
+	 * nearest segment of the route.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * List&lt;GeoPoint&gt; route = Arrays.asList(new GeoPoint(47.60, -122.34), new GeoPoint(47.62, -122.30),
+	 * 		new GeoPoint(47.65, -122.31));
+	 * 
+	 * QueryCorridorRequest queryCorridorRequest = new QueryCorridorRequest(route, 500);
+	 * QueryCorridorResponse queryCorridorResponse = geoIndexManager.queryCorridor(queryCorridorRequest);
+	 * 
+	 * for (Map&lt;String, AttributeValue&gt; item : queryCorridorResponse.getItem()) {
+	 * 	System.out.println(&quot;item: &quot; + item);
+	 * }
+	 * </pre>
+	 * 
+	 * @param queryCorridorRequest
+	 *            Container for the necessary parameters to execute corridor query request.
+	 * 
+	 * @return Response of corridor query request.
+	 * */
+	public QueryCorridorResponse queryCorridor(QueryCorridorRequest queryCorridorRequest) {
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = beforePhase(queryCorridorRequest, GeoQueryPhase.COVERING);
+		S2Corridor corridor = S2Util.getCorridor(queryCorridorRequest);
+
+		S2CellUnion cellUnion = S2Manager.findCellIds(corridor, config.getCoveringMaxCells());
+		S2CellUnion interiorCellUnion = S2Manager.findInteriorCellIds(corridor, config.getCoveringMaxCells());
+		stats.setCellCount(cellUnion.size());
+		GeoFilter geoFilter = GeoFilter.forCorridor(corridor);
+		stats.setCoveringNanos(afterPhase(queryCorridorRequest, GeoQueryPhase.COVERING, coveringStartNanos));
+
+		dispatchQueries(cellUnion, interiorCellUnion, geoFilter, queryCorridorRequest, geoQueryResponse, startNanos);
+		return new QueryCorridorResponse(geoQueryResponse);
+	}
+
+	/**
+	 * <p>
+	 * Count the points of a rectangular area, grouped by the S2 cell of the requested level that contains them. Cells
+	 * that lie entirely inside the area are counted with Select.COUNT queries, so their items are never returned; only
+	 * the items of cells on the edge of the area are read and filtered. The response holds counts and no items.
+	 * </p>
+	 * <p>
+	 * Every Select.COUNT query consumes at least half a read capacity unit, so a level much finer than the density of
+	 * the data can cost more than reading the items. A request whose area holds more than {@link #MAX_HEATMAP_CELLS}
+	 * cells of the level, estimated from the average cell area, is rejected with an IllegalArgumentException.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * GeoPoint minPoint = new GeoPoint(47.0, -123.0);
+	 * GeoPoint maxPoint = new GeoPoint(48.0, -122.0);
+	 * 
+	 * QueryHeatmapRequest queryHeatmapRequest = new QueryHeatmapRequest(minPoint, maxPoint, 12);
+	 * QueryHeatmapResponse queryHeatmapResponse = geoIndexManager.queryHeatmap(queryHeatmapRequest);
+	 * 
+	 * for (Map.Entry&lt;Long, Long&gt; cellCount : queryHeatmapResponse.getCellCounts().entrySet()) {
+	 * 	System.out.println(new S2CellId(cellCount.getKey()).toLatLng() + &quot;: &quot; + cellCount.getValue());
+	 * }
+	 * </pre>
+	 * 
+	 * @param queryHeatmapRequest
+	 *            Container for the necessary parameters to execute heatmap query request.
+	 * 
+	 * @return Response of heatmap query request.
+	 * */
+	public QueryHeatmapResponse queryHeatmap(QueryHeatmapRequest queryHeatmapRequest) {
+		List<TimeBucket> timeBuckets = getTimeBuckets(queryHeatmapRequest);
+		int cellLevel = queryHeatmapRequest.getCellLevel();
+		S2LatLngRect latLngRect = S2Util.getBoundingLatLngRect(queryHeatmapRequest);
+
+		// The area of a latitude-longitude rectangle on the unit sphere, in steradians like the cell areas.
+		double area = latLngRect.lng().getLength()
+				* (Math.sin(latLngRect.latHi().radians()) - Math.sin(latLngRect.latLo().radians()));
+		if (area / S2Cell.averageArea(cellLevel) > MAX_HEATMAP_CELLS) {
+			throw new IllegalArgumentException("The area holds more than " + MAX_HEATMAP_CELLS + " cells of level "
+					+ cellLevel + ".");
+		}
+
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = beforePhase(queryHeatmapRequest, GeoQueryPhase.COVERING);
+
+		ArrayList<S2CellId> cellIds = new ArrayList<S2CellId>();
+		S2RegionCoverer.getSimpleCovering(latLngRect, latLngRect.getCenter().toPoint(), cellLevel, cellIds);
+		stats.setCellCount(cellIds.size());
+		GeoFilter geoFilter = S2Util.getGeoFilter(queryHeatmapRequest);
+		stats.setCoveringNanos(afterPhase(queryHeatmapRequest, GeoQueryPhase.COVERING, coveringStartNanos));
+
+		long planningStartNanos = beforePhase(queryHeatmapRequest, GeoQueryPhase.PLANNING);
+		List<GeohashRange> ranges = new ArrayList<GeohashRange>();
+		ArrayList<S2CellId> boundaryCellIds = new ArrayList<S2CellId>();
+		for (S2CellId cellId : cellIds) {
+			if (latLngRect.contains(new S2Cell(cellId))) {
+				// Each interior cell is counted on its own, so interior ranges are not merged.
+				GeohashRange range = new GeohashRange(cellId.rangeMin().id(), cellId.rangeMax().id());
+				range.setInterior(true);
+				ranges.add(range);
+			} else {
+				boundaryCellIds.add(cellId);
+			}
+		}
+		cellIds = null;
+
+		if (!boundaryCellIds.isEmpty()) {
+			S2CellUnion boundaryCellUnion = new S2CellUnion();
+			boundaryCellUnion.initFromCellIds(boundaryCellIds);
+			ranges.addAll(mergeCells(boundaryCellUnion));
+		}
+		boundaryCellIds = null;
+		stats.setRangeCount(ranges.size());
+
+		QueryPlan queryPlan = splitRanges(ranges);
+		ranges = null;
+		stats.setQueryCount(queryPlan.getRanges().size() * timeBuckets.size());
+		stats.setPlanningNanos(afterPhase(queryHeatmapRequest, GeoQueryPhase.PLANNING, planningStartNanos));
+
+		Map<Long, Long> cellCounts = dispatchCountQueries(queryPlan, timeBuckets, geoFilter, cellLevel,
+				queryHeatmapRequest, geoQueryResponse, startNanos);
+		return new QueryHeatmapResponse(geoQueryResponse, cellCounts);
+	}
+
+	/**
+	 * <p>
+	 * Count the points of a rectangular area without returning them. Ranges that lie entirely inside the rectangle are
+	 * counted with Select.COUNT queries; only the items of ranges on the edge of the rectangle are read and filtered.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * QueryRectangleRequest queryRectangleRequest = new QueryRectangleRequest(minPoint, maxPoint);
+	 * long count = geoIndexManager.countRectangle(queryRectangleRequest).getCount();
+	 * </pre>
+	 * 
+	 * @param queryRectangleRequest
+	 *            Container for the necessary parameters to execute rectangle query request.
+	 * 
+	 * @return Number of points within the rectangle.
+	 */
+	public QueryCountResponse countRectangle(QueryRectangleRequest queryRectangleRequest) {
+		return count(queryRectangleRequest);
+	}
+
+	/**
+	 * <p>
+	 * Count the points of a circular area without returning them. Ranges that lie entirely inside the circle are
+	 * counted with Select.COUNT queries; only the items of ranges on the edge of the circle are read and filtered.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * QueryRadiusRequest queryRadiusRequest = new QueryRadiusRequest(new GeoPoint(47.5, -122.3), 1000);
+	 * long count = geoIndexManager.countRadius(queryRadiusRequest).getCount();
+	 * </pre>
+	 * 
+	 * @param queryRadiusRequest
+	 *            Container for the necessary parameters to execute radius query request.
+	 * 
+	 * @return Number of points within the circle.
+	 */
+	public QueryCountResponse countRadius(QueryRadiusRequest queryRadiusRequest) {
+		return count(queryRadiusRequest);
+	}
+
+	/**
+	 * <p>
+	 * Check whether any point lies within a rectangular area. The query returns as soon as one range yields a point
+	 * inside the rectangle, and the range queries still running are cancelled.
+	 * </p>
+	 * 
+	 * @param queryRectangleRequest
+	 *            Container for the necessary parameters to execute rectangle query request.
+	 * 
+	 * @return Whether a point lies within the rectangle.
+	 */
+	public QueryExistsResponse existsRectangle(QueryRectangleRequest queryRectangleRequest) {
+		return exists(queryRectangleRequest);
+	}
+
+	/**
+	 * <p>
+	 * Check whether any point lies within a circular area. The query returns as soon as one range yields a point inside
+	 * the circle, and the range queries still running are cancelled.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * QueryRadiusRequest queryRadiusRequest = new QueryRadiusRequest(new GeoPoint(47.5, -122.3), 100);
+	 * boolean nearby = geoIndexManager.existsRadius(queryRadiusRequest).exists();
+	 * </pre>
+	 * 
+	 * @param queryRadiusRequest
+	 *            Container for the necessary parameters to execute radius query request.
+	 * 
+	 * @return Whether a point lies within the circle.
+	 */
+	public QueryExistsResponse existsRadius(QueryRadiusRequest queryRadiusRequest) {
+		return exists(queryRadiusRequest);
+	}
+
+	private QueryCountResponse count(GeoQueryRequest geoQueryRequest) {
+		List<TimeBucket> timeBuckets = getTimeBuckets(geoQueryRequest);
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+
+		QueryPlan queryPlan = planInteriorRanges(geoQueryRequest, timeBuckets.size(),
+				geoQueryResponse.getQueryStats());
+		GeoFilter geoFilter = S2Util.getGeoFilter(geoQueryRequest);
+
+		// Level 0 groups every point by cube face; only the total is needed.
+		Map<Long, Long> cellCounts = dispatchCountQueries(queryPlan, timeBuckets, geoFilter, 0, geoQueryRequest,
+				geoQueryResponse, startNanos);
+
+		long count = 0;
+		for (long cellCount : cellCounts.values()) {
+			count += cellCount;
+		}
+
+		return new QueryCountResponse(geoQueryResponse, count);
+	}
+
+	private QueryExistsResponse exists(GeoQueryRequest geoQueryRequest) {
+		List<TimeBucket> timeBuckets = getTimeBuckets(geoQueryRequest);
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+
+		QueryPlan queryPlan = planInteriorRanges(geoQueryRequest, timeBuckets.size(),
+				geoQueryResponse.getQueryStats());
+		GeoFilter geoFilter = S2Util.getGeoFilter(geoQueryRequest);
+
+		AtomicBoolean found = new AtomicBoolean();
+		CompletionService<Object> completionService = new ExecutorCompletionService<Object>(
+				config.getExecutorService());
+		List<Future<?>> futureList = new ArrayList<Future<?>>();
+
+		for (TimeBucket timeBucket : timeBuckets) {
+			for (GeohashRange range : queryPlan.getRanges()) {
+				GeoExistsThread geoExistsThread = new GeoExistsThread(geoQueryRequest, geoFilter, geoQueryResponse,
+						queryPlan.getGranularity(), range, timeBucket, found, beforePhase(geoQueryRequest,
+								GeoQueryPhase.QUEUEING));
+				futureList.add(completionService.submit(geoExistsThread, null));
+			}
+		}
+		queryPlan = null;
+
+		if (config.getQueryResponseRetention() != QueryResponseRetention.NONE) {
+			geoQueryResponse.setRangeCount(futureList.size());
+		}
+
+		awaitFirstMatch(completionService, futureList, found);
+		futureList = null;
+
+		publishStats(geoQueryRequest, geoQueryResponse.getQueryStats(), startNanos);
+		return new QueryExistsResponse(geoQueryResponse, found.get());
+	}
+
+	/**
+	 * A GeoReplica mirrors the table of the configuration only, so it answers the queries that read no other table.
+	 */
+	private boolean isAnsweredByReplica(GeoQueryRequest geoQueryRequest) {
+		return config.getReplica() != null && !geoQueryRequest.hasTimeWindow() && config.getTimeBucketMillis() <= 0;
+	}
+
+	/**
+	 * Cover the queried area and plan its range queries, flagging the ranges that lie entirely inside the area.
+	 * 
+	 * @param timeBucketCount
+	 *            Number of time buckets each range is read from.
+	 * 
+	 * @return Geohash ranges that can each be read with a single hash key.
+	 */
+	private QueryPlan planInteriorRanges(GeoQueryRequest geoQueryRequest, int timeBucketCount, GeoQueryStats stats) {
+		long coveringStartNanos = beforePhase(geoQueryRequest, GeoQueryPhase.COVERING);
+		S2LatLngRect latLngRect = S2Util.getBoundingLatLngRect(geoQueryRequest);
 
-		return new QueryRadiusResponse(dispatchQueries(ranges, queryRadiusRequest));
+		S2CellUnion cellUnion = S2Manager.findCellIds(latLngRect);
+		S2CellUnion interiorCellUnion = S2Manager.findInteriorCellIds(S2Util.getRegion(geoQueryRequest),
+				config.getCoveringMaxCells());
+		stats.setCellCount(cellUnion.size());
+		stats.setCoveringNanos(afterPhase(geoQueryRequest, GeoQueryPhase.COVERING, coveringStartNanos));
+
+		long planningStartNanos = beforePhase(geoQueryRequest, GeoQueryPhase.PLANNING);
+		QueryPlan queryPlan = splitRanges(cellUnion, interiorCellUnion, stats);
+		stats.setQueryCount(queryPlan.getRanges().size() * timeBucketCount);
+		stats.setPlanningNanos(afterPhase(geoQueryRequest, GeoQueryPhase.PLANNING, planningStartNanos));
+
+		return queryPlan;
 	}
 
 	/**
 	 * <p>
 	 * Update a point data in Amazon DynamoDB table. You cannot update attributes specified in
-	 * GeoDataManagerConfiguration: hash key, range key, geohash and geoJson. If you want to update these columns, you
-	 * need to insert a new record and delete the old record.
+	 * GeoDataManagerConfiguration: hash key, range key, geohash and geoJson. If you want to change the location of a
+	 * point, use {@link #movePoint(MovePointRequest)}.
 	 * </p>
 	 * <b>Sample usage:</b>
 	 * 
@@ -271,6 +756,59 @@ public class GeoDataManager {
 		return dynamoDBManager.updatePoint(updatePointRequest, updates);
 	}
 
+	/**
+	 * <p>
+	 * Move a point to a new location. If the new location has the same hash key, or the table uses the global index
+	 * layout, the geohash, geoJson and hash key attributes are updated in place with a single UpdateItem call.
+	 * Otherwise the old item is read with a strongly consistent GetItem, then deleted and put again with the new point
+	 * attributes in a single TransactWriteItems call, which consumes twice the write capacity. The other attributes of
+	 * the item are kept either way. A move to another time bucket is always a delete from the table of the old bucket
+	 * and a put into the table of the new one.
+	 * </p>
+	 * <p>
+	 * The point must exist: moving a missing point throws a ConditionalCheckFailedException, or a
+	 * TransactionCanceledException if the item was deleted or changed between the read and the transaction.
+	 * </p>
+	 * <b>Sample usage:</b>
+	 * 
+	 * <pre>
+	 * GeoPoint oldGeoPoint = new GeoPoint(47.5, -122.3);
+	 * GeoPoint newGeoPoint = new GeoPoint(47.6, -122.2);
+	 * 
+	 * String rangeKey = &quot;a6feb446-c7f2-4b48-9b3a-0f87744a5047&quot;;
+	 * AttributeValue rangeKeyValue = new AttributeValue().withS(rangeKey);
+	 * 
+	 * MovePointRequest movePointRequest = new MovePointRequest(oldGeoPoint, newGeoPoint, rangeKeyValue);
+	 * MovePointResponse movePointResponse = geoIndexManager.movePoint(movePointRequest);
+	 * </pre>
+	 * 
+	 * @param movePointRequest
+	 *            Container for the necessary parameters to execute move point request.
+	 * 
+	 * @return Response of move point request.
+	 */
+	public MovePointResponse movePoint(MovePointRequest movePointRequest) {
+		return dynamoDBManager.movePoint(movePointRequest);
+	}
+
+	/**
+	 * <p>
+	 * Move a list of points with as few TransactWriteItems calls as possible. Moves are packed into transactions of at
+	 * most 100 actions: one action for a move that keeps the hash key, two for a move to another hash key. Each move
+	 * is atomic, and a failed call rolls back every move of its transaction. A point may be moved only once per call.
+	 * As with {@link #movePoint(MovePointRequest)}, a move to another hash key first reads the item with GetItem, and
+	 * every move requires the point to exist.
+	 * </p>
+	 * 
+	 * @param movePointRequests
+	 *            Container for the necessary parameters to execute move point request.
+	 * 
+	 * @return Response of batch move point request.
+	 */
+	public BatchMovePointResponse batchMovePoints(List<MovePointRequest> movePointRequests) {
+		return dynamoDBManager.batchMovePoints(movePointRequests);
+	}
+
 	/**
 	 * <p>
 	 * Delete a point from the Amazon DynamoDB table.
@@ -329,30 +867,171 @@ public class GeoDataManager {
 	/**
 	 * Query Amazon DynamoDB in parallel and filter the result.
 	 * 
-	 * @param ranges
-	 *            A list of geohash ranges that will be used to query Amazon DynamoDB.
+	 * @param cellUnion
+	 *            Cells covering the queried area. They are merged into geohash ranges that will be used to query Amazon
+	 *            DynamoDB.
+	 * 
+	 * @param interiorCellUnion
+	 *            Cells inside the queried area, whose items are accepted without filtering, or null.
+	 * 
+	 * @param geoFilter
+	 *            Precise filter of the queried area.
 	 * 
 	 * @param geoQueryRequest
-	 *            The rectangle area that will be used as a reference point for precise filtering.
+	 *            The queried area.
 	 * 
-	 * @return Aggregated and filtered items returned from Amazon DynamoDB.
+	 * @param geoQueryResponse
+	 *            Receives the aggregated and filtered items returned from Amazon DynamoDB.
+	 * 
+	 * @param startNanos
+	 *            System.nanoTime() at which the query started.
 	 */
-	private GeoQueryResponse dispatchQueries(List<GeohashRange> ranges, GeoQueryRequest geoQueryRequest) {
-		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+	private void dispatchQueries(S2CellUnion cellUnion, S2CellUnion interiorCellUnion, GeoFilter geoFilter,
+			GeoQueryRequest geoQueryRequest, GeoQueryResponse geoQueryResponse, long startNanos) {
+		dispatchQueries(cellUnion, interiorCellUnion,
+				Collections.singletonList(new QueryTarget(geoFilter, geoQueryResponse, null)), geoQueryRequest,
+				geoQueryResponse.getQueryStats(), startNanos);
+	}
+
+	/**
+	 * Query Amazon DynamoDB in parallel and route the filtered result to one or more queries. Each geohash range is read
+	 * once, however many of the queries it belongs to.
+	 * 
+	 * @param cellUnion
+	 *            Cells covering the areas of all queries.
+	 * 
+	 * @param interiorCellUnion
+	 *            Cells inside the areas of every query, whose items are accepted without filtering, or null.
+	 * 
+	 * @param targets
+	 *            Queries that receive the filtered items.
+	 * 
+	 * @param geoQueryRequest
+	 *            Request reported to the GeoTraceListener and GeoMetricsPublisher.
+	 * 
+	 * @param stats
+	 *            Receives the execution statistics.
+	 * 
+	 * @param startNanos
+	 *            System.nanoTime() at which the query started.
+	 */
+	private void dispatchQueries(S2CellUnion cellUnion, S2CellUnion interiorCellUnion, List<QueryTarget> targets,
+			GeoQueryRequest geoQueryRequest, GeoQueryStats stats, long startNanos) {
+		long planningStartNanos = beforePhase(geoQueryRequest, GeoQueryPhase.PLANNING);
+		QueryPlan queryPlan = splitRanges(cellUnion, interiorCellUnion, stats);
+		cellUnion = null;
+		interiorCellUnion = null;
+		List<TimeBucket> timeBuckets = getTimeBuckets(geoQueryRequest);
+		List<QueryPlan> bucketQueryPlans = splitDenseRanges(queryPlan, timeBuckets);
+		queryPlan = null;
+		int queryCount = 0;
+		for (QueryPlan bucketQueryPlan : bucketQueryPlans) {
+			queryCount += bucketQueryPlan.getRanges().size();
+		}
+		stats.setQueryCount(queryCount);
+		stats.setPlanningNanos(afterPhase(geoQueryRequest, GeoQueryPhase.PLANNING, planningStartNanos));
 
 		ExecutorService executorService = config.getExecutorService();
 		List<Future<?>> futureList = new ArrayList<Future<?>>();
+		long[] rangeCounts = new long[targets.size()];
 
-		for (GeohashRange outerRange : ranges) {
-			List<GeohashRange> outrRangesSplit = outerRange.trySplit(config.getHashKeyLength());
-			for (GeohashRange range : outrRangesSplit) {
-				GeoQueryThread geoQueryThread = new GeoQueryThread(geoQueryRequest, geoQueryResponse, range);
-				System.out.println("Dispatch Job");
+		for (int b = 0; b < timeBuckets.size(); b++) {
+			QueryPlan bucketQueryPlan = bucketQueryPlans.get(b);
+			for (GeohashRange range : bucketQueryPlan.getRanges()) {
+				List<QueryTarget> rangeTargets = new ArrayList<QueryTarget>(targets.size() == 1 ? 1 : 4);
+				for (int i = 0; i < targets.size(); i++) {
+					if (targets.get(i).overlaps(range)) {
+						rangeTargets.add(targets.get(i));
+						rangeCounts[i]++;
+					}
+				}
+
+				GeoQueryThread geoQueryThread = new GeoQueryThread(geoQueryRequest, rangeTargets, stats,
+						bucketQueryPlan.getGranularity(), range, timeBuckets.get(b), beforePhase(geoQueryRequest,
+								GeoQueryPhase.QUEUEING));
 				futureList.add(executorService.submit(geoQueryThread));
 			}
 		}
-		ranges = null;
+		bucketQueryPlans = null;
+
+		if (config.getQueryResponseRetention() != QueryResponseRetention.NONE) {
+			for (int i = 0; i < targets.size(); i++) {
+				targets.get(i).getGeoQueryResponse().setRangeCount(rangeCounts[i]);
+			}
+		}
+
+		awaitQueries(futureList);
+		futureList = null;
+
+		publishStats(geoQueryRequest, stats, startNanos);
+	}
+
+	/**
+	 * Count the points of a query in parallel, grouped by the cell of the given level that contains them. Interior
+	 * ranges are counted with Select.COUNT queries; boundary ranges are read and filtered.
+	 * 
+	 * @param queryPlan
+	 *            Geohash ranges that can each be read with a single hash key.
+	 * 
+	 * @param timeBuckets
+	 *            Time buckets each range is read from.
+	 * 
+	 * @param geoFilter
+	 *            Precise filter of the queried area, applied to boundary ranges.
+	 * 
+	 * @param cellLevel
+	 *            Level of the cells counts are grouped by. Interior ranges must not span more than one cell of this
+	 *            level.
+	 * 
+	 * @param geoQueryRequest
+	 *            The queried area.
+	 * 
+	 * @param geoQueryResponse
+	 *            Receives the summary of the pages read.
+	 * 
+	 * @param startNanos
+	 *            System.nanoTime() at which the query started.
+	 * 
+	 * @return Number of points per cell id, ordered by cell id.
+	 */
+	private Map<Long, Long> dispatchCountQueries(QueryPlan queryPlan, List<TimeBucket> timeBuckets,
+			GeoFilter geoFilter, int cellLevel, GeoQueryRequest geoQueryRequest, GeoQueryResponse geoQueryResponse,
+			long startNanos) {
+		ConcurrentMap<Long, LongAdder> cellCounts = new ConcurrentHashMap<Long, LongAdder>();
+
+		ExecutorService executorService = config.getExecutorService();
+		List<Future<?>> futureList = new ArrayList<Future<?>>();
+
+		for (TimeBucket timeBucket : timeBuckets) {
+			for (GeohashRange range : queryPlan.getRanges()) {
+				GeoCountThread geoCountThread = new GeoCountThread(geoQueryRequest, geoFilter, geoQueryResponse,
+						queryPlan.getGranularity(), range, timeBucket, cellLevel, cellCounts, beforePhase(
+								geoQueryRequest, GeoQueryPhase.QUEUEING));
+				futureList.add(executorService.submit(geoCountThread));
+			}
+		}
+
+		if (config.getQueryResponseRetention() != QueryResponseRetention.NONE) {
+			geoQueryResponse.setRangeCount(futureList.size());
+		}
+
+		awaitQueries(futureList);
+		futureList = null;
+
+		publishStats(geoQueryRequest, geoQueryResponse.getQueryStats(), startNanos);
+
+		Map<Long, Long> result = new TreeMap<Long, Long>();
+		for (Map.Entry<Long, LongAdder> entry : cellCounts.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
 
+		return result;
+	}
+
+	/**
+	 * Wait for all range queries of a query. If one fails, the remaining ones are cancelled.
+	 */
+	private void awaitQueries(List<Future<?>> futureList) {
 		for (int i = 0; i < futureList.size(); i++) {
 			try {
 				futureList.get(i).get();
@@ -363,9 +1042,325 @@ public class GeoDataManager {
 				throw SdkException.builder().cause(e).message("Querying Amazon DynamoDB failed.").build();
 			}
 		}
-		futureList = null;
+	}
+
+	/**
+	 * Wait until a range query finds a point or all range queries are done, then cancel the range queries still
+	 * running.
+	 */
+	private void awaitFirstMatch(CompletionService<?> completionService, List<Future<?>> futureList,
+			AtomicBoolean found) {
+		try {
+			for (int i = 0; i < futureList.size() && !found.get(); i++) {
+				completionService.take().get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw SdkException.builder().cause(e).message("Querying Amazon DynamoDB was interrupted.").build();
+		} catch (ExecutionException e) {
+			throw SdkException.builder().cause(e).message("Querying Amazon DynamoDB failed.").build();
+		} finally {
+			for (Future<?> future : futureList) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Complete the execution statistics of a query and hand them to the GeoMetricsPublisher, if any.
+	 */
+	private void publishStats(GeoQueryRequest geoQueryRequest, GeoQueryStats stats, long startNanos) {
+		stats.setTotalNanos(System.nanoTime() - startNanos);
+
+		GeoMetricsPublisher metricsPublisher = config.getMetricsPublisher();
+		if (metricsPublisher != null) {
+			metricsPublisher.publish(geoQueryRequest.getClass().getSimpleName(), stats);
+		}
+	}
+
+	/**
+	 * Merge the cells into geohash ranges and split them by hash key.
+	 * 
+	 * @param stats
+	 *            Receives the number of merged ranges, or null.
+	 * 
+	 * @return Geohash ranges that can each be read with a single hash key.
+	 */
+	private QueryPlan splitRanges(S2CellUnion cellUnion, GeoQueryStats stats) {
+		return splitRanges(cellUnion, null, stats);
+	}
+
+	/**
+	 * Merge the cells into geohash ranges and split them by hash key. Ranges of cells inside the interior covering are
+	 * flagged as interior and kept apart from the boundary ranges.
+	 * 
+	 * @param interiorCellUnion
+	 *            Cells that lie entirely inside the queried area, or null.
+	 * 
+	 * @param stats
+	 *            Receives the number of merged ranges, or null.
+	 * 
+	 * @return Geohash ranges that can each be read with a single hash key.
+	 */
+	private QueryPlan splitRanges(S2CellUnion cellUnion, S2CellUnion interiorCellUnion, GeoQueryStats stats) {
+		List<GeohashRange> ranges;
+		if (interiorCellUnion == null || interiorCellUnion.size() == 0) {
+			ranges = mergeCells(cellUnion);
+		} else {
+			ranges = mergeCells(interiorCellUnion);
+			for (GeohashRange range : ranges) {
+				range.setInterior(true);
+			}
+
+			S2CellUnion boundaryCellUnion = new S2CellUnion();
+			boundaryCellUnion.getDifference(cellUnion, interiorCellUnion);
+			ranges.addAll(mergeCells(boundaryCellUnion));
+		}
+		if (stats != null) {
+			stats.setRangeCount(ranges.size());
+		}
+
+		return splitRanges(ranges);
+	}
+
+	/**
+	 * Split merged ranges by hash key. With several hash key granularities, the granularity that needs the fewest Query
+	 * calls is used; on a tie the longest hash key wins, as it spreads the queries over more partitions.
+	 * 
+	 * @return Geohash ranges that can each be read with a single hash key of the chosen granularity.
+	 */
+	private QueryPlan splitRanges(List<GeohashRange> ranges) {
+		QueryPlan bestQueryPlan = null;
+		for (HashKeyGranularity granularity : config.getHashKeyGranularities()) {
+			List<GeohashRange> splitRanges = new ArrayList<GeohashRange>();
+			for (GeohashRange outerRange : ranges) {
+				splitRanges.addAll(outerRange.trySplit(granularity.getHashKeyLength()));
+			}
+
+			if (bestQueryPlan == null
+					|| splitRanges.size() < bestQueryPlan.getRanges().size()
+					|| (splitRanges.size() == bestQueryPlan.getRanges().size() && granularity.getHashKeyLength() > bestQueryPlan
+							.getGranularity().getHashKeyLength())) {
+				bestQueryPlan = new QueryPlan(granularity, splitRanges);
+			}
+		}
+
+		return bestQueryPlan;
+	}
+
+	/**
+	 * Find the time bucket tables a query reads. Without time buckets, the table of the configuration is read, through
+	 * a filter on the timestamp attribute if the query has a time window. With time buckets, the buckets the window
+	 * overlaps are read, except those past their retention; only the buckets at the ends of the window are filtered. A
+	 * query without a time window reads every bucket still retained, up to the current one, whole.
+	 * 
+	 * The window is clamped to the current bucket, as the tables of later buckets may not exist yet: a window reaching
+	 * into the future reads up to the current bucket, and a window entirely in the future reads nothing. The tables of
+	 * the buckets read must exist; a missing one fails the query rather than being read as empty, so that a table that
+	 * was never created is not mistaken for a bucket without points.
+	 * 
+	 * @return Time buckets to read, each with every range of the query. The list is empty if every bucket has expired
+	 *         or starts after the current one.
+	 */
+	private List<TimeBucket> getTimeBuckets(GeoQueryRequest geoQueryRequest) {
+		long bucketMillis = config.getTimeBucketMillis();
+		long startTimestamp;
+		long endTimestamp;
+		if (geoQueryRequest.hasTimeWindow()) {
+			startTimestamp = geoQueryRequest.getStartTimestamp();
+			endTimestamp = geoQueryRequest.getEndTimestamp();
+			if (startTimestamp > endTimestamp) {
+				throw new IllegalArgumentException("The start of the time window must not be after its end.");
+			}
+			if (bucketMillis <= 0) {
+				return Collections.singletonList(new TimeBucket(config.getTableName(), startTimestamp, endTimestamp));
+			}
+		} else if (bucketMillis <= 0) {
+			return Collections.singletonList(null);
+		} else if (config.getTimeBucketRetentionMillis() <= 0) {
+			throw new IllegalArgumentException("A query without a time window reads every time bucket, so it needs "
+					+ "a time bucket retention.");
+		} else {
+			// The retention bounds the window.
+			startTimestamp = Long.MIN_VALUE;
+			endTimestamp = System.currentTimeMillis();
+		}
+
+		long now = System.currentTimeMillis();
+		long firstBucket = Math.floorDiv(startTimestamp, bucketMillis);
+		long lastBucket = Math.min(Math.floorDiv(endTimestamp, bucketMillis), Math.floorDiv(now, bucketMillis));
+		if (config.getTimeBucketRetentionMillis() > 0) {
+			long expiredBefore = now - config.getTimeBucketRetentionMillis();
+			firstBucket = Math.max(firstBucket, Math.floorDiv(expiredBefore, bucketMillis));
+		}
+		if (lastBucket - firstBucket >= MAX_TIME_BUCKETS) {
+			throw new IllegalArgumentException("The query spans more than " + MAX_TIME_BUCKETS + " time buckets.");
+		}
+
+		List<TimeBucket> timeBuckets = new ArrayList<TimeBucket>();
+		for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+			long bucketStart = bucket * bucketMillis;
+			long bucketEnd = bucketStart + bucketMillis - 1;
+			String tableName = config.getTimeBucketTableName(bucketStart);
+			if (geoQueryRequest.hasTimeWindow() && (startTimestamp > bucketStart || endTimestamp < bucketEnd)) {
+				timeBuckets.add(new TimeBucket(tableName, Math.max(startTimestamp, bucketStart), Math.min(
+						endTimestamp, bucketEnd)));
+			} else {
+				timeBuckets.add(new TimeBucket(tableName, null, null));
+			}
+		}
+
+		return timeBuckets;
+	}
+
+	/**
+	 * Split the ranges that earlier queries of their hash key in the table suggest will take several pages, so that
+	 * their pages are read in parallel rather than one after another. Ranges are split by the density of each table, as
+	 * the tables of time buckets hold different points. Splitting only helps while the executor has idle threads, so
+	 * the parts added across all tables are capped by the threads the range queries leave free, and go to the densest
+	 * ranges first. A query may always add up to MAX_RANGE_PARTS - 1 parts, so that its densest range is still split
+	 * when its other ranges fill the executor.
+	 * 
+	 * @return The range queries of each time bucket, in the same order.
+	 */
+	private List<QueryPlan> splitDenseRanges(QueryPlan queryPlan, List<TimeBucket> timeBuckets) {
+		HashKeyGranularity granularity = queryPlan.getGranularity();
+		List<GeohashRange> ranges = queryPlan.getRanges();
+		int[][] parts = new int[timeBuckets.size()][ranges.size()];
+		long spareQueries = Math.max((long) getParallelism() - (long) ranges.size() * timeBuckets.size(),
+				MAX_RANGE_PARTS - 1);
+
+		// Each dense range is { parts it would take, time bucket index, range index }.
+		List<int[]> denseRanges = new ArrayList<int[]>();
+		for (int b = 0; b < timeBuckets.size(); b++) {
+			String tableName = timeBuckets.get(b) != null ? timeBuckets.get(b).getTableName() : config.getTableName();
+			for (int i = 0; i < ranges.size(); i++) {
+				parts[b][i] = 1;
+				if (spareQueries > 0) {
+					long hashKey = S2Manager.generateHashKey(ranges.get(i).getRangeMin(),
+							granularity.getHashKeyLength());
+					int pageCount = dynamoDBManager.estimatePageCount(tableName, granularity, hashKey, ranges.get(i));
+					if (pageCount > 1) {
+						denseRanges.add(new int[] { Math.min(pageCount, MAX_RANGE_PARTS), b, i });
+					}
+				}
+			}
+		}
+
+		denseRanges.sort((r1, r2) -> Integer.compare(r2[0], r1[0]));
+		for (int[] denseRange : denseRanges) {
+			if (spareQueries <= 0) {
+				break;
+			}
+			int extraParts = (int) Math.min(denseRange[0] - 1, spareQueries);
+			parts[denseRange[1]][denseRange[2]] += extraParts;
+			spareQueries -= extraParts;
+		}
+
+		List<QueryPlan> queryPlans = new ArrayList<QueryPlan>(timeBuckets.size());
+		for (int b = 0; b < timeBuckets.size(); b++) {
+			List<GeohashRange> bucketRanges = new ArrayList<GeohashRange>(ranges.size());
+			for (int i = 0; i < ranges.size(); i++) {
+				if (parts[b][i] > 1) {
+					bucketRanges.addAll(ranges.get(i).split(parts[b][i]));
+				} else {
+					bucketRanges.add(ranges.get(i));
+				}
+			}
+			queryPlans.add(bucketRanges.size() == ranges.size() ? queryPlan : new QueryPlan(granularity, bucketRanges));
+		}
+
+		return queryPlans;
+	}
+
+	/**
+	 * @return Number of range queries the executor runs at once. Executors other than ThreadPoolExecutor and
+	 *         ForkJoinPool do not tell, and are taken to run one per processor.
+	 */
+	private int getParallelism() {
+		ExecutorService executorService = config.getExecutorService();
+		if (executorService instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) executorService).getMaximumPoolSize();
+		} else if (executorService instanceof ForkJoinPool) {
+			return ((ForkJoinPool) executorService).getParallelism();
+		}
+
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Notify the GeoTraceListener, if any, that a query phase starts.
+	 * 
+	 * @return System.nanoTime() at which the phase started.
+	 */
+	private long beforePhase(GeoQueryRequest geoQueryRequest, GeoQueryPhase phase) {
+		GeoTraceListener traceListener = config.getTraceListener();
+		if (traceListener != null) {
+			traceListener.beforePhase(geoQueryRequest, phase);
+		}
+
+		return System.nanoTime();
+	}
+
+	/**
+	 * Notify the GeoTraceListener, if any, that a query phase ended.
+	 * 
+	 * @return Time spent in the phase.
+	 */
+	private long afterPhase(GeoQueryRequest geoQueryRequest, GeoQueryPhase phase, long phaseStartNanos) {
+		long nanos = System.nanoTime() - phaseStartNanos;
+		GeoTraceListener traceListener = config.getTraceListener();
+		if (traceListener != null) {
+			traceListener.afterPhase(geoQueryRequest, phase, nanos);
+		}
 
-		return geoQueryResponse;
+		return nanos;
+	}
+
+	/**
+	 * Record a page read from Amazon DynamoDB in the execution statistics.
+	 */
+	private static void addPage(GeoQueryStats stats, QueryResponse queryResponse, int itemCount, long pageStartNanos) {
+		long pageEndNanos = System.nanoTime();
+		ConsumedCapacity consumedCapacity = queryResponse.consumedCapacity();
+		stats.addPage(itemCount, consumedCapacity != null && consumedCapacity.capacityUnits() != null
+				? consumedCapacity.capacityUnits() : 0, pageEndNanos - pageStartNanos);
+	}
+
+	/**
+	 * Keep as much of a page in the response as the QueryResponseRetention asks for.
+	 */
+	private static void retain(GeoQueryResponse geoQueryResponse, QueryResponse queryResponse,
+			QueryResponseRetention retention) {
+		if (retention == QueryResponseRetention.ALL) {
+			// getQueryResponses() returns a synchronized list.
+			geoQueryResponse.getQueryResponses().add(queryResponse);
+		}
+		if (retention != QueryResponseRetention.NONE) {
+			geoQueryResponse.addQuerySummary(queryResponse);
+		}
+	}
+
+	/**
+	 * Parse the location of each item into coordinate arrays, in degrees.
+	 * 
+	 * @param list
+	 *            List of items return by Amazon DynamoDB.
+	 * 
+	 * @param latitudes
+	 *            Receives the latitude of each item, in the same order.
+	 * 
+	 * @param longitudes
+	 *            Receives the longitude of each item, in the same order.
+	 */
+	private void getLocations(List<Map<String, AttributeValue>> list, double[] latitudes, double[] longitudes) {
+		String geoJsonAttributeName = config.getGeoJsonAttributeName();
+
+		forEachChunk(list.size(), (from, to) -> {
+			for (int i = from; i < to; i++) {
+				GeoLocationCodec.decode(list.get(i).get(geoJsonAttributeName), latitudes, longitudes, i);
+			}
+		});
 	}
 
 	/**
@@ -374,42 +1369,141 @@ public class GeoDataManager {
 	 * @param list
 	 *            List of items return by Amazon DynamoDB. It may contains points outside of the actual area queried.
 	 * 
-	 * @param geoQueryRequest
+	 * @param latitudes
+	 *            Latitude of each item.
+	 * 
+	 * @param longitudes
+	 *            Longitude of each item.
+	 * 
+	 * @param geoFilter
 	 *            Queried area. Any points outside of this area need to be discarded.
 	 * 
+	 * @param matched
+	 *            Set to true for each item within the queried area.
+	 * 
 	 * @return List of items within the queried area.
 	 */
-	private List<Map<String, AttributeValue>> filter(List<Map<String, AttributeValue>> list,
-			GeoQueryRequest geoQueryRequest) {
+	private List<Map<String, AttributeValue>> filter(List<Map<String, AttributeValue>> list, double[] latitudes,
+			double[] longitudes, GeoFilter geoFilter, boolean[] matched) {
+
+		boolean[] contained = contains(latitudes, longitudes, geoFilter);
 
 		List<Map<String, AttributeValue>> result = new ArrayList<Map<String, AttributeValue>>();
 
-		S2LatLngRect latLngRect = null;
-		S2LatLng centerLatLng = null;
-		double radiusInMeter = 0;
-		if (geoQueryRequest instanceof QueryRectangleRequest) {
-			latLngRect = S2Util.getBoundingLatLngRect(geoQueryRequest);
-		} else if (geoQueryRequest instanceof QueryRadiusRequest) {
-			GeoPoint centerPoint = ((QueryRadiusRequest) geoQueryRequest).getCenterPoint();
-			centerLatLng = S2LatLng.fromDegrees(centerPoint.getLatitude(), centerPoint.getLongitude());
+		for (int i = 0; i < list.size(); i++) {
+			if (contained[i]) {
+				result.add(list.get(i));
+				matched[i] = true;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Test which items lie within the queried area, with the batch kernel of the GeoFilter. Every query type filters
+	 * its items through this method.
+	 * 
+	 * @param latitudes
+	 *            Latitude of each item.
+	 * 
+	 * @param longitudes
+	 *            Longitude of each item.
+	 * 
+	 * @param geoFilter
+	 *            Queried area.
+	 * 
+	 * @return Whether each item lies within the queried area, in the same order.
+	 */
+	private boolean[] contains(double[] latitudes, double[] longitudes, GeoFilter geoFilter) {
+		boolean[] contained = new boolean[latitudes.length];
+		forEachChunk(latitudes.length, (from, to) -> geoFilter.contains(latitudes, longitudes, from, to, contained));
+
+		return contained;
+	}
 
-			radiusInMeter = ((QueryRadiusRequest) geoQueryRequest).getRadiusInMeter();
+	/**
+	 * Run an action on the items of a page, in chunks of consecutive items. Pages of at least
+	 * {@link GeoDataManagerConfiguration#getParallelFilterThreshold()} items are split across the common fork-join
+	 * pool; smaller pages stay on the query thread.
+	 */
+	private void forEachChunk(int itemCount, ChunkAction action) {
+		IntStream chunks = IntStream.range(0, (itemCount + FILTER_CHUNK_SIZE - 1) / FILTER_CHUNK_SIZE);
+		if (itemCount >= config.getParallelFilterThreshold()) {
+			chunks = chunks.parallel();
 		}
 
-		for (Map<String, AttributeValue> item : list) {
-			String geoJson = item.get(config.getGeoJsonAttributeName()).s();
-			GeoPoint geoPoint = GeoJsonMapper.geoPointFromString(geoJson);
+		chunks.forEach(chunk -> action.run(chunk * FILTER_CHUNK_SIZE,
+				Math.min(itemCount, (chunk + 1) * FILTER_CHUNK_SIZE)));
+	}
 
-			S2LatLng latLng = S2LatLng.fromDegrees(geoPoint.getLatitude(), geoPoint.getLongitude());
-			if (latLngRect != null && latLngRect.contains(latLng)) {
-				result.add(item);
-			} else if (centerLatLng != null && radiusInMeter > 0
-					&& S2Util.getEarthDistance(centerLatLng, latLng) <= radiusInMeter) {
-				result.add(item);
-			}
+	/**
+	 * Action on the items of a page from index from, inclusive, to index to, exclusive.
+	 */
+	private interface ChunkAction {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Range queries of a query and the hash key granularity they read through.
+	 * */
+	private static class QueryPlan {
+		private final HashKeyGranularity granularity;
+		private final List<GeohashRange> ranges;
+
+		public QueryPlan(HashKeyGranularity granularity, List<GeohashRange> ranges) {
+			this.granularity = granularity;
+			this.ranges = ranges;
 		}
 
-		return result;
+		public HashKeyGranularity getGranularity() {
+			return granularity;
+		}
+
+		public List<GeohashRange> getRanges() {
+			return ranges;
+		}
+	}
+
+	/**
+	 * A query that receives filtered items from the ranges it overlaps.
+	 * */
+	private static class QueryTarget {
+		private final GeoFilter geoFilter;
+		private final GeoQueryResponse geoQueryResponse;
+		private final List<GeohashRange> ranges;
+
+		/**
+		 * @param ranges
+		 *            Geohash ranges of the query, or null if the query owns every range.
+		 */
+		public QueryTarget(GeoFilter geoFilter, GeoQueryResponse geoQueryResponse, List<GeohashRange> ranges) {
+			this.geoFilter = geoFilter;
+			this.geoQueryResponse = geoQueryResponse;
+			this.ranges = ranges;
+		}
+
+		public GeoFilter getGeoFilter() {
+			return geoFilter;
+		}
+
+		public GeoQueryResponse getGeoQueryResponse() {
+			return geoQueryResponse;
+		}
+
+		public boolean overlaps(GeohashRange range) {
+			if (ranges == null) {
+				return true;
+			}
+
+			for (GeohashRange r : ranges) {
+				if (r.getRangeMin() <= range.getRangeMax() && r.getRangeMax() >= range.getRangeMin()) {
+					return true;
+				}
+			}
+
+			return false;
+		}
 	}
 
 	/**
@@ -417,32 +1511,252 @@ public class GeoDataManager {
 	 * */
 	private class GeoQueryThread extends Thread {
 		private final GeoQueryRequest geoQueryRequest;
-		private final GeoQueryResponse geoQueryResponse;
+		private final List<QueryTarget> targets;
+		private final GeoQueryStats stats;
+		private final HashKeyGranularity granularity;
 		private final GeohashRange range;
+		private final TimeBucket timeBucket;
+		private final long submittedNanos;
 
-		public GeoQueryThread(GeoQueryRequest geoQueryRequest, GeoQueryResponse geoQueryResponse, GeohashRange range) {
+		public GeoQueryThread(GeoQueryRequest geoQueryRequest, List<QueryTarget> targets, GeoQueryStats stats,
+				HashKeyGranularity granularity, GeohashRange range, TimeBucket timeBucket, long submittedNanos) {
 			this.geoQueryRequest = geoQueryRequest;
-			this.geoQueryResponse = geoQueryResponse;
+			this.targets = targets;
+			this.stats = stats;
+			this.granularity = granularity;
 			this.range = range;
+			this.timeBucket = timeBucket;
+			this.submittedNanos = submittedNanos;
 		}
 
 		public void run() {
-			long hashKey = S2Manager.generateHashKey(range.getRangeMin(), config.getHashKeyLength());
+			stats.addQueueing(afterPhase(geoQueryRequest, GeoQueryPhase.QUEUEING, submittedNanos));
+
+			long hashKey = S2Manager.generateHashKey(range.getRangeMin(), granularity.getHashKeyLength());
+			QueryResponseRetention retention = config.getQueryResponseRetention();
+			long[] pageStartNanos = { System.nanoTime() };
 
-			List<QueryResponse> queryResponses = dynamoDBManager.queryGeohash(hashKey, range);
+			dynamoDBManager.queryGeohash(granularity, hashKey, range, timeBucket, stats, queryResponse -> {
+				addPage(stats, queryResponse, queryResponse.items().size(), pageStartNanos[0]);
 
-			for (QueryResponse queryResponse : queryResponses) {
-				if (isInterrupted()) {
+				if (Thread.currentThread().isInterrupted()) {
 					return;
 				}
 
-				// getQueryResponses() returns a synchronized list.
-				geoQueryResponse.getQueryResponses().add(queryResponse);
+				long filteringStartNanos = beforePhase(geoQueryRequest, GeoQueryPhase.FILTERING);
+				if (range.isInterior()) {
+					// Every item of an interior range lies inside the queried area: no location is decoded.
+					for (QueryTarget target : targets) {
+						GeoQueryResponse geoQueryResponse = target.getGeoQueryResponse();
+						retain(geoQueryResponse, queryResponse, retention);
+
+						// getItem() returns a synchronized list.
+						geoQueryResponse.getItem().addAll(queryResponse.items());
+					}
+
+					stats.addInteriorItems(queryResponse.items().size(),
+							afterPhase(geoQueryRequest, GeoQueryPhase.FILTERING, filteringStartNanos));
+				} else {
+					int itemCount = queryResponse.items().size();
+					double[] latitudes = new double[itemCount];
+					double[] longitudes = new double[itemCount];
+					getLocations(queryResponse.items(), latitudes, longitudes);
+					boolean[] matched = new boolean[itemCount];
+
+					for (QueryTarget target : targets) {
+						GeoQueryResponse geoQueryResponse = target.getGeoQueryResponse();
+						retain(geoQueryResponse, queryResponse, retention);
+
+						List<Map<String, AttributeValue>> filteredQueryResponse = filter(queryResponse.items(),
+								latitudes, longitudes, target.getGeoFilter(), matched);
+
+						// getItem() returns a synchronized list.
+						geoQueryResponse.getItem().addAll(filteredQueryResponse);
+					}
+
+					int filteredOutCount = 0;
+					for (boolean m : matched) {
+						if (!m) {
+							filteredOutCount++;
+						}
+					}
+
+					stats.addFiltering(filteredOutCount,
+							afterPhase(geoQueryRequest, GeoQueryPhase.FILTERING, filteringStartNanos));
+				}
+				pageStartNanos[0] = System.nanoTime();
+			});
+		}
+	}
+
+	/**
+	 * Worker thread to count the points of a range. An interior range is counted by Amazon DynamoDB; the items of a
+	 * boundary range are read and filtered.
+	 * */
+	private class GeoCountThread extends Thread {
+		private final GeoQueryRequest geoQueryRequest;
+		private final GeoFilter geoFilter;
+		private final GeoQueryResponse geoQueryResponse;
+		private final HashKeyGranularity granularity;
+		private final GeohashRange range;
+		private final TimeBucket timeBucket;
+		private final int cellLevel;
+		private final ConcurrentMap<Long, LongAdder> cellCounts;
+		private final long submittedNanos;
+
+		public GeoCountThread(GeoQueryRequest geoQueryRequest, GeoFilter geoFilter, GeoQueryResponse geoQueryResponse,
+				HashKeyGranularity granularity, GeohashRange range, TimeBucket timeBucket, int cellLevel,
+				ConcurrentMap<Long, LongAdder> cellCounts, long submittedNanos) {
+			this.geoQueryRequest = geoQueryRequest;
+			this.geoFilter = geoFilter;
+			this.geoQueryResponse = geoQueryResponse;
+			this.granularity = granularity;
+			this.range = range;
+			this.timeBucket = timeBucket;
+			this.cellLevel = cellLevel;
+			this.cellCounts = cellCounts;
+			this.submittedNanos = submittedNanos;
+		}
+
+		public void run() {
+			GeoQueryStats stats = geoQueryResponse.getQueryStats();
+			stats.addQueueing(afterPhase(geoQueryRequest, GeoQueryPhase.QUEUEING, submittedNanos));
+
+			long hashKey = S2Manager.generateHashKey(range.getRangeMin(), granularity.getHashKeyLength());
+			QueryResponseRetention retention = config.getQueryResponseRetention();
+			long[] pageStartNanos = { System.nanoTime() };
+
+			if (range.isInterior()) {
+				S2CellId cellId = new S2CellId(range.getRangeMin());
+
+				dynamoDBManager.countGeohash(granularity, hashKey, range, timeBucket, stats, queryResponse -> {
+					addPage(stats, queryResponse, queryResponse.count(), pageStartNanos[0]);
+					retain(geoQueryResponse, queryResponse, retention);
+
+					if (queryResponse.count() > 0) {
+						getCellCount(cellId).add(queryResponse.count());
+					}
+					pageStartNanos[0] = System.nanoTime();
+				});
+			} else {
+				dynamoDBManager.queryGeohash(granularity, hashKey, range, timeBucket, stats, queryResponse -> {
+					addPage(stats, queryResponse, queryResponse.items().size(), pageStartNanos[0]);
+
+					if (Thread.currentThread().isInterrupted()) {
+						return;
+					}
+
+					long filteringStartNanos = beforePhase(geoQueryRequest, GeoQueryPhase.FILTERING);
+					retain(geoQueryResponse, queryResponse, retention);
+
+					int itemCount = queryResponse.items().size();
+					double[] latitudes = new double[itemCount];
+					double[] longitudes = new double[itemCount];
+					getLocations(queryResponse.items(), latitudes, longitudes);
+					boolean[] contained = contains(latitudes, longitudes, geoFilter);
+
+					int filteredOutCount = 0;
+					for (int i = 0; i < itemCount; i++) {
+						if (contained[i]) {
+							getCellCount(S2CellId.fromLatLng(S2LatLng.fromDegrees(latitudes[i], longitudes[i])))
+								.increment();
+						} else {
+							filteredOutCount++;
+						}
+					}
+
+					stats.addFiltering(filteredOutCount,
+							afterPhase(geoQueryRequest, GeoQueryPhase.FILTERING, filteringStartNanos));
+					pageStartNanos[0] = System.nanoTime();
+				});
+			}
+		}
+
+		private LongAdder getCellCount(S2CellId cellId) {
+			return cellCounts.computeIfAbsent(cellId.parent(cellLevel).id(), id -> new LongAdder());
+		}
+	}
+
+	/**
+	 * Worker thread to look for a point in a range. An interior range is checked with a single Select.COUNT query that
+	 * evaluates at most one item; a boundary range is read until one of its items passes the filter.
+	 * */
+	private class GeoExistsThread extends Thread {
+		private final GeoQueryRequest geoQueryRequest;
+		private final GeoFilter geoFilter;
+		private final GeoQueryResponse geoQueryResponse;
+		private final HashKeyGranularity granularity;
+		private final GeohashRange range;
+		private final TimeBucket timeBucket;
+		private final AtomicBoolean found;
+		private final long submittedNanos;
+
+		public GeoExistsThread(GeoQueryRequest geoQueryRequest, GeoFilter geoFilter, GeoQueryResponse geoQueryResponse,
+				HashKeyGranularity granularity, GeohashRange range, TimeBucket timeBucket, AtomicBoolean found,
+				long submittedNanos) {
+			this.geoQueryRequest = geoQueryRequest;
+			this.geoFilter = geoFilter;
+			this.geoQueryResponse = geoQueryResponse;
+			this.granularity = granularity;
+			this.range = range;
+			this.timeBucket = timeBucket;
+			this.found = found;
+			this.submittedNanos = submittedNanos;
+		}
+
+		public void run() {
+			GeoQueryStats stats = geoQueryResponse.getQueryStats();
+			stats.addQueueing(afterPhase(geoQueryRequest, GeoQueryPhase.QUEUEING, submittedNanos));
+
+			if (found.get()) {
+				return;
+			}
+
+			long hashKey = S2Manager.generateHashKey(range.getRangeMin(), granularity.getHashKeyLength());
+			QueryResponseRetention retention = config.getQueryResponseRetention();
+			long[] pageStartNanos = { System.nanoTime() };
+
+			if (range.isInterior()) {
+				dynamoDBManager.existsGeohash(granularity, hashKey, range, timeBucket, stats, queryResponse -> {
+					addPage(stats, queryResponse, queryResponse.count(), pageStartNanos[0]);
+					retain(geoQueryResponse, queryResponse, retention);
+
+					if (queryResponse.count() > 0) {
+						found.set(true);
+					}
+					pageStartNanos[0] = System.nanoTime();
+					return !found.get() && !Thread.currentThread().isInterrupted();
+				});
+			} else {
+				dynamoDBManager.queryGeohashWhile(granularity, hashKey, range, timeBucket, stats, queryResponse -> {
+					addPage(stats, queryResponse, queryResponse.items().size(), pageStartNanos[0]);
+
+					if (found.get() || Thread.currentThread().isInterrupted()) {
+						return false;
+					}
+
+					long filteringStartNanos = beforePhase(geoQueryRequest, GeoQueryPhase.FILTERING);
+					retain(geoQueryResponse, queryResponse, retention);
+
+					int itemCount = queryResponse.items().size();
+					double[] latitudes = new double[itemCount];
+					double[] longitudes = new double[itemCount];
+					getLocations(queryResponse.items(), latitudes, longitudes);
 
-				List<Map<String, AttributeValue>> filteredQueryResponse = filter(queryResponse.items(), geoQueryRequest);
+					int filteredOutCount = 0;
+					for (boolean contained : contains(latitudes, longitudes, geoFilter)) {
+						if (contained) {
+							found.set(true);
+						} else {
+							filteredOutCount++;
+						}
+					}
 
-				// getItem() returns a synchronized list.
-				geoQueryResponse.getItem().addAll(filteredQueryResponse);
+					stats.addFiltering(filteredOutCount,
+							afterPhase(geoQueryRequest, GeoQueryPhase.FILTERING, filteringStartNanos));
+					pageStartNanos[0] = System.nanoTime();
+					return !found.get();
+				});
 			}
 		}
 	}
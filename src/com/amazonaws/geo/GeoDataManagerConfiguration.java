@@ -15,9 +15,19 @@
 
 package com.amazonaws.geo;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.amazonaws.geo.metrics.GeoMetricsPublisher;
+import com.amazonaws.geo.model.GeoTableLayout;
+import com.amazonaws.geo.model.HashKeyGranularity;
+import com.amazonaws.geo.model.LocationEncoding;
+import com.amazonaws.geo.model.QueryResponseRetention;
+import com.amazonaws.geo.replica.GeoReplica;
+import com.amazonaws.geo.trace.GeoTraceListener;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 public class GeoDataManagerConfiguration {
@@ -30,6 +40,7 @@ public class GeoDataManagerConfiguration {
 	private static final String DEFAULT_RANGEKEY_ATTRIBUTE_NAME = "rangeKey";
 	private static final String DEFAULT_GEOHASH_ATTRIBUTE_NAME = "geohash";
 	private static final String DEFAULT_GEOJSON_ATTRIBUTE_NAME = "geoJson";
+	private static final String DEFAULT_TIMESTAMP_ATTRIBUTE_NAME = "timestamp";
 
 	private static final String DEFAULT_GEOHASH_INDEX_ATTRIBUTE_NAME = "geohash-index";
 
@@ -37,6 +48,18 @@ public class GeoDataManagerConfiguration {
 
 	private static final int DEFAULT_THREAD_POOL_SIZE = 10;
 
+	private static final int DEFAULT_COVERING_MAX_CELLS = 16;
+
+	private static final GeoTableLayout DEFAULT_TABLE_LAYOUT = GeoTableLayout.LOCAL_INDEX;
+
+	private static final QueryResponseRetention DEFAULT_QUERY_RESPONSE_RETENTION = QueryResponseRetention.ALL;
+
+	private static final LocationEncoding DEFAULT_LOCATION_ENCODING = LocationEncoding.GEOJSON;
+
+	private static final int DEFAULT_PARALLEL_FILTER_THRESHOLD = 2048;
+
+	private static final double DEFAULT_MAX_HEDGE_RATE = 0.05;
+
 	// Configuration properties
 	private String tableName;
 
@@ -44,25 +67,68 @@ public class GeoDataManagerConfiguration {
 	private String rangeKeyAttributeName;
 	private String geohashAttributeName;
 	private String geoJsonAttributeName;
+	private String timestampAttributeName;
 
 	private String geohashIndexName;
 
 	private int hashKeyLength;
 
+	private List<HashKeyGranularity> additionalHashKeyGranularities;
+
+	private int coveringMaxCells;
+
+	private GeoTableLayout tableLayout;
+
+	private QueryResponseRetention queryResponseRetention;
+
+	private LocationEncoding locationEncoding;
+
+	private int parallelFilterThreshold;
+
+	private double hedgingPercentile;
+	private double maxHedgeRate;
+
+	private boolean queryCoalescing;
+
+	private long timeBucketMillis;
+	private long timeBucketRetentionMillis;
+
+	private GeoMetricsPublisher metricsPublisher;
+
+	private GeoTraceListener traceListener;
+
+	private GeoReplica replica;
+
 	private DynamoDbClient dynamoDBClient;
 
 	private ExecutorService executorService;
+	private ExecutorService hedgingExecutorService;
 
 	public GeoDataManagerConfiguration(DynamoDbClient dynamoDBClient, String tableName) {
 		hashKeyAttributeName = DEFAULT_HASHKEY_ATTRIBUTE_NAME;
 		rangeKeyAttributeName = DEFAULT_RANGEKEY_ATTRIBUTE_NAME;
 		geohashAttributeName = DEFAULT_GEOHASH_ATTRIBUTE_NAME;
 		geoJsonAttributeName = DEFAULT_GEOJSON_ATTRIBUTE_NAME;
+		timestampAttributeName = DEFAULT_TIMESTAMP_ATTRIBUTE_NAME;
 
 		geohashIndexName = DEFAULT_GEOHASH_INDEX_ATTRIBUTE_NAME;
 
 		hashKeyLength = DEFAULT_HASHKEY_LENGTH;
 
+		additionalHashKeyGranularities = Collections.emptyList();
+
+		coveringMaxCells = DEFAULT_COVERING_MAX_CELLS;
+
+		tableLayout = DEFAULT_TABLE_LAYOUT;
+
+		queryResponseRetention = DEFAULT_QUERY_RESPONSE_RETENTION;
+
+		locationEncoding = DEFAULT_LOCATION_ENCODING;
+
+		parallelFilterThreshold = DEFAULT_PARALLEL_FILTER_THRESHOLD;
+
+		maxHedgeRate = DEFAULT_MAX_HEDGE_RATE;
+
 		this.dynamoDBClient = dynamoDBClient;
 		this.tableName = tableName;
 	}
@@ -127,6 +193,19 @@ public class GeoDataManagerConfiguration {
 		return this;
 	}
 
+	public String getTimestampAttributeName() {
+		return timestampAttributeName;
+	}
+
+	public void setTimestampAttributeName(String timestampAttributeName) {
+		this.timestampAttributeName = timestampAttributeName;
+	}
+
+	public GeoDataManagerConfiguration withTimestampAttributeName(String timestampAttributeName) {
+		setTimestampAttributeName(timestampAttributeName);
+		return this;
+	}
+
 	public String getGeohashIndexName() {
 		return geohashIndexName;
 	}
@@ -153,6 +232,292 @@ public class GeoDataManagerConfiguration {
 		return this;
 	}
 
+	/**
+	 * @return The granularity of hashKeyAttributeName, hashKeyLength and geohashIndexName.
+	 */
+	public HashKeyGranularity getHashKeyGranularity() {
+		return new HashKeyGranularity(hashKeyAttributeName, hashKeyLength, geohashIndexName);
+	}
+
+	/**
+	 * @return The main hash key granularity, followed by the additional ones.
+	 */
+	public List<HashKeyGranularity> getHashKeyGranularities() {
+		List<HashKeyGranularity> hashKeyGranularities = new ArrayList<HashKeyGranularity>();
+		hashKeyGranularities.add(getHashKeyGranularity());
+		hashKeyGranularities.addAll(additionalHashKeyGranularities);
+
+		return hashKeyGranularities;
+	}
+
+	public List<HashKeyGranularity> getAdditionalHashKeyGranularities() {
+		return additionalHashKeyGranularities;
+	}
+
+	/**
+	 * Index every point under more hash key granularities, each with its own hash key attribute and global secondary
+	 * index (see {@link com.amazonaws.geo.util.GeoTableBuilder}). Each query then reads through the granularity that
+	 * needs the fewest Query calls for its area, e.g. a short hash key for metro-sized rectangles and the main one for
+	 * small radius lookups. Every granularity adds an index write to each put.
+	 */
+	public void setAdditionalHashKeyGranularities(List<HashKeyGranularity> additionalHashKeyGranularities) {
+		this.additionalHashKeyGranularities = additionalHashKeyGranularities;
+	}
+
+	public GeoDataManagerConfiguration withAdditionalHashKeyGranularities(
+			List<HashKeyGranularity> additionalHashKeyGranularities) {
+		setAdditionalHashKeyGranularities(additionalHashKeyGranularities);
+		return this;
+	}
+
+	public int getCoveringMaxCells() {
+		return coveringMaxCells;
+	}
+
+	/**
+	 * Set the maximum number of S2 cells used to cover a polygon or corridor query. More cells follow the shape more closely and
+	 * read fewer items outside of it, at the cost of more ranges to query.
+	 */
+	public void setCoveringMaxCells(int coveringMaxCells) {
+		this.coveringMaxCells = coveringMaxCells;
+	}
+
+	public GeoDataManagerConfiguration withCoveringMaxCells(int coveringMaxCells) {
+		setCoveringMaxCells(coveringMaxCells);
+		return this;
+	}
+
+	public GeoTableLayout getTableLayout() {
+		return tableLayout;
+	}
+
+	/**
+	 * Set the key layout of the table. It must match the layout the table was created with, see
+	 * {@link com.amazonaws.geo.util.GeoTableBuilder}.
+	 */
+	public void setTableLayout(GeoTableLayout tableLayout) {
+		this.tableLayout = tableLayout;
+	}
+
+	public GeoDataManagerConfiguration withTableLayout(GeoTableLayout tableLayout) {
+		setTableLayout(tableLayout);
+		return this;
+	}
+
+	public QueryResponseRetention getQueryResponseRetention() {
+		return queryResponseRetention;
+	}
+
+	/**
+	 * Set how much of the raw Amazon DynamoDB output query responses keep. Use {@link QueryResponseRetention#SUMMARY}
+	 * or {@link QueryResponseRetention#NONE} to avoid holding every page, including items filtered out, in memory.
+	 */
+	public void setQueryResponseRetention(QueryResponseRetention queryResponseRetention) {
+		this.queryResponseRetention = queryResponseRetention;
+	}
+
+	public GeoDataManagerConfiguration withQueryResponseRetention(QueryResponseRetention queryResponseRetention) {
+		setQueryResponseRetention(queryResponseRetention);
+		return this;
+	}
+
+	public LocationEncoding getLocationEncoding() {
+		return locationEncoding;
+	}
+
+	/**
+	 * Set how points are stored in the geoJson attribute. {@link LocationEncoding#BINARY} and
+	 * {@link LocationEncoding#SCALED_INTEGER} make items and index projections smaller and need no parsing on read.
+	 * Every encoding is read back, so existing GeoJSON items keep working. The default is
+	 * {@link LocationEncoding#GEOJSON}.
+	 */
+	public void setLocationEncoding(LocationEncoding locationEncoding) {
+		this.locationEncoding = locationEncoding;
+	}
+
+	public GeoDataManagerConfiguration withLocationEncoding(LocationEncoding locationEncoding) {
+		setLocationEncoding(locationEncoding);
+		return this;
+	}
+
+	public int getParallelFilterThreshold() {
+		return parallelFilterThreshold;
+	}
+
+	/**
+	 * Set the number of items from which a page of query results is decoded and filtered in parallel on the common
+	 * fork-join pool rather than on its query thread alone. Use Integer.MAX_VALUE to always filter sequentially. The
+	 * default is 2048.
+	 */
+	public void setParallelFilterThreshold(int parallelFilterThreshold) {
+		this.parallelFilterThreshold = parallelFilterThreshold;
+	}
+
+	public GeoDataManagerConfiguration withParallelFilterThreshold(int parallelFilterThreshold) {
+		setParallelFilterThreshold(parallelFilterThreshold);
+		return this;
+	}
+
+	public double getHedgingPercentile() {
+		return hedgingPercentile;
+	}
+
+	/**
+	 * Set the percentile of recent Query latencies after which a Query call that has not returned is issued a second
+	 * time, the first response being used. For example, 95 hedges the calls slower than 95% of recent calls. Hedging
+	 * cuts the tail latency of queries, which wait for their slowest range, at the cost of the read capacity of the
+	 * duplicate calls. The default is 0, which disables hedging.
+	 */
+	public void setHedgingPercentile(double hedgingPercentile) {
+		this.hedgingPercentile = hedgingPercentile;
+	}
+
+	public GeoDataManagerConfiguration withHedgingPercentile(double hedgingPercentile) {
+		setHedgingPercentile(hedgingPercentile);
+		return this;
+	}
+
+	public double getMaxHedgeRate() {
+		return maxHedgeRate;
+	}
+
+	/**
+	 * Set the largest fraction of Query calls that may be hedged, which bounds the read capacity hedging adds. The
+	 * default is 0.05.
+	 */
+	public void setMaxHedgeRate(double maxHedgeRate) {
+		this.maxHedgeRate = maxHedgeRate;
+	}
+
+	public GeoDataManagerConfiguration withMaxHedgeRate(double maxHedgeRate) {
+		setMaxHedgeRate(maxHedgeRate);
+		return this;
+	}
+
+	public boolean isQueryCoalescing() {
+		return queryCoalescing;
+	}
+
+	/**
+	 * Set whether concurrent queries that read the same geohash range share one read of it. A query that asks for a
+	 * range already being read receives the pages of that read instead of consuming read capacity again. Pages are
+	 * shared only while the read is in flight; nothing is cached. Exists queries, which stop at the first item, are not
+	 * coalesced. The default is false.
+	 */
+	public void setQueryCoalescing(boolean queryCoalescing) {
+		this.queryCoalescing = queryCoalescing;
+	}
+
+	public GeoDataManagerConfiguration withQueryCoalescing(boolean queryCoalescing) {
+		setQueryCoalescing(queryCoalescing);
+		return this;
+	}
+
+	public long getTimeBucketMillis() {
+		return timeBucketMillis;
+	}
+
+	/**
+	 * Set the duration of the time buckets of a time bucketed layout, where points with a timestamp are written to one
+	 * table per bucket, named by {@link #getTimeBucketTableName(long)}, and queries with a time window read only the
+	 * tables of the buckets the window overlaps. The tables must be created ahead of time, e.g. with
+	 * {@link com.amazonaws.geo.util.GeoTableUtil#getCreateTableRequest(GeoDataManagerConfiguration, long)}, and can be
+	 * deleted once expired; a query fails if the table of a bucket it reads is missing. Queries read no bucket after the
+	 * current one, so the table of the next bucket can be created shortly before it starts. A query without a time window reads every bucket within the retention, which must then be
+	 * set. Get, update, delete and move requests address the table of the timestamp they are given, or the table named
+	 * by {@link #getTableName()} without one; queries do not read that table. The default is 0, which writes every
+	 * point to that table.
+	 */
+	public void setTimeBucketMillis(long timeBucketMillis) {
+		this.timeBucketMillis = timeBucketMillis;
+	}
+
+	public GeoDataManagerConfiguration withTimeBucketMillis(long timeBucketMillis) {
+		setTimeBucketMillis(timeBucketMillis);
+		return this;
+	}
+
+	public long getTimeBucketRetentionMillis() {
+		return timeBucketRetentionMillis;
+	}
+
+	/**
+	 * Set how long time buckets are kept. Queries skip the buckets that ended longer ago, whose tables may already be
+	 * deleted. The default is 0, which keeps every bucket.
+	 */
+	public void setTimeBucketRetentionMillis(long timeBucketRetentionMillis) {
+		this.timeBucketRetentionMillis = timeBucketRetentionMillis;
+	}
+
+	public GeoDataManagerConfiguration withTimeBucketRetentionMillis(long timeBucketRetentionMillis) {
+		setTimeBucketRetentionMillis(timeBucketRetentionMillis);
+		return this;
+	}
+
+	/**
+	 * @return The table that holds the points of a timestamp: the table name followed by the number of the time bucket
+	 *         since the epoch, e.g. geo-1958371, or the table name if time buckets are not used.
+	 */
+	public String getTimeBucketTableName(long timestamp) {
+		if (timeBucketMillis <= 0) {
+			return tableName;
+		}
+
+		return tableName + "-" + Math.floorDiv(timestamp, timeBucketMillis);
+	}
+
+	public GeoMetricsPublisher getMetricsPublisher() {
+		return metricsPublisher;
+	}
+
+	/**
+	 * Set a publisher that receives the GeoQueryStats of every query. No statistics are published when it is null,
+	 * which is the default.
+	 */
+	public void setMetricsPublisher(GeoMetricsPublisher metricsPublisher) {
+		this.metricsPublisher = metricsPublisher;
+	}
+
+	public GeoDataManagerConfiguration withMetricsPublisher(GeoMetricsPublisher metricsPublisher) {
+		setMetricsPublisher(metricsPublisher);
+		return this;
+	}
+
+	public GeoTraceListener getTraceListener() {
+		return traceListener;
+	}
+
+	/**
+	 * Set a listener that is invoked around every Amazon DynamoDB call and query phase. No listener is registered by
+	 * default.
+	 */
+	public void setTraceListener(GeoTraceListener traceListener) {
+		this.traceListener = traceListener;
+	}
+
+	public GeoDataManagerConfiguration withTraceListener(GeoTraceListener traceListener) {
+		setTraceListener(traceListener);
+		return this;
+	}
+
+	public GeoReplica getReplica() {
+		return replica;
+	}
+
+	/**
+	 * Set a GeoReplica of the table that answers rectangle and radius queries of GeoDataManager from memory instead
+	 * of Amazon DynamoDB. Other queries and writes still go to Amazon DynamoDB, as do queries with a time window and
+	 * every query of a time bucketed layout. No replica is used by default.
+	 */
+	public void setReplica(GeoReplica replica) {
+		this.replica = replica;
+	}
+
+	public GeoDataManagerConfiguration withReplica(GeoReplica replica) {
+		setReplica(replica);
+		return this;
+	}
+
 	public DynamoDbClient getDynamoDBClient() {
 		return dynamoDBClient;
 	}
@@ -176,4 +541,24 @@ public class GeoDataManagerConfiguration {
 			this.executorService = executorService;
 		}
 	}
+
+	public ExecutorService getHedgingExecutorService() {
+		synchronized (this) {
+			if (hedgingExecutorService == null) {
+				hedgingExecutorService = Executors.newCachedThreadPool();
+			}
+		}
+
+		return hedgingExecutorService;
+	}
+
+	/**
+	 * Set the executor hedged Query calls run on, while the range query waits for the first of them to return. It must
+	 * not be the executor of the range queries. By default a cached thread pool is created on first use.
+	 */
+	public void setHedgingExecutorService(ExecutorService hedgingExecutorService) {
+		synchronized (this) {
+			this.hedgingExecutorService = hedgingExecutorService;
+		}
+	}
 }
@@ -18,19 +18,54 @@ package com.amazonaws.geo.dynamodb.internal;
 import com.amazonaws.geo.GeoDataManagerConfiguration;
 import com.amazonaws.geo.model.*;
 import com.amazonaws.geo.s2.internal.S2Manager;
-import com.amazonaws.geo.util.GeoJsonMapper;
+import com.amazonaws.geo.trace.DynamoDBCallTrace;
+import com.amazonaws.geo.trace.DynamoDBOperation;
+import com.amazonaws.geo.trace.GeoTraceListener;
+import com.amazonaws.geo.util.GeoLocationCodec;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class DynamoDBManager {
+	private static final int MAX_TRANSACT_WRITE_ITEMS = 100;
+
+	/**
+	 * The first page of a query that may stop early holds this many times fewer items than a full page.
+	 */
+	private static final int FIRST_PAGE_FRACTION = 8;
+
 	private final GeoDataManagerConfiguration config;
 
+	private final GeohashDensityEstimator densityEstimator = new GeohashDensityEstimator();
+	private final QueryHedger hedger;
+	private final RangeQueryCoalescer coalescer;
+
 	public DynamoDBManager(GeoDataManagerConfiguration config) {
 		this.config = config;
+
+		if (config.getHedgingPercentile() > 0) {
+			hedger = new QueryHedger(config.getHedgingPercentile(), config.getMaxHedgeRate(),
+					config.getHedgingExecutorService());
+		} else {
+			hedger = null;
+		}
+
+		coalescer = config.isQueryCoalescing() ? new RangeQueryCoalescer() : null;
 	}
 
 	/**
@@ -46,7 +81,234 @@ public class DynamoDBManager {
 	 */
 	public List<QueryResponse> queryGeohash(long hashKey, GeohashRange range) {
 		List<QueryResponse> queryResponses = new ArrayList<>();
-		Map<String, AttributeValue> lastEvaluatedKey = null;
+		queryGeohash(hashKey, range, queryResponses::add);
+
+		return queryResponses;
+	}
+
+	/**
+	 * Query Amazon DynamoDB and hand each page to the consumer as soon as it arrives, so that a caller does not need to
+	 * hold every page of the range in memory.
+	 * 
+	 * @param hashKey
+	 *            Hash key for the query request.
+	 * 
+	 * @param range
+	 *            The range of geohashs to query.
+	 * 
+	 * @param pageConsumer
+	 *            Receives the query result one page at a time.
+	 */
+	public void queryGeohash(long hashKey, GeohashRange range, Consumer<QueryResponse> pageConsumer) {
+		queryGeohash(config.getHashKeyGranularity(), hashKey, range, null, null, pageConsumer);
+	}
+
+	/**
+	 * Query Amazon DynamoDB through the index of a hash key granularity and hand each page to the consumer as soon as
+	 * it arrives.
+	 * 
+	 * @param granularity
+	 *            Hash key granularity the hash key belongs to.
+	 * 
+	 * @param hashKey
+	 *            Hash key for the query request.
+	 * 
+	 * @param range
+	 *            The range of geohashs to query.
+	 * 
+	 * @param timeBucket
+	 *            Time bucket table to query, or null to query the table of the configuration.
+	 * 
+	 * @param stats
+	 *            Receives the number of hedged queries, or null.
+	 * 
+	 * @param pageConsumer
+	 *            Receives the query result one page at a time.
+	 */
+	public void queryGeohash(HashKeyGranularity granularity, long hashKey, GeohashRange range, TimeBucket timeBucket,
+			GeoQueryStats stats, Consumer<QueryResponse> pageConsumer) {
+		queryGeohash(granularity, hashKey, range, null, timeBucket, stats, pageConsumer);
+	}
+
+	/**
+	 * Query Amazon DynamoDB and hand each page to the consumer until it asks to stop. If the range is expected to hold
+	 * more than a fraction of a page, the first page is limited to that fraction, and each page doubles the limit up to
+	 * a full page, so that a consumer that stops at its first page does not pay for a full one.
+	 * 
+	 * @param granularity
+	 *            Hash key granularity the hash key belongs to.
+	 * 
+	 * @param hashKey
+	 *            Hash key for the query request.
+	 * 
+	 * @param range
+	 *            The range of geohashs to query.
+	 * 
+	 * @param timeBucket
+	 *            Time bucket table to query, or null to query the table of the configuration.
+	 * 
+	 * @param stats
+	 *            Receives the number of hedged queries, or null.
+	 * 
+	 * @param pageConsumer
+	 *            Receives the query result one page at a time, and returns false to stop reading further pages.
+	 */
+	public void queryGeohashWhile(HashKeyGranularity granularity, long hashKey, GeohashRange range,
+			TimeBucket timeBucket, GeoQueryStats stats, Predicate<QueryResponse> pageConsumer) {
+		Integer firstPageLimit = getFirstPageLimit(granularity, hashKey, range, timeBucket);
+		queryGeohash(granularity, hashKey, range, null, firstPageLimit, true, timeBucket, null, stats, pageConsumer);
+	}
+
+	/**
+	 * Count the items of a geohash range with Select.COUNT queries. Amazon DynamoDB returns only the number of matching
+	 * items, so the pages are small, but the read capacity consumed is the same as reading the items.
+	 * 
+	 * @param granularity
+	 *            Hash key granularity the hash key belongs to.
+	 * 
+	 * @param hashKey
+	 *            Hash key for the query request.
+	 * 
+	 * @param range
+	 *            The range of geohashs to count.
+	 * 
+	 * @param timeBucket
+	 *            Time bucket table to count, or null to count the table of the configuration.
+	 * 
+	 * @param stats
+	 *            Receives the number of hedged queries, or null.
+	 * 
+	 * @param pageConsumer
+	 *            Receives the query result one page at a time. Each page holds a count and no items.
+	 */
+	public void countGeohash(HashKeyGranularity granularity, long hashKey, GeohashRange range, TimeBucket timeBucket,
+			GeoQueryStats stats, Consumer<QueryResponse> pageConsumer) {
+		queryGeohash(granularity, hashKey, range, Select.COUNT, timeBucket, stats, pageConsumer);
+	}
+
+	/**
+	 * Check whether a geohash range holds any item, with a single Select.COUNT query that evaluates at most one item.
+	 * In a partial time bucket, where Amazon DynamoDB filters the items on their timestamp, the range is counted page
+	 * by page instead, until a page counts an item, with pages that grow as in
+	 * {@link #queryGeohashWhile(HashKeyGranularity, long, GeohashRange, TimeBucket, GeoQueryStats, Predicate)}.
+	 * 
+	 * @param granularity
+	 *            Hash key granularity the hash key belongs to.
+	 * 
+	 * @param hashKey
+	 *            Hash key for the query request.
+	 * 
+	 * @param range
+	 *            The range of geohashs to check.
+	 * 
+	 * @param timeBucket
+	 *            Time bucket table to check, or null to check the table of the configuration.
+	 * 
+	 * @param stats
+	 *            Receives the number of hedged queries, or null.
+	 * 
+	 * @param pageConsumer
+	 *            Receives the query result one page at a time, and returns false to stop reading further pages. Each
+	 *            page holds a count and no items; no page is read after one that counts an item.
+	 */
+	public void existsGeohash(HashKeyGranularity granularity, long hashKey, GeohashRange range, TimeBucket timeBucket,
+			GeoQueryStats stats, Predicate<QueryResponse> pageConsumer) {
+		Predicate<QueryResponse> countConsumer = page -> pageConsumer.test(page) && page.count() == 0;
+		if (timeBucket != null && timeBucket.isPartial()) {
+			queryGeohash(granularity, hashKey, range, Select.COUNT, getFirstPageLimit(granularity, hashKey, range,
+					timeBucket), true, timeBucket, null, stats, countConsumer);
+		} else {
+			queryGeohash(granularity, hashKey, range, Select.COUNT, 1, false, timeBucket, null, stats, countConsumer);
+		}
+	}
+
+	/**
+	 * Estimate how many pages a query of a geohash range will take, from the ranges of the same hash key read before.
+	 * 
+	 * @param tableName
+	 *            Table the range is read from.
+	 * 
+	 * @param granularity
+	 *            Hash key granularity the hash key belongs to.
+	 * 
+	 * @param hashKey
+	 *            Hash key of the range.
+	 * 
+	 * @param range
+	 *            The range of geohashs to query.
+	 * 
+	 * @return Expected number of pages, or 1 if the hash key has not been read yet.
+	 */
+	public int estimatePageCount(String tableName, HashKeyGranularity granularity, long hashKey, GeohashRange range) {
+		return densityEstimator.estimatePageCount(tableName, granularity.getIndexName(), hashKey, range);
+	}
+
+	/**
+	 * @return The limit of the first page of a query that may stop early, or null for a full page if the range is not
+	 *         expected to hold more than the limit, or nothing is known of it yet.
+	 */
+	private Integer getFirstPageLimit(HashKeyGranularity granularity, long hashKey, GeohashRange range,
+			TimeBucket timeBucket) {
+		String tableName = timeBucket != null ? timeBucket.getTableName() : config.getTableName();
+		Double itemsPerPage = densityEstimator.estimateItemsPerPage(tableName, granularity.getIndexName());
+		Double itemCount = densityEstimator.estimateItemCount(tableName, granularity.getIndexName(), hashKey, range);
+		if (itemsPerPage == null || itemCount == null) {
+			return null;
+		}
+
+		int firstPageLimit = (int) Math.ceil(itemsPerPage / FIRST_PAGE_FRACTION);
+		return itemCount > firstPageLimit ? firstPageLimit : null;
+	}
+
+	/**
+	 * Read every page of a range query, sharing the pages with the concurrent reads of the same range if query
+	 * coalescing is enabled.
+	 */
+	private void queryGeohash(HashKeyGranularity granularity, long hashKey, GeohashRange range, Select select,
+			TimeBucket timeBucket, GeoQueryStats stats, Consumer<QueryResponse> pageConsumer) {
+		BiConsumer<Map<String, AttributeValue>, Consumer<QueryResponse>> reader = (exclusiveStartKey, consumer) -> {
+			Predicate<QueryResponse> everyPage = page -> {
+				consumer.accept(page);
+				return true;
+			};
+			queryGeohash(granularity, hashKey, range, select, null, false, timeBucket, exclusiveStartKey, stats,
+					everyPage);
+		};
+
+		if (coalescer == null) {
+			reader.accept(null, pageConsumer);
+		} else if (coalescer.query(granularity.getIndexName(), hashKey, range, select, timeBucket, pageConsumer,
+				reader) && stats != null) {
+			stats.addCoalescedQuery();
+		}
+	}
+
+	/**
+	 * Page through a range query. The items read from the start of the range teach the GeohashDensityEstimator the
+	 * density of the hash key, unless a partial time bucket filters them.
+	 * 
+	 * The limit applies to every page, or to the first one if it grows: each page then doubles it, and pages are full
+	 * from FIRST_PAGE_FRACTION times the first limit.
+	 * 
+	 * A range query whose thread is interrupted, e.g. because a sibling range query failed or the caller gave up,
+	 * reads no further page and throws an AbortedException. A read shared by the RangeQueryCoalescer then counts as
+	 * failed, so the callers that joined it read the rest of the range alone.
+	 */
+	private void queryGeohash(HashKeyGranularity granularity, long hashKey, GeohashRange range, Select select,
+			Integer limit, boolean growingLimit, TimeBucket timeBucket, Map<String, AttributeValue> exclusiveStartKey,
+			GeoQueryStats stats, Predicate<QueryResponse> pageConsumer) {
+		String tableName = timeBucket != null ? timeBucket.getTableName() : config.getTableName();
+		Map<String, Condition> queryFilter = null;
+		if (timeBucket != null && timeBucket.isPartial()) {
+			Condition timestampCondition = Condition.builder().comparisonOperator(ComparisonOperator.BETWEEN)
+				.attributeValueList(AttributeValue.builder().n(Long.toString(timeBucket.getMinTimestamp())).build(),
+						AttributeValue.builder().n(Long.toString(timeBucket.getMaxTimestamp())).build()).build();
+			queryFilter = Map.of(config.getTimestampAttributeName(), timestampCondition);
+		}
+
+		Map<String, AttributeValue> lastEvaluatedKey = exclusiveStartKey;
+		long itemCount = 0;
+		Integer pageLimit = limit;
 
 		do {
 			Map<String, Condition> keyConditions = new HashMap<>();
@@ -54,7 +316,7 @@ public class DynamoDBManager {
 			Condition hashKeyCondition = Condition.builder()
 				.comparisonOperator(ComparisonOperator.EQ)
 				.attributeValueList(AttributeValue.builder().n(String.valueOf(hashKey)).build()).build();
-			keyConditions.put(config.getHashKeyAttributeName(), hashKeyCondition);
+			keyConditions.put(granularity.getHashKeyAttributeName(), hashKeyCondition);
 
 			AttributeValue minRange = AttributeValue.builder().n(Long.toString(range.getRangeMin())).build();
 			AttributeValue maxRange = AttributeValue.builder().n(Long.toString(range.getRangeMax())).build();
@@ -64,21 +326,72 @@ public class DynamoDBManager {
 			keyConditions.put(config.getGeohashAttributeName(), geohashCondition);
 
 			QueryRequest queryRequest = QueryRequest.builder()
-				.tableName(config.getTableName())
+				.tableName(tableName)
 				.keyConditions(keyConditions)
-				.indexName(config.getGeohashIndexName())
+				.queryFilter(queryFilter)
+				.indexName(granularity.getIndexName())
 				.consistentRead(false)
+				.select(select)
+				.limit(pageLimit)
 				.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
 				.exclusiveStartKey(lastEvaluatedKey).build();
 
-			QueryResponse queryResponse = config.getDynamoDBClient().query(queryRequest);
-			queryResponses.add(queryResponse);
-
+			QueryResponse queryResponse = query(granularity, hashKey, range, queryRequest, stats);
+			itemCount += queryResponse.count();
 			lastEvaluatedKey = queryResponse.hasLastEvaluatedKey() ? queryResponse.lastEvaluatedKey() : null;
+			if (pageLimit == null && queryFilter == null && lastEvaluatedKey != null) {
+				densityEstimator.recordFullPage(tableName, granularity.getIndexName(), queryResponse.count());
+			}
+			if (!pageConsumer.test(queryResponse)) {
+				break;
+			}
+			if (lastEvaluatedKey != null && Thread.currentThread().isInterrupted()) {
+				throw AbortedException.builder().message("Interrupted while reading a geohash range").build();
+			}
+			if (growingLimit && pageLimit != null) {
+				pageLimit = pageLimit * 2 < limit * FIRST_PAGE_FRACTION ? pageLimit * 2 : null;
+			}
 
 		} while (lastEvaluatedKey != null);
 
-		return queryResponses;
+		if (exclusiveStartKey == null && queryFilter == null) {
+			recordDensity(tableName, granularity, hashKey, range, itemCount, lastEvaluatedKey);
+		}
+	}
+
+	/**
+	 * Make a Query call, hedged if hedging is enabled.
+	 */
+	private QueryResponse query(HashKeyGranularity granularity, long hashKey, GeohashRange range,
+			QueryRequest queryRequest, GeoQueryStats stats) {
+		Supplier<QueryResponse> call = () -> call(DynamoDBOperation.QUERY, queryRequest.tableName(),
+				granularity.getIndexName(), hashKey, range, queryRequest, config.getDynamoDBClient()::query);
+		if (hedger == null) {
+			return call.get();
+		}
+
+		return hedger.call(call, () -> {
+			if (stats != null) {
+				stats.addHedgedQuery();
+			}
+		});
+	}
+
+	/**
+	 * Record how many items a range query read, up to the end of the range or to the last key evaluated.
+	 */
+	private void recordDensity(String tableName, HashKeyGranularity granularity, long hashKey, GeohashRange range,
+			long itemCount, Map<String, AttributeValue> lastEvaluatedKey) {
+		long lastGeohash = range.getRangeMax();
+		if (lastEvaluatedKey != null) {
+			AttributeValue geohashValue = lastEvaluatedKey.get(config.getGeohashAttributeName());
+			if (geohashValue == null || geohashValue.n() == null) {
+				return;
+			}
+			lastGeohash = Long.parseLong(geohashValue.n());
+		}
+
+		densityEstimator.recordRange(tableName, granularity.getIndexName(), hashKey, range, itemCount, lastGeohash);
 	}
 
 	public GetPointResponse getPoint(GetPointRequest getPointRequest) {
@@ -86,10 +399,10 @@ public class DynamoDBManager {
 		long hashKey = S2Manager.generateHashKey(geohash, config.getHashKeyLength());
 		AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(hashKey)).build();
 		GetItemRequest getItemRequest = GetItemRequest.builder()
-			.tableName(config.getTableName())
-			.key(Map.of(config.getHashKeyAttributeName(), hashKeyValue,
-				config.getRangeKeyAttributeName(), getPointRequest.getRangeKeyValue())).build();
-		GetItemResponse getItemResponse = config.getDynamoDBClient().getItem(getItemRequest);
+			.tableName(getTableName(getPointRequest.getTimestamp()))
+			.key(getPrimaryKey(hashKeyValue, getPointRequest.getRangeKeyValue())).build();
+		GetItemResponse getItemResponse = call(DynamoDBOperation.GET_ITEM, getItemRequest.tableName(), null, hashKey,
+				null, getItemRequest, config.getDynamoDBClient()::getItem);
 
         return new GetPointResponse(getItemResponse);
 	}
@@ -97,48 +410,44 @@ public class DynamoDBManager {
 	public PutPointResponse putPoint(PutPointRequest putPointRequest) {
 		long geohash = S2Manager.generateGeohash(putPointRequest.getGeoPoint());
 		long hashKey = S2Manager.generateHashKey(geohash, config.getHashKeyLength());
-		String geoJson = GeoJsonMapper.stringFromGeoObject(putPointRequest.getGeoPoint());
 
 		AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(hashKey)).build();
 		AttributeValue geohashValue = AttributeValue.builder().n(Long.toString(geohash)).build();
-		AttributeValue geoJsonValue = AttributeValue.builder().s(geoJson).build();
+		AttributeValue locationValue = GeoLocationCodec.encode(putPointRequest.getGeoPoint(),
+				config.getLocationEncoding());
 
 		PutItemRequest putItemRequest = PutItemRequest.builder()
-			.tableName(config.getTableName())
-			.item(Map.of(config.getHashKeyAttributeName(), hashKeyValue,
-		config.getRangeKeyAttributeName(), putPointRequest.getRangeKeyValue(),
-		config.getGeohashAttributeName(), geohashValue,
-		config.getGeoJsonAttributeName(), geoJsonValue))
+			.tableName(getTableName(putPointRequest))
+			.item(getPointItem(putPointRequest, geohash, hashKeyValue, geohashValue, locationValue))
 			.build();
-		PutItemResponse putItemResponse = config.getDynamoDBClient().putItem(putItemRequest);
+		PutItemResponse putItemResponse = call(DynamoDBOperation.PUT_ITEM, putItemRequest.tableName(), null, hashKey,
+				null, putItemRequest, config.getDynamoDBClient()::putItem);
 
         return new PutPointResponse(putItemResponse);
 	}
 	
 	public BatchWritePointResponse batchWritePoints(List<PutPointRequest> putPointRequests) {
-		List<WriteRequest> writeRequests = new ArrayList<>();
+		Map<String, List<WriteRequest>> requestItems = new HashMap<>();
 		for (PutPointRequest putPointRequest : putPointRequests) {
 			long geohash = S2Manager.generateGeohash(putPointRequest.getGeoPoint());
 			long hashKey = S2Manager.generateHashKey(geohash, config.getHashKeyLength());
-			String geoJson = GeoJsonMapper.stringFromGeoObject(putPointRequest.getGeoPoint());
 
 			AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(hashKey)).build();
 			AttributeValue geohashValue = AttributeValue.builder().n(Long.toString(geohash)).build();
-			AttributeValue geoJsonValue = AttributeValue.builder().s(geoJson).build();
+			AttributeValue locationValue = GeoLocationCodec.encode(putPointRequest.getGeoPoint(),
+					config.getLocationEncoding());
 
 			PutRequest putRequest = PutRequest.builder()
-			.item(Map.of(config.getHashKeyAttributeName(), hashKeyValue,
-			config.getRangeKeyAttributeName(), putPointRequest.getRangeKeyValue(),
-			config.getGeohashAttributeName(), geohashValue,
-			config.getGeoJsonAttributeName(), geoJsonValue))
+			.item(getPointItem(putPointRequest, geohash, hashKeyValue, geohashValue, locationValue))
 			.build();
 			WriteRequest writeRequest = WriteRequest.builder().putRequest(putRequest).build();
-			writeRequests.add(writeRequest);
+			requestItems.computeIfAbsent(getTableName(putPointRequest), tableName -> new ArrayList<>())
+				.add(writeRequest);
 		}
-		Map<String, List<WriteRequest>> requestItems = new HashMap<>();
-		requestItems.put(config.getTableName(), writeRequests);
 		BatchWriteItemRequest batchItemRequest = BatchWriteItemRequest.builder().requestItems(requestItems).build();
-		BatchWriteItemResponse batchWriteItemResponse = config.getDynamoDBClient().batchWriteItem(batchItemRequest);
+		BatchWriteItemResponse batchWriteItemResponse = call(DynamoDBOperation.BATCH_WRITE_ITEM,
+				getTableName(requestItems.keySet()), null, null, null, batchItemRequest,
+				config.getDynamoDBClient()::batchWriteItem);
         return new BatchWritePointResponse(batchWriteItemResponse);
 	}
 
@@ -156,14 +465,15 @@ public class DynamoDBManager {
 		}
 
 		AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(hashKey)).build();
-		UpdateItemRequest updateItemRequest = UpdateItemRequest.builder().tableName(config.getTableName())
-		.key(Map.of(config.getHashKeyAttributeName(), hashKeyValue,
-		config.getRangeKeyAttributeName(), updatePointRequest.getRangeKeyValue()))
+		UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
+			.tableName(getTableName(updatePointRequest.getTimestamp()))
+			.key(getPrimaryKey(hashKeyValue, updatePointRequest.getRangeKeyValue()))
 			.attributeUpdates(updatedItems)
 			.build();
 
 
-		UpdateItemResponse updateItemResponse = config.getDynamoDBClient().updateItem(updateItemRequest);
+		UpdateItemResponse updateItemResponse = call(DynamoDBOperation.UPDATE_ITEM, updateItemRequest.tableName(), null,
+				hashKey, null, updateItemRequest, config.getDynamoDBClient()::updateItem);
 
         return new UpdatePointResponse(updateItemResponse);
 	}
@@ -174,13 +484,454 @@ public class DynamoDBManager {
 
 		AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(hashKey)).build();
 
-		DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder().tableName(config.getTableName())
-			.key(Map.of(config.getHashKeyAttributeName(), hashKeyValue,
-		config.getRangeKeyAttributeName(), deletePointRequest.getRangeKeyValue()))
+		DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder()
+			.tableName(getTableName(deletePointRequest.getTimestamp()))
+			.key(getPrimaryKey(hashKeyValue, deletePointRequest.getRangeKeyValue()))
 			.build();
 
-		DeleteItemResponse deleteItemResponse = config.getDynamoDBClient().deleteItem(deleteItemRequest);
+		DeleteItemResponse deleteItemResponse = call(DynamoDBOperation.DELETE_ITEM, deleteItemRequest.tableName(), null,
+				hashKey, null, deleteItemRequest, config.getDynamoDBClient()::deleteItem);
 
         return new DeletePointResponse(deleteItemResponse);
 	}
+
+	/**
+	 * Move a point. If the hash key does not change, or the table is keyed by range key only, and the point stays in
+	 * the same time bucket, the point attributes are updated in place with UpdateItem. Otherwise the old item is read
+	 * and deleted, and the new one put with the other attributes of the old item, in the same TransactWriteItems call,
+	 * so that readers never see the point twice or not at all.
+	 * 
+	 * Every write is conditioned on the old item existing, so moving a point that does not exist fails instead of
+	 * creating it: with a ConditionalCheckFailedException, or a TransactionCanceledException for a transaction.
+	 */
+	public MovePointResponse movePoint(MovePointRequest movePointRequest) {
+		long oldHashKey = S2Manager.generateHashKey(S2Manager.generateGeohash(movePointRequest.getOldGeoPoint()),
+				config.getHashKeyLength());
+		long newHashKey = S2Manager.generateHashKey(S2Manager.generateGeohash(movePointRequest.getNewGeoPoint()),
+				config.getHashKeyLength());
+
+		if (isInPlaceMove(movePointRequest, oldHashKey, newHashKey)) {
+			AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(oldHashKey)).build();
+			Update update = getMoveUpdate(movePointRequest, getPrimaryKey(hashKeyValue,
+					movePointRequest.getRangeKeyValue()));
+			UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
+				.tableName(update.tableName())
+				.key(update.key())
+				.updateExpression(update.updateExpression())
+				.conditionExpression(update.conditionExpression())
+				.expressionAttributeNames(update.expressionAttributeNames())
+				.expressionAttributeValues(update.expressionAttributeValues())
+				.build();
+			UpdateItemResponse updateItemResponse = call(DynamoDBOperation.UPDATE_ITEM, updateItemRequest.tableName(),
+					null, oldHashKey, null, updateItemRequest, config.getDynamoDBClient()::updateItem);
+
+			return new MovePointResponse(updateItemResponse);
+		}
+
+		return new MovePointResponse(transactWriteItems(getMoveItems(movePointRequest)));
+	}
+
+	/**
+	 * Move a list of points with as few TransactWriteItems calls as possible. Each move is atomic on its own; moves
+	 * are packed into transactions of at most 100 actions, so a failed call rolls back the other moves of its
+	 * transaction too. A point may be moved only once per call.
+	 */
+	public BatchMovePointResponse batchMovePoints(List<MovePointRequest> movePointRequests) {
+		List<TransactWriteItemsResponse> transactWriteItemsResponses = new ArrayList<>();
+		List<TransactWriteItem> transactItems = new ArrayList<>();
+		for (MovePointRequest movePointRequest : movePointRequests) {
+			List<TransactWriteItem> moveItems = getMoveItems(movePointRequest);
+			if (transactItems.size() + moveItems.size() > MAX_TRANSACT_WRITE_ITEMS) {
+				transactWriteItemsResponses.add(transactWriteItems(transactItems));
+				transactItems = new ArrayList<>();
+			}
+			transactItems.addAll(moveItems);
+		}
+		if (!transactItems.isEmpty()) {
+			transactWriteItemsResponses.add(transactWriteItems(transactItems));
+		}
+
+		return new BatchMovePointResponse(transactWriteItemsResponses);
+	}
+
+	private TransactWriteItemsResponse transactWriteItems(List<TransactWriteItem> transactItems) {
+		TransactWriteItemsRequest transactWriteItemsRequest = TransactWriteItemsRequest.builder()
+			.transactItems(transactItems).build();
+
+		Set<String> tableNames = new HashSet<>();
+		for (TransactWriteItem transactItem : transactItems) {
+			if (transactItem.put() != null) {
+				tableNames.add(transactItem.put().tableName());
+			} else if (transactItem.delete() != null) {
+				tableNames.add(transactItem.delete().tableName());
+			} else {
+				tableNames.add(transactItem.update().tableName());
+			}
+		}
+
+		return call(DynamoDBOperation.TRANSACT_WRITE_ITEMS, getTableName(tableNames), null, null, null,
+				transactWriteItemsRequest, config.getDynamoDBClient()::transactWriteItems);
+	}
+
+	/**
+	 * @return The table a call writes to, or null if it writes to more than one.
+	 */
+	private static String getTableName(Set<String> tableNames) {
+		return tableNames.size() == 1 ? tableNames.iterator().next() : null;
+	}
+
+	/**
+	 * Build the transaction actions of a move: an Update if the item stays in place, otherwise a Delete of the old
+	 * item and a Put of the new one. The new item is the old item, read with a strongly consistent GetItem, with the
+	 * point attributes of the new location.
+	 */
+	private List<TransactWriteItem> getMoveItems(MovePointRequest movePointRequest) {
+		long oldHashKey = S2Manager.generateHashKey(S2Manager.generateGeohash(movePointRequest.getOldGeoPoint()),
+				config.getHashKeyLength());
+		long newGeohash = S2Manager.generateGeohash(movePointRequest.getNewGeoPoint());
+		long newHashKey = S2Manager.generateHashKey(newGeohash, config.getHashKeyLength());
+		AttributeValue oldHashKeyValue = AttributeValue.builder().n(String.valueOf(oldHashKey)).build();
+		Map<String, AttributeValue> oldKey = getPrimaryKey(oldHashKeyValue, movePointRequest.getRangeKeyValue());
+
+		if (isInPlaceMove(movePointRequest, oldHashKey, newHashKey)) {
+			return List.of(TransactWriteItem.builder().update(getMoveUpdate(movePointRequest, oldKey)).build());
+		}
+
+		String oldTableName = getTableName(movePointRequest.getTimestamp());
+		Map<String, AttributeValue> oldItem = getItemToMove(oldTableName, oldKey, oldHashKey);
+		Map<String, AttributeValue> newItem = new HashMap<>(oldItem);
+		newItem.putAll(getPointItem(movePointRequest));
+
+		Put put = Put.builder().tableName(getTableName(movePointRequest.getNewTimestamp())).item(newItem).build();
+
+		return List.of(TransactWriteItem.builder().delete(getMoveDelete(oldTableName, oldKey, oldItem)).build(),
+				TransactWriteItem.builder().put(put).build());
+	}
+
+	/**
+	 * Build the Update of a move that keeps the item. It sets the point attributes on condition that the item exists.
+	 */
+	private Update getMoveUpdate(MovePointRequest movePointRequest, Map<String, AttributeValue> key) {
+		StringBuilder updateExpression = new StringBuilder();
+		Map<String, String> expressionAttributeNames = new HashMap<>();
+		Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+		expressionAttributeNames.put("#k", config.getRangeKeyAttributeName());
+		for (Map.Entry<String, AttributeValue> attribute : getMovedAttributes(movePointRequest).entrySet()) {
+			int i = expressionAttributeValues.size();
+			updateExpression.append(i == 0 ? "SET " : ", ").append("#a").append(i).append(" = :v").append(i);
+			expressionAttributeNames.put("#a" + i, attribute.getKey());
+			expressionAttributeValues.put(":v" + i, attribute.getValue());
+		}
+
+		return Update.builder().tableName(getTableName(movePointRequest.getTimestamp())).key(key)
+			.updateExpression(updateExpression.toString())
+			.conditionExpression("attribute_exists(#k)")
+			.expressionAttributeNames(expressionAttributeNames)
+			.expressionAttributeValues(expressionAttributeValues).build();
+	}
+
+	/**
+	 * Build the Delete of a move that replaces the item. It is conditioned on the item existing and on its scalar and
+	 * set attributes being the ones read, so that a concurrent write of the item cancels the move rather than being
+	 * lost. List and map attributes are not compared.
+	 */
+	private Delete getMoveDelete(String tableName, Map<String, AttributeValue> key, Map<String, AttributeValue> item) {
+		StringBuilder conditionExpression = new StringBuilder("attribute_exists(#k)");
+		Map<String, String> expressionAttributeNames = new HashMap<>();
+		Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+		expressionAttributeNames.put("#k", config.getRangeKeyAttributeName());
+		for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+			AttributeValue value = attribute.getValue();
+			if (key.containsKey(attribute.getKey()) || value.hasL() || value.hasM()) {
+				continue;
+			}
+
+			int i = expressionAttributeValues.size();
+			conditionExpression.append(" AND #a").append(i).append(" = :v").append(i);
+			expressionAttributeNames.put("#a" + i, attribute.getKey());
+			expressionAttributeValues.put(":v" + i, value);
+		}
+
+		return Delete.builder().tableName(tableName).key(key)
+			.conditionExpression(conditionExpression.toString())
+			.expressionAttributeNames(expressionAttributeNames)
+			.expressionAttributeValues(expressionAttributeValues.isEmpty() ? null : expressionAttributeValues)
+			.build();
+	}
+
+	/**
+	 * Read the item a move replaces, with a strongly consistent read.
+	 */
+	private Map<String, AttributeValue> getItemToMove(String tableName, Map<String, AttributeValue> key, long hashKey) {
+		GetItemRequest getItemRequest = GetItemRequest.builder().tableName(tableName).key(key).consistentRead(true)
+			.build();
+		GetItemResponse getItemResponse = call(DynamoDBOperation.GET_ITEM, tableName, null, hashKey, null,
+				getItemRequest, config.getDynamoDBClient()::getItem);
+		if (!getItemResponse.hasItem() || getItemResponse.item().isEmpty()) {
+			throw ConditionalCheckFailedException.builder().message("The point to move does not exist.").build();
+		}
+
+		return getItemResponse.item();
+	}
+
+	/**
+	 * A move keeps the item if the point stays in the same table and the hash key does not change, or the table is
+	 * keyed by range key only.
+	 */
+	private boolean isInPlaceMove(MovePointRequest movePointRequest, long oldHashKey, long newHashKey) {
+		if (!getTableName(movePointRequest.getTimestamp()).equals(getTableName(movePointRequest.getNewTimestamp()))) {
+			return false;
+		}
+
+		return oldHashKey == newHashKey || config.getTableLayout() == GeoTableLayout.GLOBAL_INDEX;
+	}
+
+	/**
+	 * Build the item of a point at its new location, with its new timestamp if it has one.
+	 */
+	private Map<String, AttributeValue> getPointItem(MovePointRequest movePointRequest) {
+		long geohash = S2Manager.generateGeohash(movePointRequest.getNewGeoPoint());
+		long hashKey = S2Manager.generateHashKey(geohash, config.getHashKeyLength());
+
+		AttributeValue hashKeyValue = AttributeValue.builder().n(String.valueOf(hashKey)).build();
+		AttributeValue geohashValue = AttributeValue.builder().n(Long.toString(geohash)).build();
+		AttributeValue locationValue = GeoLocationCodec.encode(movePointRequest.getNewGeoPoint(),
+				config.getLocationEncoding());
+
+		Map<String, AttributeValue> item = getPointItem(geohash, hashKeyValue, movePointRequest.getRangeKeyValue(),
+				geohashValue, locationValue);
+		if (movePointRequest.getNewTimestamp() != null) {
+			item.put(config.getTimestampAttributeName(),
+					AttributeValue.builder().n(Long.toString(movePointRequest.getNewTimestamp())).build());
+		}
+
+		return item;
+	}
+
+	/**
+	 * The attributes a move updates in place: every point attribute that is not part of the primary key.
+	 */
+	private Map<String, AttributeValue> getMovedAttributes(MovePointRequest movePointRequest) {
+		Map<String, AttributeValue> item = getPointItem(movePointRequest);
+		AttributeValue hashKeyValue = item.get(config.getHashKeyAttributeName());
+		item.keySet().removeAll(getPrimaryKey(hashKeyValue, movePointRequest.getRangeKeyValue()).keySet());
+
+		return item;
+	}
+
+	/**
+	 * Build the item a put point request writes, with its timestamp if it has one.
+	 */
+	private Map<String, AttributeValue> getPointItem(PutPointRequest putPointRequest, long geohash,
+			AttributeValue hashKeyValue, AttributeValue geohashValue, AttributeValue locationValue) {
+		Map<String, AttributeValue> item = getPointItem(geohash, hashKeyValue, putPointRequest.getRangeKeyValue(),
+				geohashValue, locationValue);
+		if (putPointRequest.getTimestamp() != null) {
+			item.put(config.getTimestampAttributeName(),
+					AttributeValue.builder().n(Long.toString(putPointRequest.getTimestamp())).build());
+		}
+
+		return item;
+	}
+
+	/**
+	 * Build the item of a point, with a hash key attribute for every additional hash key granularity.
+	 */
+	private Map<String, AttributeValue> getPointItem(long geohash, AttributeValue hashKeyValue,
+			AttributeValue rangeKeyValue, AttributeValue geohashValue, AttributeValue locationValue) {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put(config.getHashKeyAttributeName(), hashKeyValue);
+		item.put(config.getRangeKeyAttributeName(), rangeKeyValue);
+		item.put(config.getGeohashAttributeName(), geohashValue);
+		item.put(config.getGeoJsonAttributeName(), locationValue);
+
+		for (HashKeyGranularity granularity : config.getAdditionalHashKeyGranularities()) {
+			long hashKey = S2Manager.generateHashKey(geohash, granularity.getHashKeyLength());
+			item.put(granularity.getHashKeyAttributeName(), AttributeValue.builder().n(String.valueOf(hashKey)).build());
+		}
+
+		return item;
+	}
+
+	/**
+	 * @return The table a put point request writes to: the table of its time bucket if it has a timestamp.
+	 */
+	public String getTableName(PutPointRequest putPointRequest) {
+		return getTableName(putPointRequest.getTimestamp());
+	}
+
+	/**
+	 * @return The table of the points with a timestamp: the table of its time bucket, or the table of the
+	 *         configuration if there is no timestamp.
+	 */
+	private String getTableName(Long timestamp) {
+		if (timestamp == null) {
+			return config.getTableName();
+		}
+
+		return config.getTimeBucketTableName(timestamp);
+	}
+
+	/**
+	 * Build the primary key of the item a put point request writes.
+	 */
+	public Map<String, AttributeValue> getPrimaryKey(PutPointRequest putPointRequest) {
+		long hashKey = S2Manager.generateHashKey(S2Manager.generateGeohash(putPointRequest.getGeoPoint()),
+				config.getHashKeyLength());
+
+		return getPrimaryKey(AttributeValue.builder().n(String.valueOf(hashKey)).build(),
+				putPointRequest.getRangeKeyValue());
+	}
+
+	/**
+	 * Extract the primary key of a point item.
+	 */
+	public Map<String, AttributeValue> getPrimaryKey(Map<String, AttributeValue> item) {
+		return getPrimaryKey(item.get(config.getHashKeyAttributeName()), item.get(config.getRangeKeyAttributeName()));
+	}
+
+	/**
+	 * Build the primary key of an item. With the global index layout the table is keyed by range key only.
+	 */
+	private Map<String, AttributeValue> getPrimaryKey(AttributeValue hashKeyValue, AttributeValue rangeKeyValue) {
+		if (config.getTableLayout() == GeoTableLayout.GLOBAL_INDEX) {
+			return Map.of(config.getRangeKeyAttributeName(), rangeKeyValue);
+		}
+
+		return Map.of(config.getHashKeyAttributeName(), hashKeyValue, config.getRangeKeyAttributeName(), rangeKeyValue);
+	}
+
+	/**
+	 * Send a request to Amazon DynamoDB, notifying the GeoTraceListener before and after the call if one is
+	 * registered. Without a listener the request is sent as is.
+	 * 
+	 * @param operation
+	 *            The Amazon DynamoDB operation.
+	 * 
+	 * @param tableName
+	 *            The table the request targets, or null if it targets more than one.
+	 * 
+	 * @param indexName
+	 *            The index the request targets, or null for the table.
+	 * 
+	 * @param hashKey
+	 *            The hash key the request targets, or null if it targets more than one.
+	 * 
+	 * @param range
+	 *            The geohash range the request targets, or null.
+	 * 
+	 * @param request
+	 *            The request to send.
+	 * 
+	 * @param client
+	 *            The client method that sends the request.
+	 * 
+	 * @return The response of the call.
+	 */
+	private <Q extends DynamoDbRequest, R extends DynamoDbResponse> R call(DynamoDBOperation operation,
+			String tableName, String indexName, Long hashKey, GeohashRange range, Q request, Function<Q, R> client) {
+		GeoTraceListener listener = config.getTraceListener();
+		if (listener == null) {
+			return client.apply(request);
+		}
+
+		DynamoDBCallTrace trace = new DynamoDBCallTrace(operation, tableName, indexName, hashKey,
+				range != null ? range.getRangeMin() : null, range != null ? range.getRangeMax() : null);
+		Q tracedRequest = prepareTracedRequest(request, trace);
+
+		listener.beforeDynamoDBCall(trace);
+		long startNanos = System.nanoTime();
+		try {
+			R response = client.apply(tracedRequest);
+			trace.setConsumedCapacityUnits(getConsumedCapacityUnits(response));
+
+			return response;
+		} catch (RuntimeException e) {
+			trace.setThrowable(e);
+			throw e;
+		} finally {
+			trace.setLatencyNanos(System.nanoTime() - startNanos);
+			listener.afterDynamoDBCall(trace);
+		}
+	}
+
+	/**
+	 * Ask Amazon DynamoDB to return the consumed capacity and attach a request level MetricPublisher that copies the
+	 * retry count the AWS SDK reports into the trace.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <Q extends DynamoDbRequest> Q prepareTracedRequest(Q request, DynamoDBCallTrace trace) {
+		AwsRequestOverrideConfiguration.Builder overrideConfiguration = request.overrideConfiguration()
+				.map(AwsRequestOverrideConfiguration::toBuilder).orElseGet(AwsRequestOverrideConfiguration::builder);
+		overrideConfiguration.addMetricPublisher(new MetricPublisher() {
+			@Override
+			public void publish(MetricCollection metricCollection) {
+				List<Integer> retryCounts = metricCollection.metricValues(CoreMetric.RETRY_COUNT);
+				if (!retryCounts.isEmpty()) {
+					trace.setRetryCount(retryCounts.get(0));
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+
+		if (request instanceof GetItemRequest) {
+			return (Q) ((GetItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+					.overrideConfiguration(overrideConfiguration.build()).build();
+		} else if (request instanceof PutItemRequest) {
+			return (Q) ((PutItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+					.overrideConfiguration(overrideConfiguration.build()).build();
+		} else if (request instanceof UpdateItemRequest) {
+			return (Q) ((UpdateItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+					.overrideConfiguration(overrideConfiguration.build()).build();
+		} else if (request instanceof DeleteItemRequest) {
+			return (Q) ((DeleteItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+					.overrideConfiguration(overrideConfiguration.build()).build();
+		} else if (request instanceof BatchWriteItemRequest) {
+			return (Q) ((BatchWriteItemRequest) request).toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+					.overrideConfiguration(overrideConfiguration.build()).build();
+		} else if (request instanceof TransactWriteItemsRequest) {
+			return (Q) ((TransactWriteItemsRequest) request).toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+					.overrideConfiguration(overrideConfiguration.build()).build();
+		}
+
+		return (Q) request.toBuilder().overrideConfiguration(overrideConfiguration.build()).build();
+	}
+
+	private static double getConsumedCapacityUnits(DynamoDbResponse response) {
+		if (response instanceof QueryResponse) {
+			return getConsumedCapacityUnits(((QueryResponse) response).consumedCapacity());
+		} else if (response instanceof GetItemResponse) {
+			return getConsumedCapacityUnits(((GetItemResponse) response).consumedCapacity());
+		} else if (response instanceof PutItemResponse) {
+			return getConsumedCapacityUnits(((PutItemResponse) response).consumedCapacity());
+		} else if (response instanceof UpdateItemResponse) {
+			return getConsumedCapacityUnits(((UpdateItemResponse) response).consumedCapacity());
+		} else if (response instanceof DeleteItemResponse) {
+			return getConsumedCapacityUnits(((DeleteItemResponse) response).consumedCapacity());
+		} else if (response instanceof BatchWriteItemResponse) {
+			double capacityUnits = 0;
+			for (ConsumedCapacity consumedCapacity : ((BatchWriteItemResponse) response).consumedCapacity()) {
+				capacityUnits += getConsumedCapacityUnits(consumedCapacity);
+			}
+			return capacityUnits;
+		} else if (response instanceof TransactWriteItemsResponse) {
+			double capacityUnits = 0;
+			for (ConsumedCapacity consumedCapacity : ((TransactWriteItemsResponse) response).consumedCapacity()) {
+				capacityUnits += getConsumedCapacityUnits(consumedCapacity);
+			}
+			return capacityUnits;
+		}
+
+		return 0;
+	}
+
+	private static double getConsumedCapacityUnits(ConsumedCapacity consumedCapacity) {
+		return consumedCapacity != null && consumedCapacity.capacityUnits() != null ? consumedCapacity.capacityUnits()
+				: 0;
+	}
 }
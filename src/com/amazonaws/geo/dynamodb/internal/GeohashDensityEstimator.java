@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.internal;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.geo.model.GeohashRange;
+
+/**
+ * Learns from past range queries how many items each hash key holds per geohash, and how many items a 1 MB page holds
+ * on each index, to estimate how many pages a range query will take. Each index of each table is learned apart, as the
+ * tables of a time bucketed layout hold different points under the same hash keys.
+ * 
+ * The memory of the estimator is bounded: the least recently used index is forgotten once MAX_INDEXES are tracked, so
+ * the tables of expired time buckets age out, and the least recently used hash key of an index once MAX_HASH_KEYS are
+ * tracked.
+ * */
+class GeohashDensityEstimator {
+	private static final int MAX_INDEXES = 64;
+	private static final int MAX_HASH_KEYS = 1 << 16;
+
+	private final Map<List<String>, IndexEstimates> indexes = new LruMap<>(MAX_INDEXES);
+
+	/**
+	 * @return The number of pages a query of the range is expected to take, or 1 if nothing is known yet.
+	 */
+	int estimatePageCount(String tableName, String indexName, long hashKey, GeohashRange range) {
+		Double itemCount = estimateItemCount(tableName, indexName, hashKey, range);
+		Double pageItems = estimateItemsPerPage(tableName, indexName);
+		if (itemCount == null || pageItems == null) {
+			return 1;
+		}
+
+		double pageCount = Math.ceil(itemCount / pageItems);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, pageCount));
+	}
+
+	/**
+	 * @return The number of items the range is expected to hold, or null if the hash key has not been read yet.
+	 */
+	Double estimateItemCount(String tableName, String indexName, long hashKey, GeohashRange range) {
+		IndexEstimates estimates = getIndexEstimates(tableName, indexName);
+		Double density;
+		synchronized (estimates) {
+			density = estimates.densities.get(hashKey);
+		}
+
+		return density == null ? null : density * getSpan(range.getRangeMin(), range.getRangeMax());
+	}
+
+	/**
+	 * @return The number of items a page cut at its size limit holds, or null if no such page has been read yet.
+	 */
+	Double estimateItemsPerPage(String tableName, String indexName) {
+		return getIndexEstimates(tableName, indexName).itemsPerPage;
+	}
+
+	/**
+	 * Learn from the items read from a range, from its minimum up to and including the last geohash read.
+	 */
+	void recordRange(String tableName, String indexName, long hashKey, GeohashRange range, long itemCount,
+			long lastGeohash) {
+		double sample = itemCount / getSpan(range.getRangeMin(), lastGeohash);
+
+		IndexEstimates estimates = getIndexEstimates(tableName, indexName);
+		synchronized (estimates) {
+			estimates.densities.merge(hashKey, sample, GeohashDensityEstimator::average);
+		}
+	}
+
+	/**
+	 * Learn from a page that Amazon DynamoDB cut at its size limit.
+	 */
+	void recordFullPage(String tableName, String indexName, int itemCount) {
+		IndexEstimates estimates = getIndexEstimates(tableName, indexName);
+		synchronized (estimates) {
+			Double previous = estimates.itemsPerPage;
+			estimates.itemsPerPage = previous == null ? itemCount : average(previous, (double) itemCount);
+		}
+	}
+
+	private IndexEstimates getIndexEstimates(String tableName, String indexName) {
+		synchronized (indexes) {
+			return indexes.computeIfAbsent(Arrays.asList(tableName, indexName), key -> new IndexEstimates());
+		}
+	}
+
+	private static double getSpan(long rangeMin, long rangeMax) {
+		return (double) rangeMax - (double) rangeMin + 1;
+	}
+
+	private static Double average(Double previous, Double sample) {
+		return (previous + sample) / 2;
+	}
+
+	/**
+	 * What is known of one index of one table. The densities are guarded by the instance.
+	 */
+	private static class IndexEstimates {
+		private final Map<Long, Double> densities = new LruMap<>(MAX_HASH_KEYS);
+		private volatile Double itemsPerPage;
+	}
+
+	/**
+	 * A map in access order that drops its least recently used entry past its capacity.
+	 */
+	private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		LruMap(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkException;
+
+/**
+ * Hedges Query calls: when a call has not returned within the given percentile of the recent Query latencies, the
+ * same call is issued again and whichever returns first is used. Hedges are limited to a fraction of the calls, as
+ * each one consumes read capacity again.
+ * */
+class QueryHedger {
+	/**
+	 * Number of recent latencies the hedge delay is taken from.
+	 */
+	private static final int WINDOW_SIZE = 1024;
+
+	/**
+	 * Number of latencies recorded before the first hedge, and between two updates of the hedge delay.
+	 */
+	private static final int MIN_SAMPLES = 64;
+
+	/**
+	 * Most hedges that can be issued in a row after a quiet period, whatever the hedge rate.
+	 */
+	private static final double MAX_HEDGE_BURST = 10;
+
+	private final double percentile;
+	private final double maxHedgeRate;
+	private final ExecutorService executorService;
+
+	private final long[] latencies = new long[WINDOW_SIZE];
+	private long sampleCount;
+	private long hedgeDelayNanos = -1;
+	private double hedgeBudget;
+
+	/**
+	 * @param percentile
+	 *            Percentile of the recent latencies after which a call is hedged, between 0 and 100.
+	 * 
+	 * @param maxHedgeRate
+	 *            Largest fraction of calls that may be hedged.
+	 * 
+	 * @param executorService
+	 *            Runs the calls, so that the caller can wait for the first one to return. Must not be the executor
+	 *            the callers run on.
+	 */
+	QueryHedger(double percentile, double maxHedgeRate, ExecutorService executorService) {
+		this.percentile = percentile;
+		this.maxHedgeRate = maxHedgeRate;
+		this.executorService = executorService;
+	}
+
+	/**
+	 * Run a call, hedging it if it is slow.
+	 * 
+	 * @param call
+	 *            The call. It is run twice when hedged, possibly concurrently.
+	 * 
+	 * @param onHedge
+	 *            Run when the call is hedged.
+	 * 
+	 * @return The result of the first call that succeeded.
+	 */
+	<R> R call(Supplier<R> call, Runnable onHedge) {
+		long startNanos = System.nanoTime();
+		long delayNanos = getHedgeDelayNanos();
+		if (delayNanos < 0) {
+			// Too few latencies to tell a slow call, the call is made on the calling thread.
+			R result = call.get();
+			recordLatency(System.nanoTime() - startNanos);
+
+			return result;
+		}
+
+		CompletionService<R> completionService = new ExecutorCompletionService<R>(executorService);
+		List<Future<R>> futures = new ArrayList<Future<R>>(2);
+		try {
+			futures.add(completionService.submit(call::get));
+
+			Future<R> done = completionService.poll(delayNanos, TimeUnit.NANOSECONDS);
+			if (done == null) {
+				if (tryAcquireHedge()) {
+					onHedge.run();
+					futures.add(completionService.submit(call::get));
+				}
+				done = completionService.take();
+			}
+
+			// Return the first success. A failure is thrown only once no other call is left.
+			for (int remaining = futures.size() - 1;; remaining--) {
+				try {
+					R result = done.get();
+					recordLatency(System.nanoTime() - startNanos);
+
+					return result;
+				} catch (ExecutionException e) {
+					if (remaining == 0) {
+						throw toRuntimeException(e.getCause());
+					}
+				}
+				done = completionService.take();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw AbortedException.builder().message("Interrupted while waiting for a Query").cause(e).build();
+		} finally {
+			for (Future<R> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private synchronized long getHedgeDelayNanos() {
+		return hedgeDelayNanos;
+	}
+
+	/**
+	 * Record the latency of a call that succeeded, from the start of the original call to the first result. A hedged
+	 * call thus records at least the hedge delay, and the slow calls that were hedged stay in the window instead of
+	 * being replaced by the faster hedges. Every call adds to the hedge budget the fraction of a hedge it allows.
+	 */
+	private synchronized void recordLatency(long nanos) {
+		latencies[(int) (sampleCount++ % WINDOW_SIZE)] = nanos;
+		hedgeBudget = Math.min(MAX_HEDGE_BURST, hedgeBudget + maxHedgeRate);
+
+		if (sampleCount % MIN_SAMPLES == 0) {
+			long[] window = Arrays.copyOf(latencies, (int) Math.min(sampleCount, WINDOW_SIZE));
+			Arrays.sort(window);
+			int index = (int) Math.ceil(percentile / 100 * window.length) - 1;
+			hedgeDelayNanos = window[Math.max(0, Math.min(window.length - 1, index))];
+		}
+	}
+
+	private synchronized boolean tryAcquireHedge() {
+		if (hedgeBudget < 1) {
+			return false;
+		}
+		hedgeBudget--;
+
+		return true;
+	}
+
+	private static RuntimeException toRuntimeException(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		} else {
+			return SdkException.builder().message(cause.getMessage()).cause(cause).build();
+		}
+	}
+}
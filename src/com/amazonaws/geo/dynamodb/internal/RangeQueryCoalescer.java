@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.amazonaws.geo.model.GeohashRange;
+import com.amazonaws.geo.model.TimeBucket;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+/**
+ * Lets concurrent callers reading the same geohash range share one read. The first caller reads the range; callers
+ * that ask for the same range while it is in flight receive the same pages. Nothing is kept once the read is over, so
+ * a later caller always reads the range again.
+ * */
+class RangeQueryCoalescer {
+	private final ConcurrentMap<RangeQueryKey, InFlightQuery> inFlightQueries = new ConcurrentHashMap<>();
+
+	/**
+	 * Read a range, or join the read of the same range in flight.
+	 * 
+	 * @param pageConsumer
+	 *            Receives the query result one page at a time.
+	 * 
+	 * @param reader
+	 *            Reads the range from the given exclusive start key, null for the start of the range, and hands each
+	 *            page to the given consumer.
+	 * 
+	 * @return true if the pages were shared with another caller's read.
+	 */
+	boolean query(String indexName, long hashKey, GeohashRange range, Select select, TimeBucket timeBucket,
+			Consumer<QueryResponse> pageConsumer, BiConsumer<Map<String, AttributeValue>, Consumer<QueryResponse>> reader) {
+		RangeQueryKey key = new RangeQueryKey(indexName, hashKey, range.getRangeMin(), range.getRangeMax(), select,
+				timeBucket);
+		InFlightQuery query = new InFlightQuery();
+
+		InFlightQuery leader = inFlightQueries.putIfAbsent(key, query);
+		if (leader != null) {
+			QueryResponse[] lastPage = new QueryResponse[1];
+			boolean completed = leader.follow(page -> {
+				lastPage[0] = page;
+				pageConsumer.accept(page);
+			});
+
+			if (!completed) {
+				// The leading read failed or was cancelled: read the rest of the range alone.
+				Map<String, AttributeValue> lastEvaluatedKey = null;
+				if (lastPage[0] != null) {
+					if (!lastPage[0].hasLastEvaluatedKey()) {
+						return true;
+					}
+					lastEvaluatedKey = lastPage[0].lastEvaluatedKey();
+				}
+				reader.accept(lastEvaluatedKey, pageConsumer);
+			}
+
+			return true;
+		}
+
+		boolean completed = false;
+		try {
+			reader.accept(null, page -> {
+				query.publish(page);
+				pageConsumer.accept(page);
+			});
+			completed = true;
+		} finally {
+			inFlightQueries.remove(key, query);
+			query.finish(completed);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Pages of a read in flight, kept until the read is over for the callers that join it late.
+	 */
+	private static class InFlightQuery {
+		private final List<QueryResponse> pages = new ArrayList<QueryResponse>();
+		private boolean finished;
+		private boolean completed;
+
+		synchronized void publish(QueryResponse page) {
+			pages.add(page);
+			notifyAll();
+		}
+
+		synchronized void finish(boolean completed) {
+			this.finished = true;
+			this.completed = completed;
+			notifyAll();
+		}
+
+		/**
+		 * Hand every page of the read, past and future, to the consumer.
+		 * 
+		 * @return true if the read completed, false if it failed before its last page.
+		 */
+		boolean follow(Consumer<QueryResponse> pageConsumer) {
+			for (int next = 0;; next++) {
+				QueryResponse page;
+				synchronized (this) {
+					while (next == pages.size() && !finished) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw AbortedException.builder().message("Interrupted while waiting for a Query").cause(e)
+									.build();
+						}
+					}
+					if (next == pages.size()) {
+						return completed;
+					}
+					page = pages.get(next);
+				}
+
+				pageConsumer.accept(page);
+			}
+		}
+	}
+
+	private static class RangeQueryKey {
+		private final String indexName;
+		private final long hashKey;
+		private final long rangeMin;
+		private final long rangeMax;
+		private final Select select;
+		private final String tableName;
+		private final Long minTimestamp;
+		private final Long maxTimestamp;
+
+		RangeQueryKey(String indexName, long hashKey, long rangeMin, long rangeMax, Select select,
+				TimeBucket timeBucket) {
+			this.indexName = indexName;
+			this.hashKey = hashKey;
+			this.rangeMin = rangeMin;
+			this.rangeMax = rangeMax;
+			this.select = select;
+			this.tableName = timeBucket != null ? timeBucket.getTableName() : null;
+			this.minTimestamp = timeBucket != null ? timeBucket.getMinTimestamp() : null;
+			this.maxTimestamp = timeBucket != null ? timeBucket.getMaxTimestamp() : null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RangeQueryKey)) {
+				return false;
+			}
+			RangeQueryKey other = (RangeQueryKey) obj;
+
+			return hashKey == other.hashKey && rangeMin == other.rangeMin && rangeMax == other.rangeMax
+					&& select == other.select && Objects.equals(indexName, other.indexName)
+					&& Objects.equals(tableName, other.tableName) && Objects.equals(minTimestamp, other.minTimestamp)
+					&& Objects.equals(maxTimestamp, other.maxTimestamp);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(indexName, hashKey, rangeMin, rangeMax, select, tableName, minTimestamp, maxTimestamp);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.local;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+/**
+ * A key attribute value (S, N or B) with the ordering Amazon DynamoDB uses for sort keys: numbers by value, strings
+ * and binaries by their bytes.
+ * */
+final class AttributeKey implements Comparable<AttributeKey> {
+	private final ScalarAttributeType type;
+	private final String s;
+	private final BigDecimal n;
+	private final ByteBuffer b;
+
+	private AttributeKey(ScalarAttributeType type, String s, BigDecimal n, ByteBuffer b) {
+		this.type = type;
+		this.s = s;
+		this.n = n;
+		this.b = b;
+	}
+
+	static AttributeKey of(AttributeValue value) {
+		if (value == null) {
+			return null;
+		} else if (value.s() != null) {
+			return new AttributeKey(ScalarAttributeType.S, value.s(), null, null);
+		} else if (value.n() != null) {
+			return new AttributeKey(ScalarAttributeType.N, null, new BigDecimal(value.n()).stripTrailingZeros(), null);
+		} else if (value.b() != null) {
+			return new AttributeKey(ScalarAttributeType.B, null, null, value.b().asByteBuffer());
+		}
+
+		throw DynamoDbException.builder().statusCode(400)
+				.message("The provided key element does not match the schema: " + value).build();
+	}
+
+	ScalarAttributeType getType() {
+		return type;
+	}
+
+	boolean beginsWith(AttributeKey prefix) {
+		if (type != prefix.type) {
+			return false;
+		} else if (type == ScalarAttributeType.S) {
+			return s.startsWith(prefix.s);
+		} else if (type == ScalarAttributeType.B) {
+			return b.remaining() >= prefix.b.remaining()
+					&& b.duplicate().limit(b.position() + prefix.b.remaining()).equals(prefix.b);
+		}
+
+		return false;
+	}
+
+	@Override
+	public int compareTo(AttributeKey o) {
+		if (type != o.type) {
+			return type.compareTo(o.type);
+		}
+
+		switch (type) {
+		case N:
+			return n.compareTo(o.n);
+		case B:
+			return compareUnsigned(b, o.b);
+		default:
+			return s.compareTo(o.s);
+		}
+	}
+
+	private static int compareUnsigned(ByteBuffer left, ByteBuffer right) {
+		int length = Math.min(left.remaining(), right.remaining());
+		for (int i = 0; i < length; i++) {
+			int cmp = Integer.compare(left.get(left.position() + i) & 0xff, right.get(right.position() + i) & 0xff);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+
+		return Integer.compare(left.remaining(), right.remaining());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof AttributeKey && compareTo((AttributeKey) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		switch (type) {
+		case N:
+			return n.hashCode();
+		case B:
+			return b.hashCode();
+		default:
+			return s.hashCode();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.amazonaws.geo.replica.GeoChangeFeed;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+
+/**
+ * A stand-in for an Amazon DynamoDB stream of a table of InMemoryDynamoDBClient. It receives a NEW_AND_OLD_IMAGES
+ * record for every item written or deleted after it was opened with
+ * {@link InMemoryDynamoDBClient#openChangeFeed(String)}, and keeps the records until they are polled.
+ * */
+public class InMemoryChangeFeed implements GeoChangeFeed {
+	private final Queue<Record> records = new ConcurrentLinkedQueue<>();
+
+	InMemoryChangeFeed() {
+	}
+
+	void publish(Record record) {
+		records.add(record);
+	}
+
+	@Override
+	public List<Record> poll() {
+		List<Record> polled = new ArrayList<>();
+		for (Record record = records.poll(); record != null; record = records.poll()) {
+			polled.add(record);
+		}
+
+		return polled;
+	}
+}
@@ -0,0 +1,1102 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.local;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.geo.dynamodb.local.InMemoryTable.EntryKey;
+import com.amazonaws.geo.dynamodb.local.InMemoryTable.Index;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbServiceClientConfiguration;
+import software.amazon.awssdk.services.dynamodb.model.AttributeAction;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValueUpdate;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ComparisonOperator;
+import software.amazon.awssdk.services.dynamodb.model.Condition;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * <p>
+ * An in-memory stand-in for Amazon DynamoDB that implements the operations GeoDataManager uses: CreateTable,
+ * DeleteTable, Query, Scan, GetItem, PutItem, BatchWriteItem, UpdateItem, DeleteItem and TransactWriteItems. It is
+ * meant for tests and offline benchmarks; every other operation throws UnsupportedOperationException.
+ * </p>
+ * <p>
+ * Tables honor the key schema, attribute definitions and secondary indexes of the CreateTableRequest, so the table
+ * described by GeoTableUtil can be created as is. Query supports the legacy KeyConditions parameter, Limit,
+ * ExclusiveStartKey, ScanIndexForward, Select.COUNT and AttributesToGet. Pages end after the configured number of items
+ * or at 1 MB, whichever comes first. Consumed capacity is computed from item sizes the same way Amazon DynamoDB bills
+ * it.
+ * </p>
+ * <p>
+ * Scan supports Segment, TotalSegments, Limit and ExclusiveStartKey; items are assigned to segments by hash key.
+ * {@link #openChangeFeed(String)} returns a stand-in for the stream of a table.
+ * </p>
+ * <p>
+ * TransactWriteItems applies its Put, Delete and Update actions atomically. Update expressions support SET only.
+ * Condition expressions of PutItem, UpdateItem, DeleteItem and transaction actions support attribute_exists,
+ * attribute_not_exists and equality, joined by AND; ConditionCheck actions and the legacy Expected parameter are not
+ * supported.
+ * </p>
+ * <p>
+ * Optionally, every call can be delayed by a random latency and rejected with a
+ * ProvisionedThroughputExceededException at a given rate. The random source is seeded so that runs are repeatable.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * InMemoryDynamoDBClient ddb = new InMemoryDynamoDBClient().withPageSize(100).withLatency(2, 10);
+ * 
+ * GeoDataManagerConfiguration config = new GeoDataManagerConfiguration(ddb, &quot;geo-table&quot;);
+ * ddb.createTable(GeoTableUtil.getCreateTableRequest(config));
+ * 
+ * GeoDataManager geoDataManager = new GeoDataManager(config);
+ * </pre>
+ * */
+public class InMemoryDynamoDBClient implements DynamoDbClient {
+	private static final int MAX_PAGE_BYTES = 1024 * 1024;
+	private static final int READ_UNIT_BYTES = 4096;
+	private static final int WRITE_UNIT_BYTES = 1024;
+	private static final int MAX_BATCH_WRITE_ITEMS = 25;
+	private static final int MAX_TRANSACT_WRITE_ITEMS = 100;
+	private static final Pattern CONDITION_FUNCTION = Pattern.compile(
+			"(?i)(attribute_exists|attribute_not_exists)\\s*\\(\\s*([^)\\s]+)\\s*\\)");
+
+	private final Map<String, InMemoryTable> tables = new ConcurrentHashMap<>();
+
+	private int pageSize = Integer.MAX_VALUE;
+	private long minLatencyMillis;
+	private long maxLatencyMillis;
+	private double throttleRate;
+	private Random random = new Random(0);
+
+	/**
+	 * Set the maximum number of items in a query page. Pages are also limited to 1 MB.
+	 */
+	public InMemoryDynamoDBClient withPageSize(int pageSize) {
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * Delay every call by a random time between minLatencyMillis and maxLatencyMillis.
+	 */
+	public InMemoryDynamoDBClient withLatency(long minLatencyMillis, long maxLatencyMillis) {
+		this.minLatencyMillis = minLatencyMillis;
+		this.maxLatencyMillis = Math.max(minLatencyMillis, maxLatencyMillis);
+		return this;
+	}
+
+	/**
+	 * Reject the given fraction of calls, or of items in a BatchWriteItem call, as throttled.
+	 */
+	public InMemoryDynamoDBClient withThrottleRate(double throttleRate) {
+		this.throttleRate = throttleRate;
+		return this;
+	}
+
+	/**
+	 * Seed the random source used for latency and throttling.
+	 */
+	public InMemoryDynamoDBClient withRandomSeed(long seed) {
+		this.random = new Random(seed);
+		return this;
+	}
+
+	@Override
+	public String serviceName() {
+		return SERVICE_NAME;
+	}
+
+	@Override
+	public DynamoDbServiceClientConfiguration serviceClientConfiguration() {
+		return DynamoDbServiceClientConfiguration.builder().build();
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public CreateTableResponse createTable(CreateTableRequest createTableRequest) {
+		InMemoryTable table = new InMemoryTable(createTableRequest);
+		if (tables.putIfAbsent(table.getName(), table) != null) {
+			throw ResourceInUseException.builder().statusCode(400)
+					.message("Table already exists: " + table.getName()).build();
+		}
+
+		return CreateTableResponse.builder().tableDescription(describe(createTableRequest.tableName())).build();
+	}
+
+	@Override
+	public DeleteTableResponse deleteTable(DeleteTableRequest deleteTableRequest) {
+		TableDescription tableDescription = describe(table(deleteTableRequest.tableName()).getName());
+		tables.remove(deleteTableRequest.tableName());
+
+		return DeleteTableResponse.builder().tableDescription(tableDescription).build();
+	}
+
+	@Override
+	public QueryResponse query(QueryRequest queryRequest) {
+		simulateService();
+		if (queryRequest.keyConditionExpression() != null || queryRequest.filterExpression() != null) {
+			throw new UnsupportedOperationException("Only KeyConditions and QueryFilter are supported by "
+					+ getClass().getSimpleName());
+		}
+
+		InMemoryTable table = table(queryRequest.tableName());
+		Index index = table.getIndex(queryRequest.indexName());
+		if (index.global && Boolean.TRUE.equals(queryRequest.consistentRead())) {
+			throw InMemoryTable.validation("Consistent reads are not supported on global secondary indexes");
+		}
+
+		Map<String, Condition> keyConditions = queryRequest.keyConditions();
+		Condition hashKeyCondition = keyConditions.get(index.hashKeyName);
+		Condition rangeKeyCondition = index.rangeKeyName != null ? keyConditions.get(index.rangeKeyName) : null;
+		if (hashKeyCondition == null || hashKeyCondition.comparisonOperator() != ComparisonOperator.EQ
+				|| keyConditions.size() != (rangeKeyCondition != null ? 2 : 1)) {
+			throw InMemoryTable.validation("Query condition missed key schema element");
+		}
+
+		boolean countOnly = queryRequest.select() == Select.COUNT;
+		int limit = queryRequest.limit() != null ? queryRequest.limit() : Integer.MAX_VALUE;
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		Map<String, AttributeValue> lastEvaluatedKey = null;
+		int count = 0;
+		int scannedCount = 0;
+		long bytes = 0;
+
+		table.lock.readLock().lock();
+		try {
+			NavigableMap<EntryKey, Map<String, AttributeValue>> partition = index.partitions.get(AttributeKey
+					.of(hashKeyCondition.attributeValueList().get(0)));
+			if (partition != null) {
+				Predicate<EntryKey> inRange = rangeKeyCondition != null ? toPredicate(rangeKeyCondition) : k -> true;
+				NavigableMap<EntryKey, Map<String, AttributeValue>> candidates = rangeKeyCondition != null ? subMap(
+						partition, rangeKeyCondition) : partition;
+				if (Boolean.FALSE.equals(queryRequest.scanIndexForward())) {
+					candidates = candidates.descendingMap();
+				}
+				if (queryRequest.hasExclusiveStartKey()) {
+					candidates = candidates.tailMap(index.entryKey(queryRequest.exclusiveStartKey(),
+							queryRequest.exclusiveStartKey()), false);
+				}
+
+				Map<String, AttributeValue> last = null;
+				for (Map.Entry<EntryKey, Map<String, AttributeValue>> entry : candidates.entrySet()) {
+					if (!inRange.test(entry.getKey())) {
+						break;
+					}
+					if (scannedCount >= limit || scannedCount >= pageSize || bytes >= MAX_PAGE_BYTES) {
+						lastEvaluatedKey = index.keyOf(last);
+						break;
+					}
+
+					// The limit, page size and consumed capacity count the items read before the QueryFilter.
+					Map<String, AttributeValue> item = entry.getValue();
+					bytes += itemSize(item);
+					scannedCount++;
+					last = item;
+					if (!matches(item, queryRequest.queryFilter())) {
+						continue;
+					}
+					count++;
+					if (!countOnly) {
+						items.add(project(item, queryRequest.attributesToGet()));
+					}
+				}
+			}
+		} finally {
+			table.lock.readLock().unlock();
+		}
+
+		QueryResponse.Builder builder = QueryResponse.builder().count(count).scannedCount(scannedCount)
+				.consumedCapacity(consumedCapacity(table, queryRequest.returnConsumedCapacity(),
+						readUnits(bytes, Boolean.TRUE.equals(queryRequest.consistentRead()))));
+		if (!countOnly) {
+			builder.items(items);
+		}
+		if (lastEvaluatedKey != null) {
+			builder.lastEvaluatedKey(lastEvaluatedKey);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public ScanResponse scan(ScanRequest scanRequest) {
+		simulateService();
+		if (scanRequest.filterExpression() != null || scanRequest.hasScanFilter() || scanRequest.indexName() != null) {
+			throw new UnsupportedOperationException("Only table scans without filters are supported by "
+					+ getClass().getSimpleName());
+		}
+
+		InMemoryTable table = table(scanRequest.tableName());
+		Index primary = table.getPrimary();
+		int totalSegments = scanRequest.totalSegments() != null ? scanRequest.totalSegments() : 1;
+		int segment = scanRequest.segment() != null ? scanRequest.segment() : 0;
+		if (segment < 0 || segment >= totalSegments) {
+			throw InMemoryTable.validation("The Segment parameter must be less than the TotalSegments parameter");
+		}
+
+		int limit = scanRequest.limit() != null ? scanRequest.limit() : Integer.MAX_VALUE;
+		Map<String, AttributeValue> exclusiveStartKey = scanRequest.hasExclusiveStartKey() ? scanRequest
+				.exclusiveStartKey() : null;
+		AttributeKey startHashKey = exclusiveStartKey != null ? AttributeKey.of(exclusiveStartKey
+				.get(primary.hashKeyName)) : null;
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		Map<String, AttributeValue> lastEvaluatedKey = null;
+		long bytes = 0;
+
+		table.lock.readLock().lock();
+		try {
+			// Partitions of the segment in hash key order, so that a scan can resume after its last evaluated key.
+			NavigableMap<AttributeKey, NavigableMap<EntryKey, Map<String, AttributeValue>>> partitions = new TreeMap<>();
+			for (Map.Entry<AttributeKey, NavigableMap<EntryKey, Map<String, AttributeValue>>> partition : primary.partitions
+					.entrySet()) {
+				if (Math.floorMod(partition.getKey().hashCode(), totalSegments) == segment) {
+					partitions.put(partition.getKey(), partition.getValue());
+				}
+			}
+			if (startHashKey != null) {
+				partitions = partitions.tailMap(startHashKey, true);
+			}
+
+			Map<String, AttributeValue> last = null;
+			scan: for (Map.Entry<AttributeKey, NavigableMap<EntryKey, Map<String, AttributeValue>>> partition : partitions
+					.entrySet()) {
+				NavigableMap<EntryKey, Map<String, AttributeValue>> candidates = partition.getValue();
+				if (partition.getKey().equals(startHashKey)) {
+					candidates = candidates.tailMap(primary.entryKey(exclusiveStartKey, exclusiveStartKey), false);
+				}
+
+				for (Map<String, AttributeValue> item : candidates.values()) {
+					if (items.size() >= limit || items.size() >= pageSize || bytes >= MAX_PAGE_BYTES) {
+						lastEvaluatedKey = primary.keyOf(last);
+						break scan;
+					}
+
+					bytes += itemSize(item);
+					last = item;
+					items.add(project(item, scanRequest.attributesToGet()));
+				}
+			}
+		} finally {
+			table.lock.readLock().unlock();
+		}
+
+		ScanResponse.Builder builder = ScanResponse.builder().items(items).count(items.size())
+				.scannedCount(items.size()).consumedCapacity(consumedCapacity(table,
+						scanRequest.returnConsumedCapacity(), readUnits(bytes,
+								Boolean.TRUE.equals(scanRequest.consistentRead()))));
+		if (lastEvaluatedKey != null) {
+			builder.lastEvaluatedKey(lastEvaluatedKey);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public GetItemResponse getItem(GetItemRequest getItemRequest) {
+		simulateService();
+		InMemoryTable table = table(getItemRequest.tableName());
+
+		Map<String, AttributeValue> item;
+		table.lock.readLock().lock();
+		try {
+			item = table.get(getItemRequest.key());
+		} finally {
+			table.lock.readLock().unlock();
+		}
+
+		GetItemResponse.Builder builder = GetItemResponse.builder().consumedCapacity(
+				consumedCapacity(table, getItemRequest.returnConsumedCapacity(), readUnits(item != null ? itemSize(item)
+						: 0, Boolean.TRUE.equals(getItemRequest.consistentRead()))));
+		if (item != null) {
+			builder.item(project(item, getItemRequest.attributesToGet()));
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public PutItemResponse putItem(PutItemRequest putItemRequest) {
+		simulateService();
+		rejectConditions(putItemRequest.hasExpected());
+		InMemoryTable table = table(putItemRequest.tableName());
+
+		Map<String, AttributeValue> old;
+		table.lock.writeLock().lock();
+		try {
+			table.validateItem(putItemRequest.item());
+			checkCondition(putItemRequest.conditionExpression(), putItemRequest.expressionAttributeNames(),
+					putItemRequest.expressionAttributeValues(), table.get(table.getPrimary().keyOf(putItemRequest
+							.item())));
+			old = table.put(putItemRequest.item());
+		} finally {
+			table.lock.writeLock().unlock();
+		}
+
+		PutItemResponse.Builder builder = PutItemResponse.builder().consumedCapacity(
+				consumedCapacity(table, putItemRequest.returnConsumedCapacity(),
+						writeUnits(Math.max(itemSize(putItemRequest.item()), old != null ? itemSize(old) : 0))));
+		if (old != null && putItemRequest.returnValues() == ReturnValue.ALL_OLD) {
+			builder.attributes(old);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest batchWriteItemRequest) {
+		simulateService();
+
+		int total = 0;
+		for (List<WriteRequest> writeRequests : batchWriteItemRequest.requestItems().values()) {
+			total += writeRequests.size();
+		}
+		if (total == 0 || total > MAX_BATCH_WRITE_ITEMS) {
+			throw InMemoryTable.validation("Too many items requested for the BatchWriteItem call");
+		}
+
+		Map<String, List<WriteRequest>> unprocessedItems = new HashMap<>();
+		List<ConsumedCapacity> consumedCapacities = new ArrayList<>();
+		for (Map.Entry<String, List<WriteRequest>> entry : batchWriteItemRequest.requestItems().entrySet()) {
+			InMemoryTable table = table(entry.getKey());
+			validateDistinctKeys(table, entry.getValue());
+
+			double units = 0;
+			table.lock.writeLock().lock();
+			try {
+				for (WriteRequest writeRequest : entry.getValue()) {
+					if (isThrottled()) {
+						unprocessedItems.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(writeRequest);
+						continue;
+					}
+
+					Map<String, AttributeValue> old;
+					int size;
+					if (writeRequest.putRequest() != null) {
+						old = table.put(writeRequest.putRequest().item());
+						size = itemSize(writeRequest.putRequest().item());
+					} else {
+						table.validateKey(writeRequest.deleteRequest().key());
+						old = table.delete(writeRequest.deleteRequest().key());
+						size = 0;
+					}
+					units += writeUnits(Math.max(size, old != null ? itemSize(old) : 0));
+				}
+			} finally {
+				table.lock.writeLock().unlock();
+			}
+
+			ConsumedCapacity consumedCapacity = consumedCapacity(table, batchWriteItemRequest.returnConsumedCapacity(),
+					units);
+			if (consumedCapacity != null) {
+				consumedCapacities.add(consumedCapacity);
+			}
+		}
+
+		BatchWriteItemResponse.Builder builder = BatchWriteItemResponse.builder().unprocessedItems(unprocessedItems);
+		if (!consumedCapacities.isEmpty()) {
+			builder.consumedCapacity(consumedCapacities);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public UpdateItemResponse updateItem(UpdateItemRequest updateItemRequest) {
+		simulateService();
+		rejectConditions(updateItemRequest.hasExpected());
+		InMemoryTable table = table(updateItemRequest.tableName());
+		Index primary = table.getPrimary();
+
+		Map<String, AttributeValue> old;
+		Map<String, AttributeValue> item;
+		table.lock.writeLock().lock();
+		try {
+			table.validateKey(updateItemRequest.key());
+			old = table.get(updateItemRequest.key());
+			checkCondition(updateItemRequest.conditionExpression(), updateItemRequest.expressionAttributeNames(),
+					updateItemRequest.expressionAttributeValues(), old);
+			item = new HashMap<>(old != null ? old : updateItemRequest.key());
+
+			if (updateItemRequest.updateExpression() != null) {
+				applyUpdateExpression(table, item, updateItemRequest.updateExpression(),
+						updateItemRequest.expressionAttributeNames(), updateItemRequest.expressionAttributeValues());
+			}
+			for (Map.Entry<String, AttributeValueUpdate> update : updateItemRequest.attributeUpdates().entrySet()) {
+				if (update.getKey().equals(primary.hashKeyName) || update.getKey().equals(primary.rangeKeyName)) {
+					throw InMemoryTable.validation("Cannot update attribute " + update.getKey()
+							+ ". This attribute is part of the key");
+				}
+				applyUpdate(item, update.getKey(), update.getValue());
+			}
+
+			table.put(item);
+		} finally {
+			table.lock.writeLock().unlock();
+		}
+
+		UpdateItemResponse.Builder builder = UpdateItemResponse.builder().consumedCapacity(
+				consumedCapacity(table, updateItemRequest.returnConsumedCapacity(),
+						writeUnits(Math.max(itemSize(item), old != null ? itemSize(old) : 0))));
+		if (updateItemRequest.returnValues() == ReturnValue.ALL_NEW) {
+			builder.attributes(item);
+		} else if (updateItemRequest.returnValues() == ReturnValue.ALL_OLD && old != null) {
+			builder.attributes(old);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public DeleteItemResponse deleteItem(DeleteItemRequest deleteItemRequest) {
+		simulateService();
+		rejectConditions(deleteItemRequest.hasExpected());
+		InMemoryTable table = table(deleteItemRequest.tableName());
+
+		Map<String, AttributeValue> old;
+		table.lock.writeLock().lock();
+		try {
+			table.validateKey(deleteItemRequest.key());
+			checkCondition(deleteItemRequest.conditionExpression(), deleteItemRequest.expressionAttributeNames(),
+					deleteItemRequest.expressionAttributeValues(), table.get(deleteItemRequest.key()));
+			old = table.delete(deleteItemRequest.key());
+		} finally {
+			table.lock.writeLock().unlock();
+		}
+
+		DeleteItemResponse.Builder builder = DeleteItemResponse.builder().consumedCapacity(
+				consumedCapacity(table, deleteItemRequest.returnConsumedCapacity(),
+						writeUnits(old != null ? itemSize(old) : 0)));
+		if (old != null && deleteItemRequest.returnValues() == ReturnValue.ALL_OLD) {
+			builder.attributes(old);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest transactWriteItemsRequest) {
+		simulateService();
+
+		List<TransactWriteItem> transactItems = transactWriteItemsRequest.transactItems();
+		if (transactItems.isEmpty() || transactItems.size() > MAX_TRANSACT_WRITE_ITEMS) {
+			throw InMemoryTable.validation("Member must have length less than or equal to " + MAX_TRANSACT_WRITE_ITEMS);
+		}
+
+		// Tables are locked in name order so that concurrent transactions cannot deadlock.
+		Map<String, InMemoryTable> involvedTables = new TreeMap<>();
+		for (TransactWriteItem transactItem : transactItems) {
+			String tableName = getTableName(transactItem);
+			involvedTables.put(tableName, table(tableName));
+		}
+
+		Map<String, Double> units = new TreeMap<>();
+		for (InMemoryTable table : involvedTables.values()) {
+			table.lock.writeLock().lock();
+		}
+		try {
+			// Every action is validated and evaluated before the first one is applied.
+			Set<List<Object>> keys = new HashSet<>();
+			List<Map<String, AttributeValue>> keyList = new ArrayList<>();
+			List<Map<String, AttributeValue>> items = new ArrayList<>();
+			List<CancellationReason> cancellationReasons = new ArrayList<>();
+			boolean cancelled = false;
+			for (TransactWriteItem transactItem : transactItems) {
+				InMemoryTable table = involvedTables.get(getTableName(transactItem));
+				Map<String, AttributeValue> key;
+				Map<String, AttributeValue> item;
+				boolean conditionMet;
+				if (transactItem.put() != null) {
+					Put put = transactItem.put();
+					table.validateItem(put.item());
+					key = table.getPrimary().keyOf(put.item());
+					item = put.item();
+					conditionMet = matchesCondition(put.conditionExpression(), put.expressionAttributeNames(),
+							put.expressionAttributeValues(), table.get(key));
+				} else if (transactItem.delete() != null) {
+					Delete delete = transactItem.delete();
+					table.validateKey(delete.key());
+					key = delete.key();
+					item = null;
+					conditionMet = matchesCondition(delete.conditionExpression(), delete.expressionAttributeNames(),
+							delete.expressionAttributeValues(), table.get(key));
+				} else {
+					Update update = transactItem.update();
+					table.validateKey(update.key());
+					key = update.key();
+					Map<String, AttributeValue> old = table.get(key);
+					item = new HashMap<>(old != null ? old : key);
+					applyUpdateExpression(table, item, update.updateExpression(), update.expressionAttributeNames(),
+							update.expressionAttributeValues());
+					table.validateItem(item);
+					conditionMet = matchesCondition(update.conditionExpression(), update.expressionAttributeNames(),
+							update.expressionAttributeValues(), old);
+				}
+
+				if (!keys.add(List.of(table.getName(), key))) {
+					throw InMemoryTable.validation("Transaction request cannot include multiple operations on one item");
+				}
+				keyList.add(key);
+				items.add(item);
+				cancellationReasons.add(CancellationReason.builder().code(conditionMet ? "None"
+						: "ConditionalCheckFailed").build());
+				cancelled |= !conditionMet;
+			}
+
+			if (cancelled) {
+				throw TransactionCanceledException.builder().statusCode(400).cancellationReasons(cancellationReasons)
+						.message("Transaction cancelled, please refer cancellation reasons for specific reasons")
+						.build();
+			}
+
+			for (int i = 0; i < transactItems.size(); i++) {
+				InMemoryTable table = involvedTables.get(getTableName(transactItems.get(i)));
+				Map<String, AttributeValue> item = items.get(i);
+				Map<String, AttributeValue> old = item != null ? table.put(item) : table.delete(keyList.get(i));
+				// Transactional writes consume two write capacity units per unit written.
+				units.merge(table.getName(), 2 * writeUnits(Math.max(item != null ? itemSize(item) : 0,
+						old != null ? itemSize(old) : 0)), Double::sum);
+			}
+		} finally {
+			for (InMemoryTable table : involvedTables.values()) {
+				table.lock.writeLock().unlock();
+			}
+		}
+
+		List<ConsumedCapacity> consumedCapacities = new ArrayList<>();
+		for (Map.Entry<String, Double> entry : units.entrySet()) {
+			ConsumedCapacity consumedCapacity = consumedCapacity(involvedTables.get(entry.getKey()),
+					transactWriteItemsRequest.returnConsumedCapacity(), entry.getValue());
+			if (consumedCapacity != null) {
+				consumedCapacities.add(consumedCapacity);
+			}
+		}
+
+		TransactWriteItemsResponse.Builder builder = TransactWriteItemsResponse.builder();
+		if (!consumedCapacities.isEmpty()) {
+			builder.consumedCapacity(consumedCapacities);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Open a stand-in for the stream of a table. The feed receives a record for every change made to the table from now
+	 * on, as a stream read from the LATEST position would.
+	 */
+	public InMemoryChangeFeed openChangeFeed(String tableName) {
+		InMemoryTable table = table(tableName);
+		InMemoryChangeFeed changeFeed = new InMemoryChangeFeed();
+
+		table.lock.writeLock().lock();
+		try {
+			table.addChangeFeed(changeFeed);
+		} finally {
+			table.lock.writeLock().unlock();
+		}
+
+		return changeFeed;
+	}
+
+	private InMemoryTable table(String tableName) {
+		InMemoryTable table = tables.get(tableName);
+		if (table == null) {
+			throw ResourceNotFoundException.builder().statusCode(400)
+					.message("Requested resource not found: Table: " + tableName + " not found").build();
+		}
+
+		return table;
+	}
+
+	private TableDescription describe(String tableName) {
+		return TableDescription.builder().tableName(tableName).tableStatus(TableStatus.ACTIVE).build();
+	}
+
+	private void simulateService() {
+		long latencyMillis;
+		synchronized (random) {
+			latencyMillis = minLatencyMillis + (maxLatencyMillis > minLatencyMillis ? (long) (random.nextDouble()
+					* (maxLatencyMillis - minLatencyMillis)) : 0);
+		}
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (isThrottled()) {
+			throw ProvisionedThroughputExceededException.builder().statusCode(400)
+					.message("The level of configured provisioned throughput for the table was exceeded.").build();
+		}
+	}
+
+	private boolean isThrottled() {
+		if (throttleRate <= 0) {
+			return false;
+		}
+
+		synchronized (random) {
+			return random.nextDouble() < throttleRate;
+		}
+	}
+
+	private void rejectConditions(boolean hasConditions) {
+		if (hasConditions) {
+			throw new UnsupportedOperationException("Legacy conditional parameters are not supported by "
+					+ getClass().getSimpleName());
+		}
+	}
+
+	private static String getTableName(TransactWriteItem transactItem) {
+		if (transactItem.put() != null) {
+			return transactItem.put().tableName();
+		} else if (transactItem.delete() != null) {
+			return transactItem.delete().tableName();
+		} else if (transactItem.update() != null) {
+			return transactItem.update().tableName();
+		}
+
+		throw new UnsupportedOperationException("Condition checks are not supported by "
+				+ InMemoryDynamoDBClient.class.getSimpleName());
+	}
+
+	/**
+	 * Evaluate a condition expression, throwing a ConditionalCheckFailedException if the item does not meet it.
+	 */
+	private static void checkCondition(String conditionExpression, Map<String, String> expressionAttributeNames,
+			Map<String, AttributeValue> expressionAttributeValues, Map<String, AttributeValue> item) {
+		if (!matchesCondition(conditionExpression, expressionAttributeNames, expressionAttributeValues, item)) {
+			throw ConditionalCheckFailedException.builder().statusCode(400).message("The conditional request failed")
+					.build();
+		}
+	}
+
+	/**
+	 * Evaluate a condition expression against the current item, null if there is none. Conditions of the form
+	 * "attribute_exists(#a)", "attribute_not_exists(#a)" and "#a = :a", joined by AND, are supported.
+	 */
+	private static boolean matchesCondition(String conditionExpression, Map<String, String> expressionAttributeNames,
+			Map<String, AttributeValue> expressionAttributeValues, Map<String, AttributeValue> item) {
+		if (conditionExpression == null) {
+			return true;
+		}
+
+		for (String condition : conditionExpression.trim().split("(?i)\\s+AND\\s+")) {
+			Matcher function = CONDITION_FUNCTION.matcher(condition.trim());
+			boolean met;
+			if (function.matches()) {
+				String attributeName = getAttributeName(function.group(2), expressionAttributeNames);
+				boolean exists = item != null && item.containsKey(attributeName);
+				met = function.group(1).equalsIgnoreCase("attribute_exists") ? exists : !exists;
+			} else {
+				String[] operands = condition.split("=");
+				if (operands.length != 2) {
+					throw new UnsupportedOperationException("Only attribute_exists, attribute_not_exists and = "
+							+ "conditions are supported by " + InMemoryDynamoDBClient.class.getSimpleName());
+				}
+				String attributeName = getAttributeName(operands[0], expressionAttributeNames);
+				AttributeValue value = expressionAttributeValues.get(operands[1].trim());
+				if (value == null) {
+					throw InMemoryTable.validation("Invalid ConditionExpression: An expression attribute value used "
+							+ "in expression is not defined");
+				}
+				met = item != null && value.equals(item.get(attributeName));
+			}
+
+			if (!met) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static String getAttributeName(String operand, Map<String, String> expressionAttributeNames) {
+		String attributeName = operand.trim();
+		if (attributeName.startsWith("#")) {
+			attributeName = expressionAttributeNames.get(attributeName);
+			if (attributeName == null) {
+				throw InMemoryTable.validation("Invalid expression: An expression attribute name used in expression "
+						+ "is not defined");
+			}
+		}
+
+		return attributeName;
+	}
+
+	/**
+	 * Apply an update expression of the form "SET a = :a, #b = :b" to an item.
+	 */
+	private static void applyUpdateExpression(InMemoryTable table, Map<String, AttributeValue> item,
+			String updateExpression, Map<String, String> expressionAttributeNames,
+			Map<String, AttributeValue> expressionAttributeValues) {
+		updateExpression = updateExpression.trim();
+		if (!updateExpression.regionMatches(true, 0, "SET ", 0, 4)) {
+			throw new UnsupportedOperationException("Only SET update expressions are supported by "
+					+ InMemoryDynamoDBClient.class.getSimpleName());
+		}
+
+		Index primary = table.getPrimary();
+		for (String assignment : updateExpression.substring(4).split(",")) {
+			String[] operands = assignment.split("=");
+			if (operands.length != 2) {
+				throw new UnsupportedOperationException("Only SET update expressions are supported by "
+						+ InMemoryDynamoDBClient.class.getSimpleName());
+			}
+
+			String attributeName = operands[0].trim();
+			if (attributeName.startsWith("#")) {
+				attributeName = expressionAttributeNames.get(attributeName);
+			}
+			AttributeValue value = expressionAttributeValues.get(operands[1].trim());
+			if (attributeName == null || value == null) {
+				throw InMemoryTable.validation("Invalid UpdateExpression: An expression attribute name or value used "
+						+ "in expression is not defined");
+			}
+			if (attributeName.equals(primary.hashKeyName) || attributeName.equals(primary.rangeKeyName)) {
+				throw InMemoryTable.validation("Cannot update attribute " + attributeName
+						+ ". This attribute is part of the key");
+			}
+
+			item.put(attributeName, value);
+		}
+	}
+
+	private static void validateDistinctKeys(InMemoryTable table, List<WriteRequest> writeRequests) {
+		Set<Map<String, AttributeValue>> keys = new HashSet<>();
+		for (WriteRequest writeRequest : writeRequests) {
+			Map<String, AttributeValue> key = writeRequest.putRequest() != null ? table.getPrimary().keyOf(
+					writeRequest.putRequest().item()) : writeRequest.deleteRequest().key();
+			if (!keys.add(key)) {
+				throw InMemoryTable.validation("Provided list of item keys contains duplicates");
+			}
+		}
+	}
+
+	private static NavigableMap<EntryKey, Map<String, AttributeValue>> subMap(
+			NavigableMap<EntryKey, Map<String, AttributeValue>> partition, Condition condition) {
+		List<AttributeValue> values = condition.attributeValueList();
+		AttributeKey first = AttributeKey.of(values.get(0));
+
+		switch (condition.comparisonOperator()) {
+		case EQ:
+			return partition.subMap(EntryKey.lowest(first), true, EntryKey.highest(first), true);
+		case LT:
+			return partition.headMap(EntryKey.lowest(first), false);
+		case LE:
+			return partition.headMap(EntryKey.highest(first), true);
+		case GT:
+			return partition.tailMap(EntryKey.highest(first), false);
+		case GE:
+		case BEGINS_WITH:
+			return partition.tailMap(EntryKey.lowest(first), true);
+		case BETWEEN:
+			AttributeKey second = AttributeKey.of(values.get(1));
+			if (first.compareTo(second) > 0) {
+				throw InMemoryTable.validation("Invalid KeyConditions: the lower bound of BETWEEN is greater than the "
+						+ "upper bound");
+			}
+			return partition.subMap(EntryKey.lowest(first), true, EntryKey.highest(second), true);
+		default:
+			throw InMemoryTable.validation("Unsupported operator on KeyConditions: " + condition.comparisonOperator());
+		}
+	}
+
+	/**
+	 * Check an item against the conditions of a QueryFilter. Scalar comparisons and NULL checks are supported.
+	 */
+	private static boolean matches(Map<String, AttributeValue> item, Map<String, Condition> queryFilter) {
+		for (Map.Entry<String, Condition> entry : queryFilter.entrySet()) {
+			AttributeValue value = item.get(entry.getKey());
+			Condition condition = entry.getValue();
+			if (condition.comparisonOperator() == ComparisonOperator.NULL) {
+				if (value != null) {
+					return false;
+				}
+				continue;
+			} else if (condition.comparisonOperator() == ComparisonOperator.NOT_NULL) {
+				if (value == null) {
+					return false;
+				}
+				continue;
+			} else if (value == null || (value.s() == null && value.n() == null && value.b() == null)) {
+				return false;
+			}
+
+			AttributeKey key = AttributeKey.of(value);
+			AttributeKey first = AttributeKey.of(condition.attributeValueList().get(0));
+			if (key.getType() != first.getType()) {
+				return false;
+			}
+			boolean matched;
+			switch (condition.comparisonOperator()) {
+			case EQ:
+				matched = key.compareTo(first) == 0;
+				break;
+			case NE:
+				matched = key.compareTo(first) != 0;
+				break;
+			case LT:
+				matched = key.compareTo(first) < 0;
+				break;
+			case LE:
+				matched = key.compareTo(first) <= 0;
+				break;
+			case GT:
+				matched = key.compareTo(first) > 0;
+				break;
+			case GE:
+				matched = key.compareTo(first) >= 0;
+				break;
+			case BETWEEN:
+				matched = key.compareTo(first) >= 0
+						&& key.compareTo(AttributeKey.of(condition.attributeValueList().get(1))) <= 0;
+				break;
+			default:
+				throw InMemoryTable.validation("Unsupported operator on QueryFilter: " + condition.comparisonOperator());
+			}
+			if (!matched) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * The submap of a range condition is exact except for BEGINS_WITH, whose end is found while iterating.
+	 */
+	private static Predicate<EntryKey> toPredicate(Condition condition) {
+		if (condition.comparisonOperator() == ComparisonOperator.BEGINS_WITH) {
+			AttributeKey prefix = AttributeKey.of(condition.attributeValueList().get(0));
+			return k -> k.getRangeKey().beginsWith(prefix);
+		}
+
+		return k -> true;
+	}
+
+	private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, List<String> attributesToGet) {
+		if (attributesToGet == null || attributesToGet.isEmpty()) {
+			return item;
+		}
+
+		Map<String, AttributeValue> projected = new HashMap<>();
+		for (String attributeName : new LinkedHashSet<>(attributesToGet)) {
+			if (item.containsKey(attributeName)) {
+				projected.put(attributeName, item.get(attributeName));
+			}
+		}
+
+		return projected;
+	}
+
+	private static void applyUpdate(Map<String, AttributeValue> item, String attributeName,
+			AttributeValueUpdate update) {
+		AttributeAction action = update.action() != null ? update.action() : AttributeAction.PUT;
+		AttributeValue value = update.value();
+		AttributeValue current = item.get(attributeName);
+
+		if (action == AttributeAction.PUT) {
+			item.put(attributeName, value);
+		} else if (action == AttributeAction.DELETE) {
+			if (value == null || current == null) {
+				item.remove(attributeName);
+			} else if (value.hasSs()) {
+				List<String> remaining = new ArrayList<>(current.ss());
+				remaining.removeAll(value.ss());
+				putSet(item, attributeName, remaining.isEmpty() ? null : AttributeValue.builder().ss(remaining).build());
+			} else if (value.hasNs()) {
+				List<String> remaining = new ArrayList<>(current.ns());
+				remaining.removeAll(value.ns());
+				putSet(item, attributeName, remaining.isEmpty() ? null : AttributeValue.builder().ns(remaining).build());
+			} else if (value.hasBs()) {
+				List<SdkBytes> remaining = new ArrayList<>(current.bs());
+				remaining.removeAll(value.bs());
+				putSet(item, attributeName, remaining.isEmpty() ? null : AttributeValue.builder().bs(remaining).build());
+			}
+		} else if (action == AttributeAction.ADD) {
+			if (value.n() != null) {
+				BigDecimal sum = new BigDecimal(value.n());
+				if (current != null) {
+					sum = sum.add(new BigDecimal(current.n()));
+				}
+				item.put(attributeName, AttributeValue.builder().n(sum.toPlainString()).build());
+			} else if (value.hasSs()) {
+				Set<String> union = new LinkedHashSet<>(current != null ? current.ss() : new ArrayList<>());
+				union.addAll(value.ss());
+				item.put(attributeName, AttributeValue.builder().ss(union).build());
+			} else if (value.hasNs()) {
+				Set<String> union = new LinkedHashSet<>(current != null ? current.ns() : new ArrayList<>());
+				union.addAll(value.ns());
+				item.put(attributeName, AttributeValue.builder().ns(union).build());
+			} else if (value.hasBs()) {
+				Set<SdkBytes> union = new LinkedHashSet<>(current != null ? current.bs() : new ArrayList<>());
+				union.addAll(value.bs());
+				item.put(attributeName, AttributeValue.builder().bs(union).build());
+			}
+		}
+	}
+
+	private static void putSet(Map<String, AttributeValue> item, String attributeName, AttributeValue value) {
+		if (value == null) {
+			item.remove(attributeName);
+		} else {
+			item.put(attributeName, value);
+		}
+	}
+
+	private static ConsumedCapacity consumedCapacity(InMemoryTable table, ReturnConsumedCapacity returnConsumedCapacity,
+			double units) {
+		if (returnConsumedCapacity == null || returnConsumedCapacity == ReturnConsumedCapacity.NONE) {
+			return null;
+		}
+
+		return ConsumedCapacity.builder().tableName(table.getName()).capacityUnits(units).build();
+	}
+
+	private static double readUnits(long bytes, boolean consistentRead) {
+		double units = Math.max(1, (bytes + READ_UNIT_BYTES - 1) / READ_UNIT_BYTES);
+		return consistentRead ? units : units / 2;
+	}
+
+	private static double writeUnits(long bytes) {
+		return Math.max(1, (bytes + WRITE_UNIT_BYTES - 1) / WRITE_UNIT_BYTES);
+	}
+
+	/**
+	 * Item size as Amazon DynamoDB computes it: the length of every attribute name plus the size of its value.
+	 */
+	static int itemSize(Map<String, AttributeValue> item) {
+		int size = 0;
+		for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+			size += utf8Length(attribute.getKey()) + valueSize(attribute.getValue());
+		}
+
+		return size;
+	}
+
+	private static int valueSize(AttributeValue value) {
+		if (value.s() != null) {
+			return utf8Length(value.s());
+		} else if (value.n() != null) {
+			return numberSize(value.n());
+		} else if (value.b() != null) {
+			return value.b().asByteArrayUnsafe().length;
+		} else if (value.hasSs()) {
+			int size = 0;
+			for (String s : value.ss()) {
+				size += utf8Length(s);
+			}
+			return size;
+		} else if (value.hasNs()) {
+			int size = 0;
+			for (String n : value.ns()) {
+				size += numberSize(n);
+			}
+			return size;
+		} else if (value.hasBs()) {
+			int size = 0;
+			for (SdkBytes b : value.bs()) {
+				size += b.asByteArrayUnsafe().length;
+			}
+			return size;
+		} else if (value.hasL()) {
+			int size = 3;
+			for (AttributeValue element : value.l()) {
+				size += 1 + valueSize(element);
+			}
+			return size;
+		} else if (value.hasM()) {
+			return 3 + itemSize(value.m()) + value.m().size();
+		}
+
+		// BOOL and NULL
+		return 1;
+	}
+
+	private static int numberSize(String n) {
+		int digits = 0;
+		for (int i = 0; i < n.length(); i++) {
+			if (Character.isDigit(n.charAt(i))) {
+				digits++;
+			}
+		}
+
+		return (digits + 1) / 2 + 1;
+	}
+
+	private static int utf8Length(String s) {
+		return s.getBytes(StandardCharsets.UTF_8).length;
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.dynamodb.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.StreamRecord;
+import software.amazon.awssdk.services.dynamodb.model.StreamViewType;
+
+/**
+ * A table of InMemoryDynamoDBClient. Every index, including the primary key, keeps a sorted map per hash key. Reads
+ * share the table lock and writes take it exclusively.
+ * */
+final class InMemoryTable {
+	private final String name;
+	private final Map<String, ScalarAttributeType> attributeTypes = new HashMap<>();
+	private final Index primary;
+	private final Map<String, Index> indexes = new LinkedHashMap<>();
+	private final List<InMemoryChangeFeed> changeFeeds = new CopyOnWriteArrayList<>();
+	private long sequenceNumber;
+
+	final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	InMemoryTable(CreateTableRequest createTableRequest) {
+		name = createTableRequest.tableName();
+		for (AttributeDefinition attributeDefinition : createTableRequest.attributeDefinitions()) {
+			attributeTypes.put(attributeDefinition.attributeName(), attributeDefinition.attributeType());
+		}
+
+		primary = new Index(null, createTableRequest.keySchema(), false);
+		for (LocalSecondaryIndex lsi : createTableRequest.localSecondaryIndexes()) {
+			indexes.put(lsi.indexName(), new Index(lsi.indexName(), lsi.keySchema(), false));
+		}
+		for (GlobalSecondaryIndex gsi : createTableRequest.globalSecondaryIndexes()) {
+			indexes.put(gsi.indexName(), new Index(gsi.indexName(), gsi.keySchema(), true));
+		}
+	}
+
+	String getName() {
+		return name;
+	}
+
+	Index getPrimary() {
+		return primary;
+	}
+
+	Index getIndex(String indexName) {
+		if (indexName == null) {
+			return primary;
+		}
+
+		Index index = indexes.get(indexName);
+		if (index == null) {
+			throw validation("The table does not have the specified index: " + indexName);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Must be called with the read lock held.
+	 */
+	Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+		validateKey(key);
+		NavigableMap<EntryKey, Map<String, AttributeValue>> partition = primary.partitions.get(AttributeKey.of(key
+				.get(primary.hashKeyName)));
+
+		return partition != null ? partition.get(primary.entryKey(key, key)) : null;
+	}
+
+	/**
+	 * Must be called with the write lock held.
+	 * 
+	 * @return The item that was replaced, or null.
+	 */
+	Map<String, AttributeValue> put(Map<String, AttributeValue> item) {
+		validateItem(item);
+		Map<String, AttributeValue> stored = Collections.unmodifiableMap(new HashMap<>(item));
+
+		Map<String, AttributeValue> old = remove(primary.keyOf(item));
+		primary.add(stored);
+		for (Index index : indexes.values()) {
+			index.add(stored);
+		}
+		publish(old != null ? OperationType.MODIFY : OperationType.INSERT, primary.keyOf(item), old, stored);
+
+		return old;
+	}
+
+	/**
+	 * Must be called with the write lock held.
+	 * 
+	 * @return The item that was deleted, or null.
+	 */
+	Map<String, AttributeValue> delete(Map<String, AttributeValue> key) {
+		Map<String, AttributeValue> old = remove(key);
+		if (old != null) {
+			publish(OperationType.REMOVE, key, old, null);
+		}
+
+		return old;
+	}
+
+	private Map<String, AttributeValue> remove(Map<String, AttributeValue> key) {
+		Map<String, AttributeValue> old = get(key);
+		if (old != null) {
+			primary.remove(old);
+			for (Index index : indexes.values()) {
+				index.remove(old);
+			}
+		}
+
+		return old;
+	}
+
+	/**
+	 * Publish the changes made from now on to a change feed.
+	 */
+	void addChangeFeed(InMemoryChangeFeed changeFeed) {
+		changeFeeds.add(changeFeed);
+	}
+
+	/**
+	 * Must be called with the write lock held, so that records are published in the order of the changes.
+	 */
+	private void publish(OperationType operationType, Map<String, AttributeValue> key,
+			Map<String, AttributeValue> oldImage, Map<String, AttributeValue> newImage) {
+		if (changeFeeds.isEmpty()) {
+			return;
+		}
+
+		String sequence = String.valueOf(++sequenceNumber);
+		StreamRecord.Builder streamRecord = StreamRecord.builder().keys(key).sequenceNumber(sequence)
+				.streamViewType(StreamViewType.NEW_AND_OLD_IMAGES);
+		if (oldImage != null) {
+			streamRecord.oldImage(oldImage);
+		}
+		if (newImage != null) {
+			streamRecord.newImage(newImage);
+		}
+		Record record = Record.builder().eventID(sequence).eventName(operationType).eventSource("aws:dynamodb")
+				.dynamodb(streamRecord.build()).build();
+
+		for (InMemoryChangeFeed changeFeed : changeFeeds) {
+			changeFeed.publish(record);
+		}
+	}
+
+	/**
+	 * Must be called with the read lock held.
+	 * 
+	 * @return Every item of the table in primary key order.
+	 */
+	List<Map<String, AttributeValue>> items() {
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		for (NavigableMap<EntryKey, Map<String, AttributeValue>> partition : primary.partitions.values()) {
+			items.addAll(partition.values());
+		}
+
+		return items;
+	}
+
+	void validateKey(Map<String, AttributeValue> key) {
+		int expected = primary.rangeKeyName != null ? 2 : 1;
+		if (key.size() != expected || !key.containsKey(primary.hashKeyName)
+				|| (primary.rangeKeyName != null && !key.containsKey(primary.rangeKeyName))) {
+			throw validation("The provided key element does not match the schema");
+		}
+		validateType(primary.hashKeyName, key.get(primary.hashKeyName));
+		validateType(primary.rangeKeyName, key.get(primary.rangeKeyName));
+	}
+
+	void validateItem(Map<String, AttributeValue> item) {
+		if (!item.containsKey(primary.hashKeyName)
+				|| (primary.rangeKeyName != null && !item.containsKey(primary.rangeKeyName))) {
+			throw validation("One or more parameter values were invalid: Missing the key in the item");
+		}
+		for (Map.Entry<String, ScalarAttributeType> attributeType : attributeTypes.entrySet()) {
+			validateType(attributeType.getKey(), item.get(attributeType.getKey()));
+		}
+	}
+
+	private void validateType(String attributeName, AttributeValue value) {
+		if (attributeName == null || value == null) {
+			return;
+		}
+
+		ScalarAttributeType expected = attributeTypes.get(attributeName);
+		if (expected != null && AttributeKey.of(value).getType() != expected) {
+			throw validation("One or more parameter values were invalid: Type mismatch for key " + attributeName
+					+ " expected: " + expected);
+		}
+	}
+
+	static DynamoDbException validation(String message) {
+		return (DynamoDbException) DynamoDbException.builder().statusCode(400).message(message).build();
+	}
+
+	/**
+	 * An index of the table. Items are grouped by hash key and sorted by range key, then by primary key so that an
+	 * index may hold several items with the same range key.
+	 */
+	final class Index {
+		final String indexName;
+		final String hashKeyName;
+		final String rangeKeyName;
+		final boolean global;
+		final Map<AttributeKey, NavigableMap<EntryKey, Map<String, AttributeValue>>> partitions = new HashMap<>();
+
+		private Index(String indexName, List<KeySchemaElement> keySchema, boolean global) {
+			String hash = null;
+			String range = null;
+			for (KeySchemaElement element : keySchema) {
+				if (element.keyType() == KeyType.HASH) {
+					hash = element.attributeName();
+				} else {
+					range = element.attributeName();
+				}
+			}
+
+			this.indexName = indexName;
+			this.hashKeyName = hash;
+			this.rangeKeyName = range;
+			this.global = global;
+		}
+
+		/**
+		 * @return The attributes of the item that make up the key of this index and of the table.
+		 */
+		Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+			Map<String, AttributeValue> key = new HashMap<>();
+			key.put(primary.hashKeyName, item.get(primary.hashKeyName));
+			if (primary.rangeKeyName != null) {
+				key.put(primary.rangeKeyName, item.get(primary.rangeKeyName));
+			}
+			key.put(hashKeyName, item.get(hashKeyName));
+			if (rangeKeyName != null) {
+				key.put(rangeKeyName, item.get(rangeKeyName));
+			}
+
+			return key;
+		}
+
+		EntryKey entryKey(Map<String, AttributeValue> indexKey, Map<String, AttributeValue> tableKey) {
+			return new EntryKey(rangeKeyName != null ? AttributeKey.of(indexKey.get(rangeKeyName)) : null,
+					AttributeKey.of(tableKey.get(primary.hashKeyName)),
+					primary.rangeKeyName != null ? AttributeKey.of(tableKey.get(primary.rangeKeyName)) : null, 0);
+		}
+
+		private boolean isIndexed(Map<String, AttributeValue> item) {
+			// Secondary indexes are sparse.
+			return item.containsKey(hashKeyName) && (rangeKeyName == null || item.containsKey(rangeKeyName));
+		}
+
+		private void add(Map<String, AttributeValue> item) {
+			if (isIndexed(item)) {
+				partitions.computeIfAbsent(AttributeKey.of(item.get(hashKeyName)), k -> new TreeMap<>())
+						.put(entryKey(item, item), item);
+			}
+		}
+
+		private void remove(Map<String, AttributeValue> item) {
+			if (isIndexed(item)) {
+				AttributeKey hashKey = AttributeKey.of(item.get(hashKeyName));
+				NavigableMap<EntryKey, Map<String, AttributeValue>> partition = partitions.get(hashKey);
+				partition.remove(entryKey(item, item));
+				if (partition.isEmpty()) {
+					partitions.remove(hashKey);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Position of an item within a partition of an index. Bound keys sort before (-1) or after (1) every item with
+	 * the same range key and are used to express key conditions.
+	 */
+	static final class EntryKey implements Comparable<EntryKey> {
+		private final AttributeKey rangeKey;
+		private final AttributeKey tableHashKey;
+		private final AttributeKey tableRangeKey;
+		private final int bound;
+
+		EntryKey(AttributeKey rangeKey, AttributeKey tableHashKey, AttributeKey tableRangeKey, int bound) {
+			this.rangeKey = rangeKey;
+			this.tableHashKey = tableHashKey;
+			this.tableRangeKey = tableRangeKey;
+			this.bound = bound;
+		}
+
+		static EntryKey lowest(AttributeKey rangeKey) {
+			return new EntryKey(rangeKey, null, null, -1);
+		}
+
+		static EntryKey highest(AttributeKey rangeKey) {
+			return new EntryKey(rangeKey, null, null, 1);
+		}
+
+		AttributeKey getRangeKey() {
+			return rangeKey;
+		}
+
+		@Override
+		public int compareTo(EntryKey o) {
+			int cmp = compareNullable(rangeKey, o.rangeKey);
+			if (cmp != 0 || bound != 0 || o.bound != 0) {
+				return cmp != 0 ? cmp : Integer.compare(bound, o.bound);
+			}
+
+			cmp = compareNullable(tableHashKey, o.tableHashKey);
+			return cmp != 0 ? cmp : compareNullable(tableRangeKey, o.tableRangeKey);
+		}
+
+		private static int compareNullable(AttributeKey left, AttributeKey right) {
+			if (left == null || right == null) {
+				return left == right ? 0 : (left == null ? -1 : 1);
+			}
+
+			return left.compareTo(right);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof EntryKey && compareTo((EntryKey) obj) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(rangeKey, tableHashKey, tableRangeKey, bound);
+		}
+	}
+}
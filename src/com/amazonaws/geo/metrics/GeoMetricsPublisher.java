@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.metrics;
+
+import com.amazonaws.geo.model.GeoQueryStats;
+
+/**
+ * <p>
+ * Receives the execution statistics of every geo query run by GeoDataManager. Register an implementation with
+ * {@link com.amazonaws.geo.GeoDataManagerConfiguration#setMetricsPublisher(GeoMetricsPublisher)}.
+ * </p>
+ * <p>
+ * The publisher is called on the thread that issued the query, after all range queries have completed. Implementations
+ * must be thread safe and should not block.
+ * </p>
+ * 
+ * @see com.amazonaws.geo.metrics.micrometer.MicrometerGeoMetricsPublisher
+ * */
+public interface GeoMetricsPublisher {
+
+	/**
+	 * Publish the statistics of a completed query.
+	 * 
+	 * @param queryType
+	 *            Simple class name of the query request, e.g. QueryRadiusRequest.
+	 * 
+	 * @param stats
+	 *            Statistics of the query.
+	 */
+	void publish(String queryType, GeoQueryStats stats);
+}
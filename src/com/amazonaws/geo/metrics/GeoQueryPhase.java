@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.metrics;
+
+import com.amazonaws.geo.model.GeoQueryStats;
+
+/**
+ * Phases of a geo query that are timed in {@link GeoQueryStats}.
+ * */
+public enum GeoQueryPhase {
+	/**
+	 * Computing the S2 cell covering of the queried area.
+	 */
+	COVERING,
+
+	/**
+	 * Merging cells into geohash ranges and splitting them by hash key.
+	 */
+	PLANNING,
+
+	/**
+	 * Waiting for a thread of the ExecutorService to pick up a range query.
+	 */
+	QUEUEING,
+
+	/**
+	 * Waiting for Amazon DynamoDB.
+	 */
+	DYNAMODB_IO,
+
+	/**
+	 * Filtering the items returned by Amazon DynamoDB.
+	 */
+	FILTERING;
+
+	/**
+	 * @return Time spent in this phase by the query the statistics belong to.
+	 */
+	public long getNanos(GeoQueryStats stats) {
+		switch (this) {
+		case COVERING:
+			return stats.getCoveringNanos();
+		case PLANNING:
+			return stats.getPlanningNanos();
+		case QUEUEING:
+			return stats.getQueueingNanos();
+		case DYNAMODB_IO:
+			return stats.getDynamoDBNanos();
+		case FILTERING:
+			return stats.getFilteringNanos();
+		default:
+			throw new IllegalStateException("Unknown phase " + this);
+		}
+	}
+}
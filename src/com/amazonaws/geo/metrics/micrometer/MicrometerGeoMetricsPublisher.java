@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.metrics.micrometer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.geo.metrics.GeoMetricsPublisher;
+import com.amazonaws.geo.metrics.GeoQueryPhase;
+import com.amazonaws.geo.model.GeoQueryStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * <p>
+ * GeoMetricsPublisher that records geo query statistics to a Micrometer MeterRegistry. Micrometer is an optional
+ * dependency of this library; add micrometer-core to your application to use this class.
+ * </p>
+ * <p>
+ * Phase latencies are recorded as a timer named <code>dynamodb.geo.query.phase</code> tagged with
+ * <code>query</code> and <code>phase</code>, and the end-to-end latency as <code>dynamodb.geo.query</code>. Counts are
+ * recorded as distribution summaries named <code>dynamodb.geo.query.cells</code>, <code>.ranges</code>,
+ * <code>.queries</code>, <code>.pages</code>, <code>.items</code>, <code>.filtered</code>, <code>.interior</code>,
+ * <code>.hedged</code>, <code>.coalesced</code> and <code>.capacity</code>.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * config.setMetricsPublisher(new MicrometerGeoMetricsPublisher(meterRegistry));
+ * </pre>
+ * */
+public class MicrometerGeoMetricsPublisher implements GeoMetricsPublisher {
+	private static final String PREFIX = "dynamodb.geo.query";
+
+	private final MeterRegistry registry;
+
+	public MicrometerGeoMetricsPublisher(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void publish(String queryType, GeoQueryStats stats) {
+		timer(PREFIX, queryType, null).record(stats.getTotalNanos(), TimeUnit.NANOSECONDS);
+		for (GeoQueryPhase phase : GeoQueryPhase.values()) {
+			timer(PREFIX + ".phase", queryType, phase).record(phase.getNanos(stats), TimeUnit.NANOSECONDS);
+		}
+
+		summary("cells", queryType).record(stats.getCellCount());
+		summary("ranges", queryType).record(stats.getRangeCount());
+		summary("queries", queryType).record(stats.getQueryCount());
+		summary("pages", queryType).record(stats.getPageCount());
+		summary("items", queryType).record(stats.getItemCount());
+		summary("filtered", queryType).record(stats.getFilteredOutCount());
+		summary("interior", queryType).record(stats.getInteriorItemCount());
+		summary("hedged", queryType).record(stats.getHedgedQueryCount());
+		summary("coalesced", queryType).record(stats.getCoalescedQueryCount());
+		summary("capacity", queryType).record(stats.getConsumedCapacityUnits());
+	}
+
+	private Timer timer(String name, String queryType, GeoQueryPhase phase) {
+		Timer.Builder builder = Timer.builder(name).tag("query", queryType).publishPercentileHistogram();
+		if (phase != null) {
+			builder.tag("phase", phase.name().toLowerCase(Locale.ROOT));
+		}
+
+		return builder.register(registry);
+	}
+
+	private DistributionSummary summary(String name, String queryType) {
+		return DistributionSummary.builder(PREFIX + "." + name).tag("query", queryType).register(registry);
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import java.util.List;
+
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+
+/**
+ * Batch move point response, with one TransactWriteItems response per transaction the moves were packed into.
+ * 
+ * */
+public class BatchMovePointResponse extends GeoDataResponse {
+	private List<TransactWriteItemsResponse> transactWriteItemsResponses;
+
+	public BatchMovePointResponse(List<TransactWriteItemsResponse> transactWriteItemsResponses) {
+		this.transactWriteItemsResponses = transactWriteItemsResponses;
+	}
+
+	public List<TransactWriteItemsResponse> getTransactWriteItemsResponses() {
+		return transactWriteItemsResponses;
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import java.util.List;
+
+/**
+ * Radius queries run together by {@link com.amazonaws.geo.GeoDataManager#batchQueryRadius(List)}. This is the request
+ * reported to the GeoTraceListener and GeoMetricsPublisher for the whole batch.
+ * */
+public class BatchQueryRadiusRequest extends GeoQueryRequest {
+	private List<QueryRadiusRequest> queryRadiusRequests;
+
+	public BatchQueryRadiusRequest(List<QueryRadiusRequest> queryRadiusRequests) {
+		this.queryRadiusRequests = queryRadiusRequests;
+	}
+
+	public List<QueryRadiusRequest> getQueryRadiusRequests() {
+		return queryRadiusRequests;
+	}
+}
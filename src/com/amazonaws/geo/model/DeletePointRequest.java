@@ -25,6 +25,7 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 public class DeletePointRequest extends GeoDataRequest {
 	private final GeoPoint geoPoint;
 	private final AttributeValue rangeKeyValue;
+	private Long timestamp;
 
 	public DeletePointRequest(GeoPoint geoPoint, AttributeValue rangeKeyValue) {
 		this.geoPoint = geoPoint;
@@ -38,4 +39,22 @@ public class DeletePointRequest extends GeoDataRequest {
 	public AttributeValue getRangeKeyValue() {
 		return rangeKeyValue;
 	}
+
+	public Long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Set the time the point was written with, see {@link PutPointRequest#setTimestamp(Long)}. With a time bucketed
+	 * layout it selects the table of the point. No timestamp is set by default, which deletes the point from the table
+	 * named by the configuration.
+	 */
+	public void setTimestamp(Long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public DeletePointRequest withTimestamp(Long timestamp) {
+		setTimestamp(timestamp);
+		return this;
+	}
 }
@@ -16,6 +16,40 @@
 package com.amazonaws.geo.model;
 
 public class GeoQueryRequest extends GeoDataRequest {
+	private Long startTimestamp;
+	private Long endTimestamp;
+
 	public GeoQueryRequest() {
 	}
+
+	public Long getStartTimestamp() {
+		return startTimestamp;
+	}
+
+	public Long getEndTimestamp() {
+		return endTimestamp;
+	}
+
+	/**
+	 * Restrict the query to the points written with a timestamp in the window, see
+	 * {@link PutPointRequest#setTimestamp(Long)}. With a time bucketed layout only the tables of the buckets the window
+	 * overlaps are read. The radius queries of a batch must all have the same time window.
+	 * 
+	 * @param startTimestamp
+	 *            Start of the window, inclusive, in milliseconds since the epoch.
+	 * 
+	 * @param endTimestamp
+	 *            End of the window, inclusive, in milliseconds since the epoch.
+	 */
+	public void setTimeWindow(long startTimestamp, long endTimestamp) {
+		this.startTimestamp = startTimestamp;
+		this.endTimestamp = endTimestamp;
+	}
+
+	/**
+	 * @return true if a time window is set.
+	 */
+	public boolean hasTimeWindow() {
+		return startTimestamp != null && endTimestamp != null;
+	}
 }
@@ -27,9 +27,26 @@ public class GeoQueryResponse extends GeoDataResponse {
 	private List<Map<String, AttributeValue>> item;
 	private List<QueryResponse> queryResponses;
 
+	private double consumedCapacityUnits;
+	private long scannedCount;
+	private long pageCount;
+	private long rangeCount;
+
+	private GeoQueryStats queryStats;
+
 	public GeoQueryResponse() {
 		item = Collections.synchronizedList(new ArrayList<Map<String, AttributeValue>>());
 		queryResponses = Collections.synchronizedList(new ArrayList<QueryResponse>());
+		queryStats = new GeoQueryStats();
+	}
+
+	/**
+	 * Create a response that records into shared execution statistics, as the responses of a batch query do.
+	 */
+	public GeoQueryResponse(GeoQueryStats queryStats) {
+		this();
+
+		this.queryStats = queryStats;
 	}
 
 	public GeoQueryResponse(GeoQueryResponse geoQueryResponse) {
@@ -37,13 +54,80 @@ public class GeoQueryResponse extends GeoDataResponse {
 
 		item = geoQueryResponse.getItem();
 		queryResponses = geoQueryResponse.getQueryResponses();
+		queryStats = geoQueryResponse.getQueryStats();
+
+		synchronized (geoQueryResponse) {
+			consumedCapacityUnits = geoQueryResponse.consumedCapacityUnits;
+			scannedCount = geoQueryResponse.scannedCount;
+			pageCount = geoQueryResponse.pageCount;
+			rangeCount = geoQueryResponse.rangeCount;
+		}
 	}
 
 	public List<Map<String, AttributeValue>> getItem() {
 		return item;
 	}
 
+	/**
+	 * Raw Amazon DynamoDB pages behind this response. The list is empty unless the query was run with
+	 * {@link QueryResponseRetention#ALL}.
+	 */
 	public List<QueryResponse> getQueryResponses() {
 		return queryResponses;
 	}
+
+	/**
+	 * @return Execution statistics of the query.
+	 */
+	public GeoQueryStats getQueryStats() {
+		return queryStats;
+	}
+
+	/**
+	 * Add the consumed capacity and scanned count of a single page to the summary counters.
+	 * 
+	 * @param queryResponse
+	 *            A page returned by Amazon DynamoDB.
+	 */
+	public synchronized void addQuerySummary(QueryResponse queryResponse) {
+		if (queryResponse.consumedCapacity() != null && queryResponse.consumedCapacity().capacityUnits() != null) {
+			consumedCapacityUnits += queryResponse.consumedCapacity().capacityUnits();
+		}
+		if (queryResponse.scannedCount() != null) {
+			scannedCount += queryResponse.scannedCount();
+		}
+		pageCount++;
+	}
+
+	public synchronized void setRangeCount(long rangeCount) {
+		this.rangeCount = rangeCount;
+	}
+
+	/**
+	 * @return Total read capacity units consumed by all pages of the query.
+	 */
+	public synchronized double getConsumedCapacityUnits() {
+		return consumedCapacityUnits;
+	}
+
+	/**
+	 * @return Number of items Amazon DynamoDB read before the geo filter was applied.
+	 */
+	public synchronized long getScannedCount() {
+		return scannedCount;
+	}
+
+	/**
+	 * @return Number of QueryResponse pages read.
+	 */
+	public synchronized long getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * @return Number of geohash ranges the query was split into.
+	 */
+	public synchronized long getRangeCount() {
+		return rangeCount;
+	}
 }
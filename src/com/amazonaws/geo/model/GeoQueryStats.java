@@ -0,0 +1,248 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution statistics of a single geo query. The counters are updated concurrently by the worker threads while the
+ * query runs and are final once the query has returned.
+ * */
+public class GeoQueryStats {
+	private int cellCount;
+	private int rangeCount;
+	private int queryCount;
+
+	private final LongAdder pageCount = new LongAdder();
+	private final LongAdder itemCount = new LongAdder();
+	private final LongAdder filteredOutCount = new LongAdder();
+	private final LongAdder interiorItemCount = new LongAdder();
+	private final LongAdder hedgedQueryCount = new LongAdder();
+	private final LongAdder coalescedQueryCount = new LongAdder();
+	private final DoubleAdder consumedCapacityUnits = new DoubleAdder();
+
+	private long coveringNanos;
+	private long planningNanos;
+	private final LongAdder queueingNanos = new LongAdder();
+	private final LongAdder dynamoDBNanos = new LongAdder();
+	private final LongAdder filteringNanos = new LongAdder();
+	private long totalNanos;
+
+	/**
+	 * @return Number of S2 cells in the covering of the queried area.
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	public void setCellCount(int cellCount) {
+		this.cellCount = cellCount;
+	}
+
+	/**
+	 * @return Number of geohash ranges after continuous cells were merged.
+	 */
+	public int getRangeCount() {
+		return rangeCount;
+	}
+
+	public void setRangeCount(int rangeCount) {
+		this.rangeCount = rangeCount;
+	}
+
+	/**
+	 * @return Number of range queries issued after the merged ranges were split by hash key.
+	 */
+	public int getQueryCount() {
+		return queryCount;
+	}
+
+	public void setQueryCount(int queryCount) {
+		this.queryCount = queryCount;
+	}
+
+	/**
+	 * @return Number of QueryResponse pages read from Amazon DynamoDB.
+	 */
+	public long getPageCount() {
+		return pageCount.sum();
+	}
+
+	/**
+	 * @return Number of items read from Amazon DynamoDB before filtering.
+	 */
+	public long getItemCount() {
+		return itemCount.sum();
+	}
+
+	/**
+	 * @return Number of items read from Amazon DynamoDB and discarded by the geo filter.
+	 */
+	public long getFilteredOutCount() {
+		return filteredOutCount.sum();
+	}
+
+	/**
+	 * @return Number of items read from ranges inside the queried area, accepted without running the geo filter.
+	 */
+	public long getInteriorItemCount() {
+		return interiorItemCount.sum();
+	}
+
+	/**
+	 * @return Number of Query calls that were slow and issued a second time, see
+	 *         {@link com.amazonaws.geo.GeoDataManagerConfiguration#setHedgingPercentile(double)}.
+	 */
+	public long getHedgedQueryCount() {
+		return hedgedQueryCount.sum();
+	}
+
+	/**
+	 * @return Number of range queries whose pages were shared with a concurrent read of the same range, see
+	 *         {@link com.amazonaws.geo.GeoDataManagerConfiguration#setQueryCoalescing(boolean)}. The pages and
+	 *         consumed capacity of such ranges are counted by every query that received them.
+	 */
+	public long getCoalescedQueryCount() {
+		return coalescedQueryCount.sum();
+	}
+
+	/**
+	 * @return Total read capacity units consumed by the query.
+	 */
+	public double getConsumedCapacityUnits() {
+		return consumedCapacityUnits.sum();
+	}
+
+	/**
+	 * @return Time spent computing the S2 cell covering of the queried area.
+	 */
+	public long getCoveringNanos() {
+		return coveringNanos;
+	}
+
+	public void setCoveringNanos(long coveringNanos) {
+		this.coveringNanos = coveringNanos;
+	}
+
+	/**
+	 * @return Time spent merging cells into geohash ranges and splitting them by hash key.
+	 */
+	public long getPlanningNanos() {
+		return planningNanos;
+	}
+
+	public void setPlanningNanos(long planningNanos) {
+		this.planningNanos = planningNanos;
+	}
+
+	/**
+	 * @return Time range queries spent waiting for a thread of the ExecutorService, summed over all range queries.
+	 */
+	public long getQueueingNanos() {
+		return queueingNanos.sum();
+	}
+
+	public void addQueueing(long nanos) {
+		this.queueingNanos.add(nanos);
+	}
+
+	/**
+	 * @return Time spent waiting for Amazon DynamoDB, summed over all range queries.
+	 */
+	public long getDynamoDBNanos() {
+		return dynamoDBNanos.sum();
+	}
+
+	/**
+	 * @return Time spent filtering items, summed over all range queries.
+	 */
+	public long getFilteringNanos() {
+		return filteringNanos.sum();
+	}
+
+	/**
+	 * @return Wall clock time of the whole query.
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public void setTotalNanos(long totalNanos) {
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * Record a page read from Amazon DynamoDB.
+	 * 
+	 * @param itemCount
+	 *            Number of items in the page.
+	 * 
+	 * @param consumedCapacityUnits
+	 *            Read capacity units consumed by the page.
+	 * 
+	 * @param nanos
+	 *            Time spent waiting for the page.
+	 */
+	public void addPage(int itemCount, double consumedCapacityUnits, long nanos) {
+		this.pageCount.increment();
+		this.itemCount.add(itemCount);
+		this.consumedCapacityUnits.add(consumedCapacityUnits);
+		this.dynamoDBNanos.add(nanos);
+	}
+
+	/**
+	 * Record the filtering of a page.
+	 * 
+	 * @param filteredOutCount
+	 *            Number of items discarded by the filter.
+	 * 
+	 * @param nanos
+	 *            Time spent filtering the page.
+	 */
+	public void addFiltering(int filteredOutCount, long nanos) {
+		this.filteredOutCount.add(filteredOutCount);
+		this.filteringNanos.add(nanos);
+	}
+
+	/**
+	 * Record a page of an interior range, whose items were accepted without filtering.
+	 * 
+	 * @param interiorItemCount
+	 *            Number of items in the page.
+	 * 
+	 * @param nanos
+	 *            Time spent accepting the page.
+	 */
+	public void addInteriorItems(int interiorItemCount, long nanos) {
+		this.interiorItemCount.add(interiorItemCount);
+		this.filteringNanos.add(nanos);
+	}
+
+	/**
+	 * Record a Query call issued a second time because the first one was slow.
+	 */
+	public void addHedgedQuery() {
+		this.hedgedQueryCount.increment();
+	}
+
+	/**
+	 * Record a range query that received the pages of a concurrent read of the same range.
+	 */
+	public void addCoalescedQuery() {
+		this.coalescedQueryCount.increment();
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+/**
+ * Key layout of a geo table.
+ * 
+ * @see com.amazonaws.geo.GeoDataManagerConfiguration#setTableLayout(GeoTableLayout)
+ * @see com.amazonaws.geo.util.GeoTableBuilder
+ * */
+public enum GeoTableLayout {
+	/**
+	 * The original layout. The table is keyed by hash key and range key, and the geohash index is a local secondary
+	 * index on hash key and geohash. Every item of a hash key shares one partition, so a hash key can hold at most 10 GB
+	 * and its reads and writes share the throughput of that partition.
+	 */
+	LOCAL_INDEX,
+
+	/**
+	 * The table is keyed by range key only, and the geohash index is a global secondary index on hash key and geohash
+	 * with its own throughput. Items are spread over partitions by range key, so there is no item collection limit per
+	 * hash key. Range key values must be unique across the whole table, and queries on the index are eventually
+	 * consistent.
+	 */
+	GLOBAL_INDEX
+}
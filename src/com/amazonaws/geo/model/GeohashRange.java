@@ -25,6 +25,7 @@ public class GeohashRange {
 
 	private long rangeMin;
 	private long rangeMax;
+	private boolean interior;
 
 	public GeohashRange(long range1, long range2) {
 		this.rangeMin = Math.min(range1, range2);
@@ -32,6 +33,10 @@ public class GeohashRange {
 	}
 
 	public boolean tryMerge(GeohashRange range) {
+		if (range.isInterior() != this.interior) {
+			return false;
+		}
+
 		if (range.getRangeMin() - this.rangeMax <= GeoDataManagerConfiguration.MERGE_THRESHOLD
 				&& range.getRangeMin() - this.rangeMax > 0) {
 			this.rangeMax = range.getRangeMax();
@@ -100,13 +105,45 @@ public class GeohashRange {
 			result.add(this);
 		} else {
 			for (long l = minHashKey; l <= maxHashKey; l++) {
+				GeohashRange range;
 				if (l > 0) {
-					result.add(new GeohashRange(l == minHashKey ? rangeMin : l * denominator,
-							l == maxHashKey ? rangeMax : (l + 1) * denominator - 1));
+					range = new GeohashRange(l == minHashKey ? rangeMin : l * denominator,
+							l == maxHashKey ? rangeMax : (l + 1) * denominator - 1);
 				} else {
-					result.add(new GeohashRange(l == minHashKey ? rangeMin : (l - 1) * denominator + 1,
-							l == maxHashKey ? rangeMax : l * denominator));
+					range = new GeohashRange(l == minHashKey ? rangeMin : (l - 1) * denominator + 1,
+							l == maxHashKey ? rangeMax : l * denominator);
 				}
+				range.setInterior(interior);
+				result.add(range);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Split the range into parts of about the same geohash span, so that a dense range can be read by several queries
+	 * in parallel instead of one page after another. Every part keeps the interior flag.
+	 * 
+	 * @param parts
+	 *            Number of parts. Ranges narrower than that are split into single geohashes.
+	 */
+	public List<GeohashRange> split(int parts) {
+		List<GeohashRange> result = new ArrayList<GeohashRange>(parts);
+
+		// Geohash ranges are split by hash key first, so the span does not overflow.
+		long span = rangeMax - rangeMin;
+		long step = span / parts;
+		long remainder = span % parts;
+
+		long partMin = rangeMin;
+		for (int i = 1; i <= parts; i++) {
+			long partMax = i == parts ? rangeMax : rangeMin + step * i + remainder * i / parts;
+			if (partMax >= partMin) {
+				GeohashRange range = new GeohashRange(partMin, partMax);
+				range.setInterior(interior);
+				result.add(range);
+				partMin = partMax + 1;
 			}
 		}
 
@@ -128,4 +165,16 @@ public class GeohashRange {
 	public void setRangeMax(long rangeMax) {
 		this.rangeMax = rangeMax;
 	}
+
+	/**
+	 * @return True if every geohash in the range lies inside the queried area, so items of the range need no filtering.
+	 *         Interior and boundary ranges are never merged.
+	 */
+	public boolean isInterior() {
+		return interior;
+	}
+
+	public void setInterior(boolean interior) {
+		this.interior = interior;
+	}
 }
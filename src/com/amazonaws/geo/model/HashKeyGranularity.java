@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+/**
+ * A hash key granularity under which points are indexed: the attribute holding the hash key, the number of geohash
+ * digits the hash key keeps, and the index keyed by that attribute and the geohash. A short hash key covers a large
+ * area, so large queries need fewer Query calls; a long hash key spreads small queries over more partitions.
+ * 
+ * @see com.amazonaws.geo.GeoDataManagerConfiguration#setAdditionalHashKeyGranularities(java.util.List)
+ * */
+public class HashKeyGranularity {
+	private final String hashKeyAttributeName;
+	private final int hashKeyLength;
+	private final String indexName;
+
+	public HashKeyGranularity(String hashKeyAttributeName, int hashKeyLength, String indexName) {
+		this.hashKeyAttributeName = hashKeyAttributeName;
+		this.hashKeyLength = hashKeyLength;
+		this.indexName = indexName;
+	}
+
+	public String getHashKeyAttributeName() {
+		return hashKeyAttributeName;
+	}
+
+	public int getHashKeyLength() {
+		return hashKeyLength;
+	}
+
+	public String getIndexName() {
+		return indexName;
+	}
+}
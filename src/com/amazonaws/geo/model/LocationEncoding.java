@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+/**
+ * How the location of a point is stored in the geoJson attribute of its item. Reads accept every encoding, whatever
+ * the configured one, so a table can switch encodings while it holds points written with another.
+ * 
+ * @see com.amazonaws.geo.GeoDataManagerConfiguration#setLocationEncoding(LocationEncoding)
+ * */
+public enum LocationEncoding {
+	/**
+	 * A GeoJSON string, such as <code>{"type":"Point","coordinates":[47.5,-122.3]}</code>.
+	 */
+	GEOJSON,
+
+	/**
+	 * A 16 byte binary attribute: the latitude and the longitude as big-endian IEEE 754 doubles.
+	 */
+	BINARY,
+
+	/**
+	 * An 8 byte binary attribute: the latitude and the longitude in degrees times 10^7, rounded to big-endian 32 bit
+	 * integers. The location is kept to about a centimeter.
+	 */
+	SCALED_INTEGER
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Move point request. The request must specify the current geo point of the item, the geo point to move it to, and
+ * its range key value. The current geo point is needed to find the item, as it determines the hash key.
+ * 
+ * */
+public class MovePointRequest extends GeoDataRequest {
+	private GeoPoint oldGeoPoint;
+	private GeoPoint newGeoPoint;
+	private AttributeValue rangeKeyValue;
+	private Long timestamp;
+	private Long newTimestamp;
+
+	public MovePointRequest(GeoPoint oldGeoPoint, GeoPoint newGeoPoint, AttributeValue rangeKeyValue) {
+		this.oldGeoPoint = oldGeoPoint;
+		this.newGeoPoint = newGeoPoint;
+		this.rangeKeyValue = rangeKeyValue;
+	}
+
+	public GeoPoint getOldGeoPoint() {
+		return oldGeoPoint;
+	}
+
+	public GeoPoint getNewGeoPoint() {
+		return newGeoPoint;
+	}
+
+	public AttributeValue getRangeKeyValue() {
+		return rangeKeyValue;
+	}
+
+	public Long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Set the time the point was written with, see {@link PutPointRequest#setTimestamp(Long)}. With a time bucketed
+	 * layout it selects the table the point is moved from. No timestamp is set by default, which moves the point from
+	 * the table named by the configuration.
+	 */
+	public void setTimestamp(Long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public MovePointRequest withTimestamp(Long timestamp) {
+		setTimestamp(timestamp);
+		return this;
+	}
+
+	/**
+	 * @return The timestamp of the point at its new location: the new timestamp if one is set, otherwise the current
+	 *         one.
+	 */
+	public Long getNewTimestamp() {
+		return newTimestamp != null ? newTimestamp : timestamp;
+	}
+
+	/**
+	 * Set the time of the point at its new location. It is stored in the timestamp attribute and, with a time bucketed
+	 * layout, selects the table the point is moved to; a point moved to another bucket is deleted from the table of
+	 * the old one. The point keeps its current timestamp by default.
+	 */
+	public void setNewTimestamp(Long newTimestamp) {
+		this.newTimestamp = newTimestamp;
+	}
+
+	public MovePointRequest withNewTimestamp(Long newTimestamp) {
+		setNewTimestamp(newTimestamp);
+		return this;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * Move point response. A move that keeps the hash key is a single UpdateItem call, and a move to another hash key is a
+ * single TransactWriteItems call; the response of the other call is null.
+ * 
+ * */
+public class MovePointResponse extends GeoDataResponse {
+	private UpdateItemResponse updateItemResponse;
+	private TransactWriteItemsResponse transactWriteItemsResponse;
+
+	public MovePointResponse(UpdateItemResponse updateItemResponse) {
+		this.updateItemResponse = updateItemResponse;
+	}
+
+	public MovePointResponse(TransactWriteItemsResponse transactWriteItemsResponse) {
+		this.transactWriteItemsResponse = transactWriteItemsResponse;
+	}
+
+	public UpdateItemResponse getUpdateItemResponse() {
+		return updateItemResponse;
+	}
+
+	public TransactWriteItemsResponse getTransactWriteItemsResponse() {
+		return transactWriteItemsResponse;
+	}
+}
@@ -29,6 +29,7 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 public class PutPointRequest extends GeoDataRequest {
 	private GeoPoint geoPoint;
 	private AttributeValue rangeKeyValue;
+	private Long timestamp;
 
 	public PutPointRequest(GeoPoint geoPoint, AttributeValue rangeKeyValue) {
 		this.geoPoint = geoPoint;
@@ -42,4 +43,23 @@ public class PutPointRequest extends GeoDataRequest {
 	public AttributeValue getRangeKeyValue() {
 		return rangeKeyValue;
 	}
+
+	public Long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Set the time of the point, in milliseconds since the epoch. It is stored in the timestamp attribute and, with a
+	 * time bucketed layout, selects the table the point is written to. No timestamp is stored by default.
+	 * 
+	 * @see GeoDataManagerConfiguration#setTimeBucketMillis(long)
+	 */
+	public void setTimestamp(Long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public PutPointRequest withTimestamp(Long timestamp) {
+		setTimestamp(timestamp);
+		return this;
+	}
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import java.util.List;
+
+public class QueryCorridorRequest extends GeoQueryRequest {
+	private List<GeoPoint> polyline;
+	private double bufferInMeter;
+
+	/**
+	 * @param polyline
+	 *            Vertices of the route, in order.
+	 * 
+	 * @param bufferInMeter
+	 *            Maximum distance of a point from the route.
+	 */
+	public QueryCorridorRequest(List<GeoPoint> polyline, double bufferInMeter) {
+		this.polyline = polyline;
+		this.bufferInMeter = bufferInMeter;
+	}
+
+	public List<GeoPoint> getPolyline() {
+		return polyline;
+	}
+
+	public double getBufferInMeter() {
+		return bufferInMeter;
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+public class QueryExistsResponse extends GeoQueryResponse {
+	private boolean exists;
+
+	public QueryExistsResponse(GeoQueryResponse geoQueryResponse, boolean exists) {
+		super(geoQueryResponse);
+		this.exists = exists;
+	}
+
+	/**
+	 * @return True if at least one point lies within the queried area.
+	 */
+	public boolean exists() {
+		return exists;
+	}
+}
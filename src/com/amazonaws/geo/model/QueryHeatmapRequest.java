@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+/**
+ * Count the points of a rectangular area, grouped by the S2 cell of a given level that contains them.
+ * */
+public class QueryHeatmapRequest extends QueryRectangleRequest {
+	private int cellLevel;
+
+	/**
+	 * @param cellLevel
+	 *            S2 cell level of the heatmap, from 0 (cube faces) to 30 (leaf cells). Each level halves the edge of
+	 *            the cells, e.g. level 10 cells are about 10 km wide and level 14 cells about 600 m wide. Every cell of
+	 *            the level inside the area is counted separately, so pick a level that yields a few hundred cells. An
+	 *            area of more than {@link com.amazonaws.geo.GeoDataManager#MAX_HEATMAP_CELLS} cells is rejected.
+	 */
+	public QueryHeatmapRequest(GeoPoint minPoint, GeoPoint maxPoint, int cellLevel) {
+		super(minPoint, maxPoint);
+		this.cellLevel = cellLevel;
+	}
+
+	public int getCellLevel() {
+		return cellLevel;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import java.util.Map;
+
+public class QueryHeatmapResponse extends GeoQueryResponse {
+	private Map<Long, Long> cellCounts;
+
+	public QueryHeatmapResponse(GeoQueryResponse geoQueryResponse, Map<Long, Long> cellCounts) {
+		super(geoQueryResponse);
+		this.cellCounts = cellCounts;
+	}
+
+	/**
+	 * @return Number of points per S2 cell id, ordered by cell id. Cells without points are left out. A cell id is a
+	 *         geohash prefix, so {@code new S2CellId(id).toLatLng()} gives the center of the cell.
+	 */
+	public Map<Long, Long> getCellCounts() {
+		return cellCounts;
+	}
+
+	public long getTotalCount() {
+		long totalCount = 0;
+		for (long count : cellCounts.values()) {
+			totalCount += count;
+		}
+
+		return totalCount;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+import java.util.List;
+
+public class QueryPolygonRequest extends GeoQueryRequest {
+	private List<GeoPoint> vertices;
+
+	/**
+	 * @param vertices
+	 *            Vertices of a simple polygon, in either winding order. The polygon is closed implicitly; the first
+	 *            vertex may be repeated at the end. The polygon is interpreted as the smaller of the two regions the
+	 *            vertices enclose.
+	 */
+	public QueryPolygonRequest(List<GeoPoint> vertices) {
+		this.vertices = vertices;
+	}
+
+	public List<GeoPoint> getVertices() {
+		return vertices;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+/**
+ * Controls how much of the raw Amazon DynamoDB output a GeoQueryResponse keeps once the items have been filtered.
+ * 
+ * @see com.amazonaws.geo.GeoDataManagerConfiguration#setQueryResponseRetention(QueryResponseRetention)
+ * */
+public enum QueryResponseRetention {
+	/**
+	 * Keep every QueryResponse page in {@link GeoQueryResponse#getQueryResponses()} as well as the summary counters.
+	 */
+	ALL,
+
+	/**
+	 * Drop the QueryResponse pages but keep the summary counters: consumed capacity, scanned count, page count and
+	 * range count.
+	 */
+	SUMMARY,
+
+	/**
+	 * Keep only the filtered items.
+	 */
+	NONE
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.model;
+
+/**
+ * A table of a time bucketed layout read by a query. If the time window of the query covers only part of the bucket,
+ * the bucket also holds the timestamps to keep, which Amazon DynamoDB filters on before returning items.
+ * 
+ * @see com.amazonaws.geo.GeoDataManagerConfiguration#setTimeBucketMillis(long)
+ * */
+public class TimeBucket {
+	private final String tableName;
+	private final Long minTimestamp;
+	private final Long maxTimestamp;
+
+	/**
+	 * @param tableName
+	 *            Table of the bucket.
+	 * 
+	 * @param minTimestamp
+	 *            Lowest timestamp to keep, inclusive, or null to keep every item of the bucket.
+	 * 
+	 * @param maxTimestamp
+	 *            Highest timestamp to keep, inclusive, or null to keep every item of the bucket.
+	 */
+	public TimeBucket(String tableName, Long minTimestamp, Long maxTimestamp) {
+		this.tableName = tableName;
+		this.minTimestamp = minTimestamp;
+		this.maxTimestamp = maxTimestamp;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public Long getMinTimestamp() {
+		return minTimestamp;
+	}
+
+	public Long getMaxTimestamp() {
+		return maxTimestamp;
+	}
+
+	/**
+	 * @return true if only the items with a timestamp between minTimestamp and maxTimestamp are kept.
+	 */
+	public boolean isPartial() {
+		return minTimestamp != null && maxTimestamp != null;
+	}
+}
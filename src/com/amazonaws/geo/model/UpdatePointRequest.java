@@ -26,6 +26,7 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 public class UpdatePointRequest extends GeoDataRequest {
 	private GeoPoint geoPoint;
 	private AttributeValue rangeKeyValue;
+	private Long timestamp;
 
 	public UpdatePointRequest(GeoPoint geoPoint, AttributeValue rangeKeyValue) {
 		this.geoPoint = geoPoint;
@@ -39,4 +40,22 @@ public class UpdatePointRequest extends GeoDataRequest {
 	public AttributeValue getRangeKeyValue() {
 		return rangeKeyValue;
 	}
+
+	public Long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Set the time the point was written with, see {@link PutPointRequest#setTimestamp(Long)}. With a time bucketed
+	 * layout it selects the table of the point. No timestamp is set by default, which updates the point in the table
+	 * named by the configuration.
+	 */
+	public void setTimestamp(Long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public UpdatePointRequest withTimestamp(Long timestamp) {
+		setTimestamp(timestamp);
+		return this;
+	}
 }
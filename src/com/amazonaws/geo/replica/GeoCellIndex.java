@@ -0,0 +1,360 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.replica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import com.amazonaws.geo.model.GeohashRange;
+
+/**
+ * <p>
+ * An in-process spatial index of points sorted by geohash, the S2 cell id S2Manager.generateGeohash computes. Points
+ * are stored in parallel primitive arrays of geohashes, latitudes, longitudes and payload handles, so that a geohash
+ * range is answered by a binary search and a sequential scan without any per-point object.
+ * </p>
+ * <p>
+ * The arrays are copy-on-write: readers use an immutable snapshot and never block, while an Editor collects changes
+ * and replaces the snapshot in a single O(n + k log k) merge on commit. Batch changes together rather than committing
+ * each of them.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * GeoCellIndex&lt;String, Vehicle&gt; index = new GeoCellIndex&lt;String, Vehicle&gt;();
+ * 
+ * GeoCellIndex&lt;String, Vehicle&gt;.Editor editor = index.edit();
+ * editor.put(vehicle.getId(), S2Manager.generateGeohash(geoPoint), geoPoint.getLatitude(), geoPoint.getLongitude(),
+ * 		vehicle);
+ * editor.commit();
+ * 
+ * index.query(ranges, (payload, latitude, longitude) -&gt; System.out.println(payload));
+ * </pre>
+ * 
+ * @param <K>
+ *            Type of the key identifying a point, e.g. its primary key.
+ * 
+ * @param <T>
+ *            Type of the payload of a point.
+ * */
+public class GeoCellIndex<K, T> {
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Receives the points of a query, one call per point.
+	 */
+	public interface PointVisitor<T> {
+		void visit(T payload, double latitude, double longitude);
+	}
+
+	/**
+	 * Receives the points of a query one geohash range at a time, as a run of the coordinate arrays of the snapshot
+	 * read. The arrays are shared and must not be modified.
+	 */
+	public interface RunVisitor<T> {
+		/**
+		 * @param latitudes
+		 *            Latitudes of the snapshot, of which the run uses index from to index to, exclusive.
+		 * @param longitudes
+		 *            Longitudes of the snapshot, indexed as latitudes.
+		 * @param payloads
+		 *            Returns the payload of the point at an index of the arrays.
+		 */
+		void visit(double[] latitudes, double[] longitudes, int from, int to, IntFunction<T> payloads);
+	}
+
+	// Written only while holding the monitor of this index.
+	private final Map<K, Integer> handles = new HashMap<K, Integer>();
+	private int[] freeHandles = new int[INITIAL_CAPACITY];
+	private int freeHandleCount;
+	private int nextHandle;
+
+	private volatile Snapshot snapshot = new Snapshot(new long[0], new double[0], new double[0], new int[0],
+			new Object[0]);
+
+	/**
+	 * @return An editor that applies its changes to this index on commit.
+	 */
+	public Editor edit() {
+		return new Editor();
+	}
+
+	/**
+	 * @return Number of points in the index.
+	 */
+	public int size() {
+		return snapshot.geohashes.length;
+	}
+
+	/**
+	 * Visit every point whose geohash falls in one of the ranges. Each range is a binary search followed by a
+	 * sequential scan of the arrays; the ranges are read from the same snapshot.
+	 * 
+	 * @param ranges
+	 *            Geohash ranges to read.
+	 * 
+	 * @param visitor
+	 *            Receives the payload and location of each point.
+	 * 
+	 * @return Number of points visited.
+	 */
+	public int query(List<GeohashRange> ranges, PointVisitor<T> visitor) {
+		Snapshot s = snapshot;
+		int count = 0;
+
+		for (GeohashRange range : ranges) {
+			for (int i = lowerBound(s.geohashes, range.getRangeMin()); i < s.geohashes.length
+					&& s.geohashes[i] <= range.getRangeMax(); i++) {
+				visitor.visit(s.getPayload(i), s.latitudes[i], s.longitudes[i]);
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Visit the points whose geohash falls in one of the ranges, one run of the coordinate arrays per range, so that
+	 * the visitor can test the locations in bulk, e.g. with GeoFilter.contains(double[], double[], ...), without any
+	 * per-point call or object.
+	 * 
+	 * @param ranges
+	 *            Geohash ranges to read.
+	 * 
+	 * @param visitor
+	 *            Receives the run of each range that holds points.
+	 * 
+	 * @return Number of points visited.
+	 */
+	public int queryRuns(List<GeohashRange> ranges, RunVisitor<T> visitor) {
+		Snapshot s = snapshot;
+		int count = 0;
+
+		for (GeohashRange range : ranges) {
+			int from = lowerBound(s.geohashes, range.getRangeMin());
+			int to = upperBound(s.geohashes, range.getRangeMax());
+			if (from < to) {
+				visitor.visit(s.latitudes, s.longitudes, from, to, s::getPayload);
+				count += to - from;
+			}
+		}
+
+		return count;
+	}
+
+	private static int lowerBound(long[] geohashes, long geohash) {
+		int low = 0;
+		int high = geohashes.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (geohashes[mid] < geohash) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	private static int upperBound(long[] geohashes, long geohash) {
+		int low = 0;
+		int high = geohashes.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (geohashes[mid] <= geohash) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Replace the snapshot with one that holds the changes of an editor. Points of changed keys are dropped from the
+	 * current arrays, and the new points are sorted and merged in.
+	 */
+	private synchronized void commit(Map<K, Entry<T>> changes) {
+		Snapshot s = snapshot;
+		BitSet removedHandles = new BitSet();
+		List<Entry<T>> additions = new ArrayList<Entry<T>>();
+
+		for (Map.Entry<K, Entry<T>> change : changes.entrySet()) {
+			Integer handle = handles.remove(change.getKey());
+			if (handle != null) {
+				removedHandles.set(handle);
+			}
+		}
+
+		Object[] payloads = Arrays.copyOf(s.payloads, s.payloads.length);
+		for (int handle = removedHandles.nextSetBit(0); handle >= 0; handle = removedHandles.nextSetBit(handle + 1)) {
+			payloads[handle] = null;
+			freeHandle(handle);
+		}
+		for (Map.Entry<K, Entry<T>> change : changes.entrySet()) {
+			Entry<T> entry = change.getValue();
+			if (entry != null) {
+				entry.handle = allocateHandle();
+				handles.put(change.getKey(), entry.handle);
+				if (entry.handle >= payloads.length) {
+					payloads = Arrays.copyOf(payloads, Math.max(INITIAL_CAPACITY, payloads.length * 2));
+				}
+				payloads[entry.handle] = entry.payload;
+				additions.add(entry);
+			}
+		}
+		additions.sort((a, b) -> Long.compare(a.geohash, b.geohash));
+
+		int remaining = 0;
+		for (int i = 0; i < s.handles.length; i++) {
+			if (!removedHandles.get(s.handles[i])) {
+				remaining++;
+			}
+		}
+
+		int size = remaining + additions.size();
+		long[] geohashes = new long[size];
+		double[] latitudes = new double[size];
+		double[] longitudes = new double[size];
+		int[] pointHandles = new int[size];
+
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < size; k++) {
+			while (i < s.handles.length && removedHandles.get(s.handles[i])) {
+				i++;
+			}
+
+			if (j >= additions.size() || (i < s.handles.length && s.geohashes[i] <= additions.get(j).geohash)) {
+				geohashes[k] = s.geohashes[i];
+				latitudes[k] = s.latitudes[i];
+				longitudes[k] = s.longitudes[i];
+				pointHandles[k] = s.handles[i];
+				i++;
+			} else {
+				Entry<T> entry = additions.get(j++);
+				geohashes[k] = entry.geohash;
+				latitudes[k] = entry.latitude;
+				longitudes[k] = entry.longitude;
+				pointHandles[k] = entry.handle;
+			}
+		}
+
+		snapshot = new Snapshot(geohashes, latitudes, longitudes, pointHandles, payloads);
+	}
+
+	private int allocateHandle() {
+		return freeHandleCount > 0 ? freeHandles[--freeHandleCount] : nextHandle++;
+	}
+
+	private void freeHandle(int handle) {
+		if (freeHandleCount == freeHandles.length) {
+			freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+		}
+		freeHandles[freeHandleCount++] = handle;
+	}
+
+	/**
+	 * Collects changes to the index until commit. An editor is not thread safe; use one per thread, or synchronize.
+	 */
+	public class Editor {
+		private final Map<K, Entry<T>> changes = new LinkedHashMap<K, Entry<T>>();
+
+		private Editor() {
+		}
+
+		/**
+		 * Add a point, or replace the point of the same key.
+		 */
+		public Editor put(K key, long geohash, double latitude, double longitude, T payload) {
+			changes.put(key, new Entry<T>(geohash, latitude, longitude, payload));
+			return this;
+		}
+
+		/**
+		 * Remove the point of a key, if any.
+		 */
+		public Editor remove(K key) {
+			changes.put(key, null);
+			return this;
+		}
+
+		/**
+		 * @return Number of changes collected so far.
+		 */
+		public int size() {
+			return changes.size();
+		}
+
+		/**
+		 * Apply the collected changes to the index at once. Readers see either none or all of them.
+		 */
+		public void commit() {
+			if (!changes.isEmpty()) {
+				GeoCellIndex.this.commit(changes);
+				changes.clear();
+			}
+		}
+	}
+
+	private static class Entry<T> {
+		private final long geohash;
+		private final double latitude;
+		private final double longitude;
+		private final T payload;
+		private int handle;
+
+		public Entry(long geohash, double latitude, double longitude, T payload) {
+			this.geohash = geohash;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.payload = payload;
+		}
+	}
+
+	/**
+	 * Immutable arrays of the index. Payloads are indexed by handle, so that a handle freed by a later commit still
+	 * resolves to the payload of this snapshot.
+	 */
+	private static class Snapshot {
+		private final long[] geohashes;
+		private final double[] latitudes;
+		private final double[] longitudes;
+		private final int[] handles;
+		private final Object[] payloads;
+
+		public Snapshot(long[] geohashes, double[] latitudes, double[] longitudes, int[] handles, Object[] payloads) {
+			this.geohashes = geohashes;
+			this.latitudes = latitudes;
+			this.longitudes = longitudes;
+			this.handles = handles;
+			this.payloads = payloads;
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> T getPayload(int i) {
+			return (T) payloads[handles[i]];
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.replica;
+
+import java.util.List;
+
+import software.amazon.awssdk.services.dynamodb.model.Record;
+
+/**
+ * <p>
+ * A feed of the changes made to a geo table, in the form of Amazon DynamoDB Streams records. Records of the same item
+ * must be returned in the order the changes were made, and INSERT and MODIFY records must carry the new image of the
+ * item, i.e. the stream view type must be NEW_IMAGE or NEW_AND_OLD_IMAGES.
+ * </p>
+ * <p>
+ * An implementation may read an Amazon DynamoDB stream, e.g. through the Kinesis Client Library, or be the
+ * InMemoryChangeFeed of InMemoryDynamoDBClient for tests.
+ * </p>
+ * */
+public interface GeoChangeFeed {
+	/**
+	 * @return The records published since the previous call, oldest first. The list is empty if there is no new
+	 *         record.
+	 */
+	List<Record> poll();
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.replica;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import com.amazonaws.geo.GeoDataManager;
+import com.amazonaws.geo.GeoDataManagerConfiguration;
+import com.amazonaws.geo.model.GeoQueryRequest;
+import com.amazonaws.geo.model.GeoQueryResponse;
+import com.amazonaws.geo.model.GeoQueryStats;
+import com.amazonaws.geo.model.GeoTableLayout;
+import com.amazonaws.geo.model.GeohashRange;
+import com.amazonaws.geo.model.QueryRadiusRequest;
+import com.amazonaws.geo.model.QueryRadiusResponse;
+import com.amazonaws.geo.model.QueryRectangleRequest;
+import com.amazonaws.geo.model.QueryRectangleResponse;
+import com.amazonaws.geo.s2.internal.GeoFilter;
+import com.amazonaws.geo.s2.internal.S2Manager;
+import com.amazonaws.geo.s2.internal.S2Util;
+import com.amazonaws.geo.util.GeoLocationCodec;
+import com.google.common.geometry.S2CellUnion;
+import com.google.common.geometry.S2LatLng;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * <p>
+ * An in-memory replica of a geo table that answers rectangle and radius queries without calling Amazon DynamoDB. The
+ * replica is loaded with a parallel Scan of the table, then kept up to date by applying the records of a
+ * GeoChangeFeed. Responses are the same as the ones of GeoDataManager, except that they hold no raw Amazon DynamoDB
+ * pages and consume no capacity.
+ * </p>
+ * <p>
+ * Open the change feed before bootstrapping, so that changes made during the Scan are applied afterwards. Records
+ * replace or remove whole items, so replaying changes the Scan has already seen leaves the replica as the table is.
+ * Items are only as fresh as the last applyChanges() call, which must not run before bootstrap() has returned.
+ * </p>
+ * <p>
+ * Items are stored in a GeoCellIndex: queries read an immutable snapshot and never wait for changes, and the changes
+ * of a bootstrap() or applyChanges() call become visible at once.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * GeoChangeFeed changeFeed = openChangeFeed();
+ * GeoReplica geoReplica = new GeoReplica(config, changeFeed);
+ * geoReplica.bootstrap(8);
+ * scheduler.scheduleWithFixedDelay(geoReplica::applyChanges, 0, 100, TimeUnit.MILLISECONDS);
+ * 
+ * QueryRadiusResponse queryRadiusResponse = geoReplica.queryRadius(new QueryRadiusRequest(centerPoint, 100));
+ * </pre>
+ * 
+ * @see GeoDataManager
+ * */
+public class GeoReplica {
+	/**
+	 * Points filtered per call of the batch filter. The points of a range are copied into buffers of this size, so
+	 * that a query needs no array as large as the replica.
+	 */
+	private static final int FILTER_CHUNK_SIZE = 1024;
+
+	private final GeoDataManagerConfiguration config;
+	private final GeoChangeFeed changeFeed;
+
+	private final GeoCellIndex<Map<String, AttributeValue>, Map<String, AttributeValue>> index = new GeoCellIndex<Map<String, AttributeValue>, Map<String, AttributeValue>>();
+
+	public GeoReplica(GeoDataManagerConfiguration config, GeoChangeFeed changeFeed) {
+		this.config = config;
+		this.changeFeed = changeFeed;
+	}
+
+	/**
+	 * Load every item of the table with a parallel Scan, one segment per task on the executor service of the
+	 * configuration.
+	 * 
+	 * @param totalSegments
+	 *            Number of Scan segments.
+	 */
+	public void bootstrap(int totalSegments) {
+		if (totalSegments < 1) {
+			throw new IllegalArgumentException("totalSegments must be at least 1.");
+		}
+
+		// The whole table is committed at once, rather than copying the index for every page.
+		GeoCellIndex<Map<String, AttributeValue>, Map<String, AttributeValue>>.Editor editor = index.edit();
+		List<Future<?>> futureList = new ArrayList<Future<?>>();
+		for (int segment = 0; segment < totalSegments; segment++) {
+			int scanSegment = segment;
+			futureList.add(config.getExecutorService().submit(() -> scanSegment(scanSegment, totalSegments, editor)));
+		}
+
+		for (int i = 0; i < futureList.size(); i++) {
+			try {
+				futureList.get(i).get();
+			} catch (Exception e) {
+				for (int j = i + 1; j < futureList.size(); j++) {
+					futureList.get(j).cancel(true);
+				}
+				throw SdkException.builder().cause(e).message("Scanning Amazon DynamoDB failed.").build();
+			}
+		}
+
+		editor.commit();
+	}
+
+	private void scanSegment(int segment, int totalSegments,
+			GeoCellIndex<Map<String, AttributeValue>, Map<String, AttributeValue>>.Editor editor) {
+		Map<String, AttributeValue> lastEvaluatedKey = null;
+
+		do {
+			ScanRequest scanRequest = ScanRequest.builder()
+				.tableName(config.getTableName())
+				.segment(segment)
+				.totalSegments(totalSegments)
+				.exclusiveStartKey(lastEvaluatedKey).build();
+			ScanResponse scanResponse = config.getDynamoDBClient().scan(scanRequest);
+
+			synchronized (editor) {
+				for (Map<String, AttributeValue> item : scanResponse.items()) {
+					put(editor, item);
+				}
+			}
+
+			lastEvaluatedKey = scanResponse.hasLastEvaluatedKey() ? scanResponse.lastEvaluatedKey() : null;
+
+		} while (lastEvaluatedKey != null && !Thread.currentThread().isInterrupted());
+	}
+
+	/**
+	 * Apply the records the change feed has published since the previous call.
+	 * 
+	 * @return Number of records applied.
+	 */
+	public int applyChanges() {
+		List<Record> records = changeFeed.poll();
+		if (records.isEmpty()) {
+			return 0;
+		}
+
+		GeoCellIndex<Map<String, AttributeValue>, Map<String, AttributeValue>>.Editor editor = index.edit();
+		for (Record record : records) {
+			if (record.eventName() == OperationType.REMOVE) {
+				editor.remove(getPrimaryKey(record.dynamodb().keys()));
+			} else {
+				put(editor, record.dynamodb().newImage());
+			}
+		}
+		editor.commit();
+
+		return records.size();
+	}
+
+	/**
+	 * @return Number of items in the replica.
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Query a rectangular area, as {@link GeoDataManager#queryRectangle(QueryRectangleRequest)} does.
+	 */
+	public QueryRectangleResponse queryRectangle(QueryRectangleRequest queryRectangleRequest) {
+		return new QueryRectangleResponse(query(queryRectangleRequest));
+	}
+
+	/**
+	 * Query a circular area, as {@link GeoDataManager#queryRadius(QueryRadiusRequest)} does.
+	 */
+	public QueryRadiusResponse queryRadius(QueryRadiusRequest queryRadiusRequest) {
+		return new QueryRadiusResponse(query(queryRadiusRequest));
+	}
+
+	private GeoQueryResponse query(GeoQueryRequest geoQueryRequest) {
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = System.nanoTime();
+		S2CellUnion cellUnion = S2Manager.findCellIds(S2Util.getBoundingLatLngRect(geoQueryRequest));
+		GeoFilter geoFilter = S2Util.getGeoFilter(geoQueryRequest);
+		List<GeohashRange> ranges = S2Manager.getGeohashRanges(cellUnion);
+		stats.setCellCount(cellUnion.size());
+		stats.setRangeCount(ranges.size());
+		stats.setCoveringNanos(System.nanoTime() - coveringStartNanos);
+
+		long filteringStartNanos = System.nanoTime();
+		List<Map<String, AttributeValue>> result = geoQueryResponse.getItem();
+		double[] latitudeChunk = new double[FILTER_CHUNK_SIZE];
+		double[] longitudeChunk = new double[FILTER_CHUNK_SIZE];
+		boolean[] contained = new boolean[FILTER_CHUNK_SIZE];
+		int itemCount = index.queryRuns(ranges, (latitudes, longitudes, from, to, items) -> {
+			for (int start = from; start < to; start += FILTER_CHUNK_SIZE) {
+				int length = Math.min(FILTER_CHUNK_SIZE, to - start);
+				System.arraycopy(latitudes, start, latitudeChunk, 0, length);
+				System.arraycopy(longitudes, start, longitudeChunk, 0, length);
+				geoFilter.contains(latitudeChunk, longitudeChunk, 0, length, contained);
+
+				for (int i = 0; i < length; i++) {
+					if (contained[i]) {
+						result.add(items.apply(start + i));
+					}
+				}
+			}
+		});
+		int filteredOutCount = itemCount - result.size();
+		stats.addPage(itemCount, 0, 0);
+		stats.addFiltering(filteredOutCount, System.nanoTime() - filteringStartNanos);
+		stats.setTotalNanos(System.nanoTime() - startNanos);
+
+		return geoQueryResponse;
+	}
+
+	/**
+	 * Items without a geohash are not geo points and are removed from the replica.
+	 */
+	private void put(GeoCellIndex<Map<String, AttributeValue>, Map<String, AttributeValue>>.Editor editor,
+			Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = getPrimaryKey(item);
+		AttributeValue geohashValue = item.get(config.getGeohashAttributeName());
+		if (geohashValue == null || geohashValue.n() == null) {
+			editor.remove(key);
+			return;
+		}
+
+		S2LatLng latLng = getLatLng(item);
+		editor.put(key, Long.parseLong(geohashValue.n()), latLng.latDegrees(), latLng.lngDegrees(), item);
+	}
+
+	/**
+	 * The primary key of an item. With the global index layout the table is keyed by range key only.
+	 */
+	private Map<String, AttributeValue> getPrimaryKey(Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		if (config.getTableLayout() != GeoTableLayout.GLOBAL_INDEX) {
+			key.put(config.getHashKeyAttributeName(), item.get(config.getHashKeyAttributeName()));
+		}
+		key.put(config.getRangeKeyAttributeName(), item.get(config.getRangeKeyAttributeName()));
+
+		return key;
+	}
+
+	private S2LatLng getLatLng(Map<String, AttributeValue> item) {
+		return GeoLocationCodec.decodeLatLng(item.get(config.getGeoJsonAttributeName()));
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.s2.internal;
+
+import com.google.common.geometry.S2ContainsPointQuery;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Polygon;
+
+/**
+ * Precise test of whether a point lies within a queried area. A filter is built once per query and shared by all of
+ * its query threads, so implementations must be thread safe.
+ * */
+public interface GeoFilter {
+
+	boolean contains(S2LatLng latLng);
+
+	/**
+	 * Test a run of points given as coordinate arrays in degrees, as they are decoded from a page of items.
+	 * 
+	 * @param contained
+	 *            Set, from index from to index to, to whether each point lies within the area.
+	 */
+	default void contains(double[] latitudes, double[] longitudes, int from, int to, boolean[] contained) {
+		for (int i = from; i < to; i++) {
+			contained[i] = contains(S2LatLng.fromDegrees(latitudes[i], longitudes[i]));
+		}
+	}
+
+	static GeoFilter forRectangle(S2LatLngRect latLngRect) {
+		return latLngRect::contains;
+	}
+
+	static GeoFilter forRadius(S2LatLng centerLatLng, double radiusInMeter) {
+		return new GeoRadiusFilter(centerLatLng, radiusInMeter);
+	}
+
+	/**
+	 * Point-in-polygon filter backed by the edge index of the polygon, so each test only looks at the few edges near
+	 * the point instead of walking the whole boundary.
+	 */
+	static GeoFilter forPolygon(S2Polygon polygon) {
+		// Build the index now rather than lazily in the first query thread.
+		new S2ContainsPointQuery(polygon.index()).contains(polygon.loop(0).vertex(0));
+
+		// S2ContainsPointQuery keeps iterator state, so each thread gets its own.
+		ThreadLocal<S2ContainsPointQuery> query = ThreadLocal.withInitial(() -> new S2ContainsPointQuery(polygon
+				.index()));
+		return latLng -> query.get().contains(latLng.toPoint());
+	}
+
+	static GeoFilter forCorridor(S2Corridor corridor) {
+		return latLng -> corridor.contains(latLng.toPoint());
+	}
+}
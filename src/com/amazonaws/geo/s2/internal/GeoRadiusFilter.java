@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.s2.internal;
+
+import com.google.common.geometry.S1Angle;
+import com.google.common.geometry.S2LatLng;
+
+/**
+ * Radius filter that compares the squared half chord between the center and each point with a threshold computed
+ * once, rather than converting every chord to a distance. The squared half chord is the haversine term of
+ * {@link S2LatLng#getDistance(S2LatLng)}, computed with the same operations in the same order, and the threshold is
+ * the largest term whose distance is within the radius. As the distance grows monotonically with the term, the filter
+ * accepts exactly the points {@link S2Util#getEarthDistance(S2LatLng, S2LatLng)} accepts, without the square root,
+ * arc sine or S1Angle of each point.
+ * */
+class GeoRadiusFilter implements GeoFilter {
+	private static final double RADIANS_PER_DEGREE = S1Angle.degrees(1).radians();
+
+	private final double centerLatRadians;
+	private final double centerLngRadians;
+	private final double centerLatCos;
+	private final double maxHalfChord2;
+
+	GeoRadiusFilter(S2LatLng centerLatLng, double radiusInMeter) {
+		centerLatRadians = centerLatLng.latRadians();
+		centerLngRadians = centerLatLng.lngRadians();
+		centerLatCos = Math.cos(centerLatRadians);
+		maxHalfChord2 = radiusInMeter > 0 ? getMaxHalfChord2(radiusInMeter) : -1;
+	}
+
+	@Override
+	public boolean contains(S2LatLng latLng) {
+		return contains(getHalfChord2(latLng.latRadians(), latLng.lngRadians()));
+	}
+
+	@Override
+	public void contains(double[] latitudes, double[] longitudes, int from, int to, boolean[] contained) {
+		for (int i = from; i < to; i++) {
+			// Same conversion as S2LatLng.fromDegrees.
+			double latRadians = latitudes[i] * RADIANS_PER_DEGREE;
+			double lngRadians = longitudes[i] * RADIANS_PER_DEGREE;
+			contained[i] = contains(getHalfChord2(latRadians, lngRadians));
+		}
+	}
+
+	private boolean contains(double halfChord2) {
+		// The haversine term of an invalid latitude can be negative or NaN, which S2LatLng turns into a NaN distance.
+		return halfChord2 >= 0 && halfChord2 <= maxHalfChord2;
+	}
+
+	private double getHalfChord2(double latRadians, double lngRadians) {
+		double dlat = Math.sin(0.5 * (latRadians - centerLatRadians));
+		double dlng = Math.sin(0.5 * (lngRadians - centerLngRadians));
+		return dlat * dlat + dlng * dlng * centerLatCos * Math.cos(latRadians);
+	}
+
+	/**
+	 * Binary search the largest squared half chord whose distance, computed as S2LatLng does, is within the radius.
+	 * Non-negative doubles sort like their bits, so the search runs over the bits.
+	 */
+	private static double getMaxHalfChord2(double radiusInMeter) {
+		long low = 0;
+		long high = Double.doubleToLongBits(1);
+		if (getDistance(1) <= radiusInMeter) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		// Invariant: the distance of low is within the radius, the distance of high is not.
+		while (high - low > 1) {
+			long middle = low + (high - low) / 2;
+			if (getDistance(Double.longBitsToDouble(middle)) <= radiusInMeter) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+
+		return Double.longBitsToDouble(low);
+	}
+
+	private static double getDistance(double halfChord2) {
+		S1Angle angle = S1Angle.radians(2 * Math.asin(Math.sqrt(Math.min(1.0, halfChord2))));
+		return angle.distance(S2Util.EARTH_RADIUS_METERS);
+	}
+}
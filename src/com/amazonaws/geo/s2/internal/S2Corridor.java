@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.s2.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.geometry.S1Angle;
+import com.google.common.geometry.S2Cap;
+import com.google.common.geometry.S2Cell;
+import com.google.common.geometry.S2EdgeUtil;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Point;
+import com.google.common.geometry.S2Polyline;
+import com.google.common.geometry.S2Region;
+
+/**
+ * The region within a given distance of a polyline. Covering it directly yields one covering of the whole route,
+ * without the overlapping cells a chain of circles along the route would produce.
+ * */
+public class S2Corridor implements S2Region {
+	/**
+	 * Bound on the rounding error of the distances, in radians, about a micrometer on Earth.
+	 */
+	private static final double ERROR_RADIANS = 1e-13;
+
+	private final S2Polyline polyline;
+	private final double bufferRadians;
+
+	private final S2Point[] vertices;
+	private final S2Point[] crossProducts;
+
+	/**
+	 * @param points
+	 *            Vertices of the route. Consecutive duplicates are ignored.
+	 * 
+	 * @param bufferRadians
+	 *            Maximum angular distance from the route.
+	 */
+	public S2Corridor(List<S2Point> points, double bufferRadians) {
+		List<S2Point> distinctPoints = new ArrayList<S2Point>(points.size());
+		for (S2Point point : points) {
+			if (distinctPoints.isEmpty() || !distinctPoints.get(distinctPoints.size() - 1).equals(point)) {
+				distinctPoints.add(point);
+			}
+		}
+		if (distinctPoints.isEmpty()) {
+			throw new IllegalArgumentException("A corridor needs at least 1 vertex.");
+		}
+
+		this.polyline = new S2Polyline(distinctPoints);
+		this.bufferRadians = bufferRadians;
+
+		vertices = distinctPoints.toArray(new S2Point[distinctPoints.size()]);
+		crossProducts = new S2Point[vertices.length - 1];
+		for (int i = 0; i < crossProducts.length; i++) {
+			crossProducts[i] = S2Point.crossProd(vertices[i], vertices[i + 1]);
+		}
+	}
+
+	public double getBufferRadians() {
+		return bufferRadians;
+	}
+
+	/**
+	 * @return Angular distance in radians from the point to the nearest segment of the route.
+	 */
+	public double getDistanceRadians(S2Point point) {
+		if (crossProducts.length == 0) {
+			return point.angle(vertices[0]);
+		}
+
+		double minDistance = Double.MAX_VALUE;
+		for (int i = 0; i < crossProducts.length; i++) {
+			minDistance = Math.min(minDistance,
+					S2EdgeUtil.getDistanceRadians(point, vertices[i], vertices[i + 1], crossProducts[i]));
+		}
+
+		return minDistance;
+	}
+
+	@Override
+	public S2Cap getCapBound() {
+		S2Cap cap = polyline.getCapBound();
+		return S2Cap.fromAxisAngle(cap.axis(), S1Angle.radians(cap.angle().radians() + bufferRadians));
+	}
+
+	@Override
+	public S2LatLngRect getRectBound() {
+		return polyline.getRectBound().expandedByDistance(S1Angle.radians(bufferRadians));
+	}
+
+	/**
+	 * A cell is contained if its bounding cap is: the distance from the cap axis plus the cap radius, plus a margin for
+	 * rounding, is within the buffer. The cap is centered on the UV center of the cell, which is not the point
+	 * {@link S2Cell#getCenter()} returns.
+	 */
+	@Override
+	public boolean contains(S2Cell cell) {
+		S2Cap cellCap = cell.getCapBound();
+		return getDistanceRadians(cellCap.axis()) + cellCap.angle().radians() + ERROR_RADIANS <= bufferRadians;
+	}
+
+	@Override
+	public boolean contains(S2Point point) {
+		return getDistanceRadians(point) <= bufferRadians;
+	}
+
+	@Override
+	public boolean mayIntersect(S2Cell cell) {
+		S2Cap cellCap = cell.getCapBound();
+		return getDistanceRadians(cellCap.axis()) <= bufferRadians + cellCap.angle().radians() + ERROR_RADIANS;
+	}
+}
@@ -18,16 +18,39 @@ package com.amazonaws.geo.s2.internal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.amazonaws.geo.model.GeoPoint;
+import com.amazonaws.geo.model.GeohashRange;
 import com.google.common.geometry.S2Cell;
 import com.google.common.geometry.S2CellId;
 import com.google.common.geometry.S2CellUnion;
 import com.google.common.geometry.S2LatLng;
 import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Projections;
+import com.google.common.geometry.S2Region;
+import com.google.common.geometry.S2RegionCoverer;
 
 public class S2Manager {
 
+	/**
+	 * Points per fork-join task of {@link #generateGeohashes(double[], double[], long[], long[], int)}.
+	 */
+	private static final int GEOHASH_CHUNK_SIZE = 4096;
+
+	/**
+	 * Powers of ten that fit in a long, indexed by exponent.
+	 */
+	private static final long[] POW10 = new long[19];
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
+
 	public static S2CellUnion findCellIds(S2LatLngRect latLngRect) {
 
 		ConcurrentLinkedQueue<S2CellId> queue = new ConcurrentLinkedQueue<S2CellId>();
@@ -55,6 +78,30 @@ public class S2Manager {
 		return null;
 	}
 
+	/**
+	 * Cover an arbitrary region with at most maxCells cells. Unlike the bounding rectangle search, the covering follows
+	 * the shape of the region, so irregular areas read far fewer items outside of the region. The result is empty, not
+	 * null, for an empty region.
+	 */
+	public static S2CellUnion findCellIds(S2Region region, int maxCells) {
+		S2RegionCoverer coverer = S2RegionCoverer.builder().setMaxCells(maxCells).build();
+		return coverer.getCovering(region);
+	}
+
+	/**
+	 * Find cells that lie entirely inside a region, using at most maxCells cells. Points of these cells need no
+	 * filtering. The result may be empty for small regions.
+	 * 
+	 * Every interior cell splits the boundary around it into separate ranges, so cells narrower than an eighth of the
+	 * region are left out: they would add more range queries than they save.
+	 */
+	public static S2CellUnion findInteriorCellIds(S2Region region, int maxCells) {
+		double minWidth = region.getCapBound().angle().radians() / 4;
+		S2RegionCoverer coverer = S2RegionCoverer.builder().setMaxCells(maxCells)
+				.setMaxLevel(S2Projections.PROJ.minWidth.getMaxLevel(minWidth)).build();
+		return coverer.getInteriorCovering(region);
+	}
+
 	private static boolean containsGeodataToFind(S2CellId c, S2LatLngRect latLngRect) {
 		if (latLngRect != null) {
 			return latLngRect.intersects(new S2Cell(c));
@@ -113,11 +160,64 @@ public class S2Manager {
 	}
 
 	public static long generateGeohash(GeoPoint geoPoint) {
-		S2LatLng latLng = S2LatLng.fromDegrees(geoPoint.getLatitude(), geoPoint.getLongitude());
-		S2Cell cell = new S2Cell(latLng);
-		S2CellId cellId = cell.id();
+		return generateGeohash(geoPoint.getLatitude(), geoPoint.getLongitude());
+	}
+
+	/**
+	 * The geohash of a point is the id of its leaf cell.
+	 */
+	public static long generateGeohash(double latitude, double longitude) {
+		return S2CellId.fromLatLng(S2LatLng.fromDegrees(latitude, longitude)).id();
+	}
+
+	/**
+	 * Compute the geohash and the hash key of many points at once, for bulk ingestion. The points are split in chunks
+	 * that run on the common fork-join pool.
+	 * 
+	 * @param latitudes
+	 *            Latitude of each point.
+	 * @param longitudes
+	 *            Longitude of each point.
+	 * @param geohashes
+	 *            Filled with the geohash of each point.
+	 * @param hashKeys
+	 *            Filled with the hash key of each point, or null to compute geohashes only.
+	 * @param hashKeyLength
+	 *            Length of the hash keys.
+	 */
+	public static void generateGeohashes(double[] latitudes, double[] longitudes, long[] geohashes, long[] hashKeys,
+			int hashKeyLength) {
+		int length = latitudes.length;
+		if (longitudes.length != length || geohashes.length < length
+				|| (hashKeys != null && hashKeys.length < length)) {
+			throw new IllegalArgumentException("The coordinate arrays must have the same length, and the output arrays "
+					+ "must be at least as long.");
+		}
+
+		GeohashTask task = new GeohashTask(latitudes, longitudes, geohashes, hashKeys, hashKeyLength, 0, length);
+		if (length <= GEOHASH_CHUNK_SIZE) {
+			task.compute();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+	}
 
-		return cellId.id();
+	/**
+	 * Merge continuous cells of a cell union into geohash ranges. The cells of a normalized cell union are sorted, so
+	 * only neighbors can merge.
+	 */
+	public static List<GeohashRange> getGeohashRanges(S2CellUnion cellUnion) {
+		List<GeohashRange> ranges = new ArrayList<GeohashRange>();
+		GeohashRange last = null;
+		for (S2CellId cellId : cellUnion.cellIds()) {
+			GeohashRange range = new GeohashRange(cellId.rangeMin().id(), cellId.rangeMax().id());
+			if (last == null || !last.tryMerge(range)) {
+				ranges.add(range);
+				last = range;
+			}
+		}
+
+		return ranges;
 	}
 
 	public static long generateHashKey(long geohash, int hashKeyLength) {
@@ -126,8 +226,64 @@ public class S2Manager {
 			hashKeyLength++;
 		}
 
-		String geohashString = String.valueOf(geohash);
-		long denominator = (long) Math.pow(10, geohashString.length() - hashKeyLength);
-		return geohash / denominator;
+		int exponent = getDigitCount(geohash) - hashKeyLength;
+		return exponent > 0 ? geohash / POW10[exponent] : geohash;
+	}
+
+	/**
+	 * Number of characters of a number in decimal, with the "-" of negative numbers.
+	 */
+	private static int getDigitCount(long value) {
+		// Count on the negative side, where Long.MIN_VALUE has no overflow.
+		long negative = value < 0 ? value : -value;
+		int count = 1;
+		while (count < POW10.length && negative <= -POW10[count]) {
+			count++;
+		}
+
+		return value < 0 ? count + 1 : count;
+	}
+
+	/**
+	 * Split a range of points in halves until it is small enough, then compute the geohashes of the chunk.
+	 */
+	private static class GeohashTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] latitudes;
+		private final double[] longitudes;
+		private final long[] geohashes;
+		private final long[] hashKeys;
+		private final int hashKeyLength;
+		private final int from;
+		private final int to;
+
+		GeohashTask(double[] latitudes, double[] longitudes, long[] geohashes, long[] hashKeys, int hashKeyLength,
+				int from, int to) {
+			this.latitudes = latitudes;
+			this.longitudes = longitudes;
+			this.geohashes = geohashes;
+			this.hashKeys = hashKeys;
+			this.hashKeyLength = hashKeyLength;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= GEOHASH_CHUNK_SIZE) {
+				for (int i = from; i < to; i++) {
+					long geohash = generateGeohash(latitudes[i], longitudes[i]);
+					geohashes[i] = geohash;
+					if (hashKeys != null) {
+						hashKeys[i] = generateHashKey(geohash, hashKeyLength);
+					}
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new GeohashTask(latitudes, longitudes, geohashes, hashKeys, hashKeyLength, from, middle),
+						new GeohashTask(latitudes, longitudes, geohashes, hashKeys, hashKeyLength, middle, to));
+			}
+		}
 	}
 }
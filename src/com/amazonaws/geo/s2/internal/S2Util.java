@@ -15,12 +15,24 @@
 
 package com.amazonaws.geo.s2.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.amazonaws.geo.model.GeoPoint;
 import com.amazonaws.geo.model.GeoQueryRequest;
+import com.amazonaws.geo.model.QueryCorridorRequest;
+import com.amazonaws.geo.model.QueryPolygonRequest;
 import com.amazonaws.geo.model.QueryRadiusRequest;
 import com.amazonaws.geo.model.QueryRectangleRequest;
+import com.google.common.geometry.S1Angle;
+import com.google.common.geometry.S2Cap;
+import com.google.common.geometry.S2Error;
 import com.google.common.geometry.S2LatLng;
 import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Loop;
+import com.google.common.geometry.S2Point;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2Region;
 
 public class S2Util {
 
@@ -89,4 +101,102 @@ public class S2Util {
 		return null;
 	}
 
+	/**
+	 * An utility method to build the polygon of a QueryPolygonRequest. A polygon with duplicate vertices, degenerate
+	 * edges or crossing edges is rejected with an IllegalArgumentException, as its covering and filter would be wrong.
+	 * 
+	 * @param queryPolygonRequest
+	 *            It contains the vertices of the polygon.
+	 * 
+	 * */
+	public static S2Polygon getPolygon(QueryPolygonRequest queryPolygonRequest) {
+		List<GeoPoint> vertices = queryPolygonRequest.getVertices();
+		List<S2Point> points = new ArrayList<S2Point>(vertices.size());
+		for (GeoPoint vertex : vertices) {
+			points.add(S2LatLng.fromDegrees(vertex.getLatitude(), vertex.getLongitude()).toPoint());
+		}
+
+		if (points.size() > 1 && points.get(0).equals(points.get(points.size() - 1))) {
+			points.remove(points.size() - 1);
+		}
+		if (points.size() < 3) {
+			throw new IllegalArgumentException("A polygon needs at least 3 distinct vertices.");
+		}
+
+		S2Loop loop = new S2Loop(points);
+		S2Error error = new S2Error();
+		if (loop.findValidationError(error)) {
+			throw new IllegalArgumentException("The polygon is not valid: " + error.text());
+		}
+		loop.normalize();
+
+		return new S2Polygon(loop);
+	}
+
+	/**
+	 * An utility method to build the buffered route of a QueryCorridorRequest.
+	 * 
+	 * @param queryCorridorRequest
+	 *            It contains the route and the buffer distance.
+	 * 
+	 * */
+	public static S2Corridor getCorridor(QueryCorridorRequest queryCorridorRequest) {
+		List<S2Point> points = new ArrayList<S2Point>(queryCorridorRequest.getPolyline().size());
+		for (GeoPoint vertex : queryCorridorRequest.getPolyline()) {
+			points.add(S2LatLng.fromDegrees(vertex.getLatitude(), vertex.getLongitude()).toPoint());
+		}
+
+		return new S2Corridor(points, queryCorridorRequest.getBufferInMeter() / EARTH_RADIUS_METERS);
+	}
+
+	/**
+	 * An utility method to get the exact region of a query, e.g. the circle of a radius query rather than its bounding
+	 * box.
+	 * 
+	 * @param geoQueryRequest
+	 *            The queried area.
+	 * 
+	 * */
+	public static S2Region getRegion(GeoQueryRequest geoQueryRequest) {
+		if (geoQueryRequest instanceof QueryRectangleRequest) {
+			return getBoundingLatLngRect(geoQueryRequest);
+		} else if (geoQueryRequest instanceof QueryRadiusRequest) {
+			QueryRadiusRequest queryRadiusRequest = (QueryRadiusRequest) geoQueryRequest;
+			GeoPoint centerPoint = queryRadiusRequest.getCenterPoint();
+
+			return S2Cap.fromAxisAngle(S2LatLng.fromDegrees(centerPoint.getLatitude(), centerPoint.getLongitude())
+					.toPoint(), S1Angle.radians(queryRadiusRequest.getRadiusInMeter() / EARTH_RADIUS_METERS));
+		} else if (geoQueryRequest instanceof QueryPolygonRequest) {
+			return getPolygon((QueryPolygonRequest) geoQueryRequest);
+		} else if (geoQueryRequest instanceof QueryCorridorRequest) {
+			return getCorridor((QueryCorridorRequest) geoQueryRequest);
+		}
+
+		return null;
+	}
+
+	/**
+	 * An utility method to get the precise filter of a query.
+	 * 
+	 * @param geoQueryRequest
+	 *            The queried area.
+	 * 
+	 * */
+	public static GeoFilter getGeoFilter(GeoQueryRequest geoQueryRequest) {
+		if (geoQueryRequest instanceof QueryRectangleRequest) {
+			return GeoFilter.forRectangle(getBoundingLatLngRect(geoQueryRequest));
+		} else if (geoQueryRequest instanceof QueryRadiusRequest) {
+			QueryRadiusRequest queryRadiusRequest = (QueryRadiusRequest) geoQueryRequest;
+			GeoPoint centerPoint = queryRadiusRequest.getCenterPoint();
+
+			return GeoFilter.forRadius(S2LatLng.fromDegrees(centerPoint.getLatitude(), centerPoint.getLongitude()),
+					queryRadiusRequest.getRadiusInMeter());
+		} else if (geoQueryRequest instanceof QueryPolygonRequest) {
+			return GeoFilter.forPolygon(getPolygon((QueryPolygonRequest) geoQueryRequest));
+		} else if (geoQueryRequest instanceof QueryCorridorRequest) {
+			return GeoFilter.forCorridor(getCorridor((QueryCorridorRequest) geoQueryRequest));
+		}
+
+		return null;
+	}
 }
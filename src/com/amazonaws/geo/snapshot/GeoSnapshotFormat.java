@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.snapshot;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * <p>
+ * Layout of a geo snapshot file. All numbers are big-endian, and every section starts on an 8 byte boundary.
+ * </p>
+ * 
+ * <pre>
+ * header    magic, version, hash key length, point count, hash key count and the offset of each section
+ * index     one (hash key, first geohash, first point) entry per run of points that share a hash key
+ * geohashes long per point, sorted
+ * latitudes double per point
+ * longitudes double per point
+ * offsets   long per point, the offset of its item in the items section
+ * items     encoded items, in chunks of 1 GB that no item crosses
+ * </pre>
+ * 
+ * An item is an attribute count followed by, for each attribute, its name and a tagged value. Strings are a length
+ * followed by UTF-8 bytes.
+ * */
+final class GeoSnapshotFormat {
+	static final int MAGIC = 0x47454F53; // "GEOS"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+	static final int INDEX_ENTRY_BYTES = 24;
+
+	static final int CHUNK_SHIFT = 30;
+	static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+
+	// A column is mapped as a single buffer of at most 2 GB.
+	static final int MAX_POINT_COUNT = Integer.MAX_VALUE / Long.BYTES;
+
+	private static final byte S = 1;
+	private static final byte N = 2;
+	private static final byte B = 3;
+	private static final byte BOOL = 4;
+	private static final byte NUL = 5;
+	private static final byte SS = 6;
+	private static final byte NS = 7;
+	private static final byte BS = 8;
+	private static final byte L = 9;
+	private static final byte M = 10;
+
+	private GeoSnapshotFormat() {
+	}
+
+	static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	static void writeItem(DataOutput out, Map<String, AttributeValue> item) throws IOException {
+		out.writeInt(item.size());
+		for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+			writeString(out, attribute.getKey());
+			writeValue(out, attribute.getValue());
+		}
+	}
+
+	static Map<String, AttributeValue> readItem(ByteBuffer in) {
+		int size = in.getInt();
+		Map<String, AttributeValue> item = new HashMap<String, AttributeValue>(size * 2);
+		for (int i = 0; i < size; i++) {
+			item.put(readString(in), readValue(in));
+		}
+
+		return item;
+	}
+
+	private static void writeValue(DataOutput out, AttributeValue value) throws IOException {
+		if (value.s() != null) {
+			out.writeByte(S);
+			writeString(out, value.s());
+		} else if (value.n() != null) {
+			out.writeByte(N);
+			writeString(out, value.n());
+		} else if (value.b() != null) {
+			out.writeByte(B);
+			writeBytes(out, value.b());
+		} else if (value.bool() != null) {
+			out.writeByte(BOOL);
+			out.writeBoolean(value.bool());
+		} else if (Boolean.TRUE.equals(value.nul())) {
+			out.writeByte(NUL);
+		} else if (value.hasSs()) {
+			out.writeByte(SS);
+			out.writeInt(value.ss().size());
+			for (String s : value.ss()) {
+				writeString(out, s);
+			}
+		} else if (value.hasNs()) {
+			out.writeByte(NS);
+			out.writeInt(value.ns().size());
+			for (String n : value.ns()) {
+				writeString(out, n);
+			}
+		} else if (value.hasBs()) {
+			out.writeByte(BS);
+			out.writeInt(value.bs().size());
+			for (SdkBytes b : value.bs()) {
+				writeBytes(out, b);
+			}
+		} else if (value.hasL()) {
+			out.writeByte(L);
+			out.writeInt(value.l().size());
+			for (AttributeValue element : value.l()) {
+				writeValue(out, element);
+			}
+		} else if (value.hasM()) {
+			out.writeByte(M);
+			writeItem(out, value.m());
+		} else {
+			throw new IllegalArgumentException("Unsupported attribute value: " + value);
+		}
+	}
+
+	private static AttributeValue readValue(ByteBuffer in) {
+		byte tag = in.get();
+		switch (tag) {
+		case S:
+			return AttributeValue.builder().s(readString(in)).build();
+		case N:
+			return AttributeValue.builder().n(readString(in)).build();
+		case B:
+			return AttributeValue.builder().b(readBytes(in)).build();
+		case BOOL:
+			return AttributeValue.builder().bool(in.get() != 0).build();
+		case NUL:
+			return AttributeValue.builder().nul(true).build();
+		case SS:
+		case NS: {
+			int size = in.getInt();
+			List<String> strings = new ArrayList<String>(size);
+			for (int i = 0; i < size; i++) {
+				strings.add(readString(in));
+			}
+			return tag == SS ? AttributeValue.builder().ss(strings).build() : AttributeValue.builder().ns(strings)
+					.build();
+		}
+		case BS: {
+			int size = in.getInt();
+			List<SdkBytes> bytes = new ArrayList<SdkBytes>(size);
+			for (int i = 0; i < size; i++) {
+				bytes.add(readBytes(in));
+			}
+			return AttributeValue.builder().bs(bytes).build();
+		}
+		case L: {
+			int size = in.getInt();
+			List<AttributeValue> elements = new ArrayList<AttributeValue>(size);
+			for (int i = 0; i < size; i++) {
+				elements.add(readValue(in));
+			}
+			return AttributeValue.builder().l(elements).build();
+		}
+		case M:
+			return AttributeValue.builder().m(readItem(in)).build();
+		default:
+			throw new IllegalStateException("Corrupt geo snapshot: unknown attribute value tag " + tag);
+		}
+	}
+
+	private static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeBytes(DataOutput out, SdkBytes b) throws IOException {
+		byte[] bytes = b.asByteArrayUnsafe();
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static SdkBytes readBytes(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return SdkBytes.fromByteArrayUnsafe(bytes);
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.geo.model.GeoQueryRequest;
+import com.amazonaws.geo.model.GeoQueryResponse;
+import com.amazonaws.geo.model.GeoQueryStats;
+import com.amazonaws.geo.model.GeohashRange;
+import com.amazonaws.geo.model.QueryRadiusRequest;
+import com.amazonaws.geo.model.QueryRadiusResponse;
+import com.amazonaws.geo.model.QueryRectangleRequest;
+import com.amazonaws.geo.model.QueryRectangleResponse;
+import com.amazonaws.geo.s2.internal.GeoFilter;
+import com.amazonaws.geo.s2.internal.S2Manager;
+import com.amazonaws.geo.s2.internal.S2Util;
+import com.google.common.geometry.S2CellUnion;
+import com.google.common.geometry.S2LatLng;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * <p>
+ * Answers rectangle and radius queries from a snapshot file written by GeoSnapshotWriter. The file is mapped into
+ * memory with FileChannel.map, so opening it takes constant time whatever its size, and pages are loaded by the
+ * operating system as queries touch them.
+ * </p>
+ * <p>
+ * Queries range-scan the mapped geohash column, reading locations in place; only the items inside the queried area
+ * are decoded. Responses are the same as the ones of GeoDataManager, except that they hold no raw Amazon DynamoDB pages
+ * and consume no capacity. A reader is thread safe.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * try (GeoSnapshotReader reader = GeoSnapshotReader.open(Paths.get(&quot;geo.snapshot&quot;))) {
+ * 	QueryRadiusResponse queryRadiusResponse = reader.queryRadius(new QueryRadiusRequest(centerPoint, 100));
+ * }
+ * </pre>
+ * 
+ * @see GeoSnapshotWriter
+ * */
+public class GeoSnapshotReader implements Closeable {
+	private final FileChannel channel;
+	private final int hashKeyLength;
+	private final int pointCount;
+	private final int hashKeyCount;
+
+	private final LongBuffer index;
+	private final LongBuffer geohashes;
+	private final DoubleBuffer latitudes;
+	private final DoubleBuffer longitudes;
+	private final LongBuffer itemOffsets;
+	private final MappedByteBuffer[] itemChunks;
+
+	private GeoSnapshotReader(FileChannel channel) throws IOException {
+		this.channel = channel;
+
+		ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, GeoSnapshotFormat.HEADER_BYTES);
+		if (header.getInt() != GeoSnapshotFormat.MAGIC) {
+			throw new IOException("Not a geo snapshot file.");
+		}
+		int version = header.getInt();
+		if (version != GeoSnapshotFormat.VERSION) {
+			throw new IOException("Unsupported geo snapshot version " + version + ".");
+		}
+		hashKeyLength = header.getInt();
+		header.getInt();
+		long points = header.getLong();
+		long hashKeys = header.getLong();
+		long indexOffset = header.getLong();
+		long columnsOffset = header.getLong();
+		long itemsOffset = header.getLong();
+		long itemsLength = header.getLong();
+		if (points > GeoSnapshotFormat.MAX_POINT_COUNT || hashKeys > Integer.MAX_VALUE
+				/ GeoSnapshotFormat.INDEX_ENTRY_BYTES) {
+			throw new IOException("Corrupt geo snapshot header.");
+		}
+		pointCount = (int) points;
+		hashKeyCount = (int) hashKeys;
+
+		long columnBytes = (long) pointCount * Long.BYTES;
+		index = channel.map(MapMode.READ_ONLY, indexOffset, (long) hashKeyCount * GeoSnapshotFormat.INDEX_ENTRY_BYTES)
+				.asLongBuffer();
+		geohashes = channel.map(MapMode.READ_ONLY, columnsOffset, columnBytes).asLongBuffer();
+		latitudes = channel.map(MapMode.READ_ONLY, columnsOffset + columnBytes, columnBytes).asDoubleBuffer();
+		longitudes = channel.map(MapMode.READ_ONLY, columnsOffset + 2 * columnBytes, columnBytes).asDoubleBuffer();
+		itemOffsets = channel.map(MapMode.READ_ONLY, columnsOffset + 3 * columnBytes, columnBytes).asLongBuffer();
+
+		itemChunks = new MappedByteBuffer[(int) ((itemsLength + GeoSnapshotFormat.CHUNK_BYTES - 1) >> GeoSnapshotFormat.CHUNK_SHIFT)];
+		for (int i = 0; i < itemChunks.length; i++) {
+			long chunkOffset = (long) i << GeoSnapshotFormat.CHUNK_SHIFT;
+			itemChunks[i] = channel.map(MapMode.READ_ONLY, itemsOffset + chunkOffset,
+					Math.min(GeoSnapshotFormat.CHUNK_BYTES, itemsLength - chunkOffset));
+		}
+	}
+
+	/**
+	 * Map a snapshot file into memory.
+	 */
+	public static GeoSnapshotReader open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new GeoSnapshotReader(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return Number of points in the snapshot.
+	 */
+	public int size() {
+		return pointCount;
+	}
+
+	/**
+	 * @return Hash key length the snapshot index was built with.
+	 */
+	public int getHashKeyLength() {
+		return hashKeyLength;
+	}
+
+	/**
+	 * Query a rectangular area, as GeoDataManager.queryRectangle does.
+	 */
+	public QueryRectangleResponse queryRectangle(QueryRectangleRequest queryRectangleRequest) {
+		return new QueryRectangleResponse(query(queryRectangleRequest));
+	}
+
+	/**
+	 * Query a circular area, as GeoDataManager.queryRadius does.
+	 */
+	public QueryRadiusResponse queryRadius(QueryRadiusRequest queryRadiusRequest) {
+		return new QueryRadiusResponse(query(queryRadiusRequest));
+	}
+
+	/**
+	 * Close the file. Mapped buffers stay valid until they are garbage collected, but the reader must not be used
+	 * afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private GeoQueryResponse query(GeoQueryRequest geoQueryRequest) {
+		long startNanos = System.nanoTime();
+		GeoQueryResponse geoQueryResponse = new GeoQueryResponse();
+		GeoQueryStats stats = geoQueryResponse.getQueryStats();
+
+		long coveringStartNanos = System.nanoTime();
+		S2CellUnion cellUnion = S2Manager.findCellIds(S2Util.getBoundingLatLngRect(geoQueryRequest));
+		GeoFilter geoFilter = S2Util.getGeoFilter(geoQueryRequest);
+		List<GeohashRange> ranges = S2Manager.getGeohashRanges(cellUnion);
+		stats.setCellCount(cellUnion.size());
+		stats.setRangeCount(ranges.size());
+		stats.setCoveringNanos(System.nanoTime() - coveringStartNanos);
+
+		long filteringStartNanos = System.nanoTime();
+		List<Map<String, AttributeValue>> result = geoQueryResponse.getItem();
+		int itemCount = 0;
+		for (GeohashRange range : ranges) {
+			for (int i = lowerBound(range.getRangeMin()); i < pointCount && geohashes.get(i) <= range.getRangeMax(); i++) {
+				itemCount++;
+				if (geoFilter.contains(S2LatLng.fromDegrees(latitudes.get(i), longitudes.get(i)))) {
+					result.add(readItem(i));
+				}
+			}
+		}
+		stats.addPage(itemCount, 0, 0);
+		stats.addFiltering(itemCount - result.size(), System.nanoTime() - filteringStartNanos);
+		stats.setTotalNanos(System.nanoTime() - startNanos);
+
+		return geoQueryResponse;
+	}
+
+	/**
+	 * Find the first point whose geohash is at least the given one: a binary search of the hash key index finds the
+	 * run of points to search, then a binary search of the run finds the point.
+	 */
+	private int lowerBound(long geohash) {
+		int low = 0;
+		int high = hashKeyCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (index.get(mid * 3 + 1) <= geohash) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low == 0) {
+			return 0;
+		}
+
+		int run = low - 1;
+		low = (int) index.get(run * 3 + 2);
+		high = run + 1 < hashKeyCount ? (int) index.get((run + 1) * 3 + 2) : pointCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (geohashes.get(mid) < geohash) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	private Map<String, AttributeValue> readItem(int i) {
+		long itemOffset = itemOffsets.get(i);
+		ByteBuffer item = itemChunks[(int) (itemOffset >> GeoSnapshotFormat.CHUNK_SHIFT)].duplicate();
+		item.position((int) (itemOffset & (GeoSnapshotFormat.CHUNK_BYTES - 1)));
+
+		return GeoSnapshotFormat.readItem(item);
+	}
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.geo.GeoDataManagerConfiguration;
+import com.amazonaws.geo.model.GeoPoint;
+import com.amazonaws.geo.s2.internal.S2Manager;
+import com.amazonaws.geo.util.GeoLocationCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * <p>
+ * Writes the items of a geo table to a snapshot file that GeoSnapshotReader maps into memory. Items are added one at
+ * a time, e.g. from the pages of a Scan, or from the DynamoDB JSON files of a table export to Amazon S3. They are
+ * spooled to a temporary file, then sorted by geohash when the snapshot is written, so that only a few primitive
+ * arrays per point stay on the heap.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * try (GeoSnapshotWriter writer = new GeoSnapshotWriter(config)) {
+ * 	for (Path exportFile : exportFiles) {
+ * 		try (InputStream in = new GZIPInputStream(Files.newInputStream(exportFile))) {
+ * 			writer.addExport(in);
+ * 		}
+ * 	}
+ * 	writer.write(Paths.get(&quot;geo.snapshot&quot;));
+ * }
+ * </pre>
+ * 
+ * @see GeoSnapshotReader
+ * */
+public class GeoSnapshotWriter implements Closeable {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final GeoDataManagerConfiguration config;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final Path spoolFile;
+	private final DataOutputStream spool;
+	private final ByteArrayOutputStream itemBuffer = new ByteArrayOutputStream();
+	private long spoolBytes;
+
+	private int pointCount;
+	private long[] geohashes = new long[INITIAL_CAPACITY];
+	private double[] latitudes = new double[INITIAL_CAPACITY];
+	private double[] longitudes = new double[INITIAL_CAPACITY];
+	private long[] spoolOffsets = new long[INITIAL_CAPACITY];
+	private int[] itemLengths = new int[INITIAL_CAPACITY];
+
+	public GeoSnapshotWriter(GeoDataManagerConfiguration config) throws IOException {
+		this.config = config;
+
+		spoolFile = Files.createTempFile("geo-snapshot", ".spool");
+		spool = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spoolFile)));
+	}
+
+	/**
+	 * Add an item of the geo table. Items without a geohash or geoJson attribute are not geo points and are skipped.
+	 * 
+	 * @return True if the item was added.
+	 */
+	public boolean add(Map<String, AttributeValue> item) throws IOException {
+		AttributeValue geohashValue = item.get(config.getGeohashAttributeName());
+		AttributeValue geoJsonValue = item.get(config.getGeoJsonAttributeName());
+		if (geohashValue == null || geohashValue.n() == null || !GeoLocationCodec.isLocation(geoJsonValue)) {
+			return false;
+		}
+		if (pointCount == GeoSnapshotFormat.MAX_POINT_COUNT) {
+			throw new IllegalArgumentException("A geo snapshot holds at most " + GeoSnapshotFormat.MAX_POINT_COUNT
+					+ " points.");
+		}
+
+		GeoPoint geoPoint = GeoLocationCodec.decode(geoJsonValue);
+
+		itemBuffer.reset();
+		GeoSnapshotFormat.writeItem(new DataOutputStream(itemBuffer), item);
+		itemBuffer.writeTo(spool);
+
+		if (pointCount == geohashes.length) {
+			int capacity = pointCount * 2;
+			geohashes = Arrays.copyOf(geohashes, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			spoolOffsets = Arrays.copyOf(spoolOffsets, capacity);
+			itemLengths = Arrays.copyOf(itemLengths, capacity);
+		}
+		geohashes[pointCount] = Long.parseLong(geohashValue.n());
+		latitudes[pointCount] = geoPoint.getLatitude();
+		longitudes[pointCount] = geoPoint.getLongitude();
+		spoolOffsets[pointCount] = spoolBytes;
+		itemLengths[pointCount] = itemBuffer.size();
+		pointCount++;
+		spoolBytes += itemBuffer.size();
+
+		return true;
+	}
+
+	/**
+	 * Add the items of a table export in DynamoDB JSON: one item per line, either wrapped in an "Item" object as
+	 * exports to Amazon S3 are, or bare.
+	 * 
+	 * @return Number of items added.
+	 */
+	public int addExport(InputStream exportData) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(exportData, StandardCharsets.UTF_8));
+		int added = 0;
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+
+			JsonNode node = mapper.readTree(line);
+			if (node.has("Item")) {
+				node = node.get("Item");
+			}
+			if (add(toItem(node))) {
+				added++;
+			}
+		}
+
+		return added;
+	}
+
+	/**
+	 * Write the snapshot of the items added so far. The file is written next to its final path and moved into place
+	 * once complete, so that readers never map a partial snapshot.
+	 * 
+	 * @return Number of points in the snapshot.
+	 */
+	public int write(Path file) throws IOException {
+		spool.flush();
+
+		int[] order = new int[pointCount];
+		for (int i = 0; i < pointCount; i++) {
+			order[i] = i;
+		}
+		sort(order, new int[pointCount], geohashes, 0, pointCount);
+
+		// Runs of points that share a hash key. Hash keys are decimal prefixes of the geohash, so a hash key may appear
+		// in more than one run.
+		List<long[]> runs = new ArrayList<long[]>();
+		for (int i = 0; i < pointCount; i++) {
+			long geohash = geohashes[order[i]];
+			long hashKey = S2Manager.generateHashKey(geohash, config.getHashKeyLength());
+			if (runs.isEmpty() || runs.get(runs.size() - 1)[0] != hashKey) {
+				runs.add(new long[] { hashKey, geohash, i });
+			}
+		}
+
+		long[] itemOffsets = new long[pointCount];
+		long itemsLength = 0;
+		for (int i = 0; i < pointCount; i++) {
+			int length = itemLengths[order[i]];
+			if ((itemsLength & (GeoSnapshotFormat.CHUNK_BYTES - 1)) + length > GeoSnapshotFormat.CHUNK_BYTES) {
+				itemsLength = ((itemsLength >> GeoSnapshotFormat.CHUNK_SHIFT) + 1) << GeoSnapshotFormat.CHUNK_SHIFT;
+			}
+			itemOffsets[i] = itemsLength;
+			itemsLength += length;
+		}
+
+		long indexOffset = GeoSnapshotFormat.HEADER_BYTES;
+		long columnsOffset = GeoSnapshotFormat.align(indexOffset + (long) runs.size()
+				* GeoSnapshotFormat.INDEX_ENTRY_BYTES);
+		long itemsOffset = columnsOffset + 4L * Long.BYTES * pointCount;
+
+		Path partialFile = file.resolveSibling(file.getFileName() + ".partial");
+		try (FileChannel spoolChannel = FileChannel.open(spoolFile, StandardOpenOption.READ);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partialFile)))) {
+			out.writeInt(GeoSnapshotFormat.MAGIC);
+			out.writeInt(GeoSnapshotFormat.VERSION);
+			out.writeInt(config.getHashKeyLength());
+			out.writeInt(0);
+			out.writeLong(pointCount);
+			out.writeLong(runs.size());
+			out.writeLong(indexOffset);
+			out.writeLong(columnsOffset);
+			out.writeLong(itemsOffset);
+			out.writeLong(itemsLength);
+
+			for (long[] run : runs) {
+				out.writeLong(run[0]);
+				out.writeLong(run[1]);
+				out.writeLong(run[2]);
+			}
+			pad(out, columnsOffset - indexOffset - (long) runs.size() * GeoSnapshotFormat.INDEX_ENTRY_BYTES);
+
+			for (int i = 0; i < pointCount; i++) {
+				out.writeLong(geohashes[order[i]]);
+			}
+			for (int i = 0; i < pointCount; i++) {
+				out.writeDouble(latitudes[order[i]]);
+			}
+			for (int i = 0; i < pointCount; i++) {
+				out.writeDouble(longitudes[order[i]]);
+			}
+			for (int i = 0; i < pointCount; i++) {
+				out.writeLong(itemOffsets[i]);
+			}
+
+			long written = 0;
+			ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+			for (int i = 0; i < pointCount; i++) {
+				pad(out, itemOffsets[i] - written);
+				int length = itemLengths[order[i]];
+				if (buffer.capacity() < length) {
+					buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+				}
+				buffer.clear().limit(length);
+				while (buffer.hasRemaining()) {
+					if (spoolChannel.read(buffer, spoolOffsets[order[i]] + buffer.position()) < 0) {
+						throw new IOException("Unexpected end of the geo snapshot spool file.");
+					}
+				}
+				out.write(buffer.array(), 0, length);
+				written = itemOffsets[i] + length;
+			}
+		}
+		Files.move(partialFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		return pointCount;
+	}
+
+	/**
+	 * Delete the temporary spool file.
+	 */
+	@Override
+	public void close() throws IOException {
+		spool.close();
+		Files.deleteIfExists(spoolFile);
+	}
+
+	private static void pad(OutputStream out, long bytes) throws IOException {
+		for (long i = 0; i < bytes; i++) {
+			out.write(0);
+		}
+	}
+
+	/**
+	 * Sort point numbers by geohash with a merge sort, without boxing them.
+	 */
+	private static void sort(int[] order, int[] buffer, long[] keys, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+
+		int mid = (from + to) >>> 1;
+		sort(order, buffer, keys, from, mid);
+		sort(order, buffer, keys, mid, to);
+		if (keys[order[mid - 1]] <= keys[order[mid]]) {
+			return;
+		}
+
+		System.arraycopy(order, from, buffer, from, to - from);
+		int i = from;
+		int j = mid;
+		for (int k = from; k < to; k++) {
+			if (j >= to || (i < mid && keys[buffer[i]] <= keys[buffer[j]])) {
+				order[k] = buffer[i++];
+			} else {
+				order[k] = buffer[j++];
+			}
+		}
+	}
+
+	private static Map<String, AttributeValue> toItem(JsonNode node) {
+		Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+		for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext();) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			item.put(field.getKey(), toAttributeValue(field.getValue()));
+		}
+
+		return item;
+	}
+
+	private static AttributeValue toAttributeValue(JsonNode node) {
+		Map.Entry<String, JsonNode> typed = node.fields().next();
+		JsonNode value = typed.getValue();
+		switch (typed.getKey()) {
+		case "S":
+			return AttributeValue.builder().s(value.asText()).build();
+		case "N":
+			return AttributeValue.builder().n(value.asText()).build();
+		case "B":
+			return AttributeValue.builder().b(SdkBytes.fromByteArray(Base64.getDecoder().decode(value.asText())))
+					.build();
+		case "BOOL":
+			return AttributeValue.builder().bool(value.asBoolean()).build();
+		case "NULL":
+			return AttributeValue.builder().nul(true).build();
+		case "SS":
+		case "NS": {
+			List<String> strings = new ArrayList<String>();
+			for (JsonNode element : value) {
+				strings.add(element.asText());
+			}
+			return "SS".equals(typed.getKey()) ? AttributeValue.builder().ss(strings).build() : AttributeValue
+					.builder().ns(strings).build();
+		}
+		case "BS": {
+			List<SdkBytes> bytes = new ArrayList<SdkBytes>();
+			for (JsonNode element : value) {
+				bytes.add(SdkBytes.fromByteArray(Base64.getDecoder().decode(element.asText())));
+			}
+			return AttributeValue.builder().bs(bytes).build();
+		}
+		case "L": {
+			List<AttributeValue> elements = new ArrayList<AttributeValue>();
+			for (JsonNode element : value) {
+				elements.add(toAttributeValue(element));
+			}
+			return AttributeValue.builder().l(elements).build();
+		}
+		case "M":
+			return AttributeValue.builder().m(toItem(value)).build();
+		default:
+			throw new IllegalArgumentException("Unsupported DynamoDB JSON type: " + typed.getKey());
+		}
+	}
+}
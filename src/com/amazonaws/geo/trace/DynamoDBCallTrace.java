@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.trace;
+
+/**
+ * <p>
+ * Describes a single Amazon DynamoDB call made by the library. The same instance is passed to
+ * {@link GeoTraceListener#beforeDynamoDBCall(DynamoDBCallTrace)} and
+ * {@link GeoTraceListener#afterDynamoDBCall(DynamoDBCallTrace)}; the outcome fields are only set for the latter.
+ * </p>
+ * <p>
+ * Hash key and geohash range bounds are null for operations that do not target a single hash key, such as
+ * BatchWriteItem. The table name is null for calls that write to more than one table, such as a BatchWriteItem of
+ * points in several time buckets.
+ * </p>
+ * */
+public class DynamoDBCallTrace {
+	private final DynamoDBOperation operation;
+	private final String tableName;
+	private final String indexName;
+	private final Long hashKey;
+	private final Long rangeMin;
+	private final Long rangeMax;
+
+	private long latencyNanos;
+	private int retryCount;
+	private double consumedCapacityUnits;
+	private Throwable throwable;
+
+	private Object userContext;
+
+	public DynamoDBCallTrace(DynamoDBOperation operation, String tableName, String indexName, Long hashKey,
+			Long rangeMin, Long rangeMax) {
+		this.operation = operation;
+		this.tableName = tableName;
+		this.indexName = indexName;
+		this.hashKey = hashKey;
+		this.rangeMin = rangeMin;
+		this.rangeMax = rangeMax;
+	}
+
+	public DynamoDBOperation getOperation() {
+		return operation;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String getIndexName() {
+		return indexName;
+	}
+
+	public Long getHashKey() {
+		return hashKey;
+	}
+
+	public Long getRangeMin() {
+		return rangeMin;
+	}
+
+	public Long getRangeMax() {
+		return rangeMax;
+	}
+
+	/**
+	 * @return Wall clock time of the call, including retries made by the AWS SDK.
+	 */
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	public void setLatencyNanos(long latencyNanos) {
+		this.latencyNanos = latencyNanos;
+	}
+
+	/**
+	 * @return Number of retries the AWS SDK made, as reported by its request metrics.
+	 */
+	public int getRetryCount() {
+		return retryCount;
+	}
+
+	public void setRetryCount(int retryCount) {
+		this.retryCount = retryCount;
+	}
+
+	public double getConsumedCapacityUnits() {
+		return consumedCapacityUnits;
+	}
+
+	public void setConsumedCapacityUnits(double consumedCapacityUnits) {
+		this.consumedCapacityUnits = consumedCapacityUnits;
+	}
+
+	/**
+	 * @return The exception thrown by the call, or null if it succeeded.
+	 */
+	public Throwable getThrowable() {
+		return throwable;
+	}
+
+	public void setThrowable(Throwable throwable) {
+		this.throwable = throwable;
+	}
+
+	/**
+	 * @return Object attached by the listener in beforeDynamoDBCall, e.g. a tracing span.
+	 */
+	public Object getUserContext() {
+		return userContext;
+	}
+
+	public void setUserContext(Object userContext) {
+		this.userContext = userContext;
+	}
+}
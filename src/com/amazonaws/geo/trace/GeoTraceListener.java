@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.trace;
+
+import com.amazonaws.geo.metrics.GeoQueryPhase;
+import com.amazonaws.geo.model.GeoQueryRequest;
+
+/**
+ * <p>
+ * Listener invoked around every Amazon DynamoDB call the library makes and around each phase of a geo query. Register
+ * it with {@link com.amazonaws.geo.GeoDataManagerConfiguration#setTraceListener(GeoTraceListener)}. When no listener
+ * is registered the library calls Amazon DynamoDB directly and allocates nothing for tracing.
+ * </p>
+ * <p>
+ * Callbacks run on the thread doing the work, which for range queries is a thread of the configured ExecutorService.
+ * Implementations must be thread safe and should return quickly. Time spent in Amazon DynamoDB is reported through the
+ * DynamoDB call callbacks and not as a {@link GeoQueryPhase#DYNAMODB_IO} phase.
+ * </p>
+ * */
+public interface GeoTraceListener {
+
+	/**
+	 * Called before an Amazon DynamoDB request is sent.
+	 */
+	default void beforeDynamoDBCall(DynamoDBCallTrace trace) {
+	}
+
+	/**
+	 * Called after an Amazon DynamoDB request completed or failed.
+	 */
+	default void afterDynamoDBCall(DynamoDBCallTrace trace) {
+	}
+
+	/**
+	 * Called when a query phase starts.
+	 * 
+	 * @param geoQueryRequest
+	 *            The query the phase belongs to.
+	 * 
+	 * @param phase
+	 *            The phase that starts.
+	 */
+	default void beforePhase(GeoQueryRequest geoQueryRequest, GeoQueryPhase phase) {
+	}
+
+	/**
+	 * Called when a query phase ends.
+	 * 
+	 * @param geoQueryRequest
+	 *            The query the phase belongs to.
+	 * 
+	 * @param phase
+	 *            The phase that ended.
+	 * 
+	 * @param nanos
+	 *            Time spent in the phase.
+	 */
+	default void afterPhase(GeoQueryRequest geoQueryRequest, GeoQueryPhase phase, long nanos) {
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.util;
+
+import com.amazonaws.geo.model.GeoPoint;
+import com.amazonaws.geo.model.LocationEncoding;
+import com.google.common.geometry.S2LatLng;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Encodes the location of a point into the geoJson attribute of its item, and decodes it back whatever the encoding.
+ * 
+ * @see LocationEncoding
+ * */
+public class GeoLocationCodec {
+	private static final int BINARY_BYTES = 16;
+	private static final int SCALED_INTEGER_BYTES = 8;
+
+	private static final double SCALE = 1e7;
+
+	public static AttributeValue encode(GeoPoint geoPoint, LocationEncoding encoding) {
+		double latitude = geoPoint.getLatitude();
+		double longitude = geoPoint.getLongitude();
+
+		if (encoding == LocationEncoding.BINARY) {
+			byte[] bytes = new byte[BINARY_BYTES];
+			putLong(bytes, 0, Double.doubleToLongBits(latitude));
+			putLong(bytes, 8, Double.doubleToLongBits(longitude));
+
+			return AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(bytes)).build();
+		} else if (encoding == LocationEncoding.SCALED_INTEGER) {
+			byte[] bytes = new byte[SCALED_INTEGER_BYTES];
+			putInt(bytes, 0, (int) Math.round(latitude * SCALE));
+			putInt(bytes, 4, (int) Math.round(longitude * SCALE));
+
+			return AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(bytes)).build();
+		}
+
+		return AttributeValue.builder().s(GeoJsonMapper.stringFromGeoObject(geoPoint)).build();
+	}
+
+	public static GeoPoint decode(AttributeValue value) {
+		if (value.s() != null) {
+			return GeoJsonMapper.geoPointFromString(value.s());
+		}
+
+		byte[] bytes = getBytes(value);
+		if (bytes.length == BINARY_BYTES) {
+			return new GeoPoint(getDouble(bytes, 0), getDouble(bytes, 8));
+		}
+
+		return new GeoPoint(getInt(bytes, 0) / SCALE, getInt(bytes, 4) / SCALE);
+	}
+
+	/**
+	 * Decode a location straight to an S2LatLng. Binary encodings are read from the bytes of the attribute without
+	 * copying them.
+	 */
+	public static S2LatLng decodeLatLng(AttributeValue value) {
+		if (value.s() != null) {
+			GeoPoint geoPoint = GeoJsonMapper.geoPointFromString(value.s());
+
+			return S2LatLng.fromDegrees(geoPoint.getLatitude(), geoPoint.getLongitude());
+		}
+
+		byte[] bytes = getBytes(value);
+		if (bytes.length == BINARY_BYTES) {
+			return S2LatLng.fromDegrees(getDouble(bytes, 0), getDouble(bytes, 8));
+		}
+
+		return S2LatLng.fromDegrees(getInt(bytes, 0) / SCALE, getInt(bytes, 4) / SCALE);
+	}
+
+	/**
+	 * Decode a location into coordinate arrays in degrees, without allocating for binary encodings.
+	 */
+	public static void decode(AttributeValue value, double[] latitudes, double[] longitudes, int index) {
+		if (value.s() != null) {
+			GeoPoint geoPoint = GeoJsonMapper.geoPointFromString(value.s());
+			latitudes[index] = geoPoint.getLatitude();
+			longitudes[index] = geoPoint.getLongitude();
+			return;
+		}
+
+		byte[] bytes = getBytes(value);
+		if (bytes.length == BINARY_BYTES) {
+			latitudes[index] = getDouble(bytes, 0);
+			longitudes[index] = getDouble(bytes, 8);
+		} else {
+			latitudes[index] = getInt(bytes, 0) / SCALE;
+			longitudes[index] = getInt(bytes, 4) / SCALE;
+		}
+	}
+
+	/**
+	 * Whether an attribute holds a location in one of the encodings.
+	 */
+	public static boolean isLocation(AttributeValue value) {
+		if (value == null) {
+			return false;
+		}
+		if (value.s() != null) {
+			return true;
+		}
+
+		SdkBytes b = value.b();
+		return b != null && (b.asByteArrayUnsafe().length == BINARY_BYTES
+				|| b.asByteArrayUnsafe().length == SCALED_INTEGER_BYTES);
+	}
+
+	private static byte[] getBytes(AttributeValue value) {
+		byte[] bytes = value.b() == null ? null : value.b().asByteArrayUnsafe();
+		if (bytes == null || (bytes.length != BINARY_BYTES && bytes.length != SCALED_INTEGER_BYTES)) {
+			throw new IllegalArgumentException("Not an encoded location: " + value);
+		}
+
+		return bytes;
+	}
+
+	private static void putLong(byte[] bytes, int offset, long value) {
+		putInt(bytes, offset, (int) (value >>> 32));
+		putInt(bytes, offset + 4, (int) value);
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	private static double getDouble(byte[] bytes, int offset) {
+		return Double.longBitsToDouble(((long) getInt(bytes, offset) << 32) | (getInt(bytes, offset + 4) & 0xFFFFFFFFL));
+	}
+
+	private static int getInt(byte[] bytes, int offset) {
+		return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+				| (bytes[offset + 3] & 0xFF);
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.geo.GeoDataManagerConfiguration;
+import com.amazonaws.geo.model.GeoTableLayout;
+import com.amazonaws.geo.model.HashKeyGranularity;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.StreamSpecification;
+import software.amazon.awssdk.services.dynamodb.model.StreamViewType;
+
+/**
+ * <p>
+ * Builder for the create table request of a geo table. The key layout defaults to the one of the
+ * GeoDataManagerConfiguration. The original local index layout uses provisioned throughput of 10 read and 5 write
+ * capacity units by default, and the global index layout uses on-demand billing.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * config.setTableLayout(GeoTableLayout.GLOBAL_INDEX);
+ * 
+ * CreateTableRequest createTableRequest = new GeoTableBuilder(config).withBillingMode(BillingMode.PAY_PER_REQUEST)
+ * 		.build();
+ * ddb.createTable(createTableRequest);
+ * </pre>
+ * */
+public class GeoTableBuilder {
+	private static final long DEFAULT_READ_CAPACITY_UNITS = 10L;
+	private static final long DEFAULT_WRITE_CAPACITY_UNITS = 5L;
+
+	private final GeoDataManagerConfiguration config;
+
+	private GeoTableLayout layout;
+	private BillingMode billingMode;
+	private ProvisionedThroughput provisionedThroughput;
+	private ProvisionedThroughput indexProvisionedThroughput;
+	private Projection projection;
+	private StreamViewType streamViewType;
+
+	public GeoTableBuilder(GeoDataManagerConfiguration config) {
+		this.config = config;
+
+		layout = config.getTableLayout();
+		provisionedThroughput = ProvisionedThroughput.builder().readCapacityUnits(DEFAULT_READ_CAPACITY_UNITS)
+				.writeCapacityUnits(DEFAULT_WRITE_CAPACITY_UNITS).build();
+		indexProvisionedThroughput = provisionedThroughput;
+		projection = Projection.builder().projectionType(ProjectionType.ALL).build();
+	}
+
+	public GeoTableBuilder withLayout(GeoTableLayout layout) {
+		this.layout = layout;
+		return this;
+	}
+
+	/**
+	 * Set the billing mode. Defaults to PROVISIONED for the local index layout and PAY_PER_REQUEST for the global index
+	 * layout.
+	 */
+	public GeoTableBuilder withBillingMode(BillingMode billingMode) {
+		this.billingMode = billingMode;
+		return this;
+	}
+
+	/**
+	 * Set the provisioned throughput of the table, used with the PROVISIONED billing mode.
+	 */
+	public GeoTableBuilder withProvisionedThroughput(long readCapacityUnits, long writeCapacityUnits) {
+		this.provisionedThroughput = ProvisionedThroughput.builder().readCapacityUnits(readCapacityUnits)
+				.writeCapacityUnits(writeCapacityUnits).build();
+		return this;
+	}
+
+	/**
+	 * Set the provisioned throughput of each global index, used with the PROVISIONED billing mode.
+	 */
+	public GeoTableBuilder withIndexProvisionedThroughput(long readCapacityUnits, long writeCapacityUnits) {
+		this.indexProvisionedThroughput = ProvisionedThroughput.builder().readCapacityUnits(readCapacityUnits)
+				.writeCapacityUnits(writeCapacityUnits).build();
+		return this;
+	}
+
+	/**
+	 * Set the projection of the geohash index. Queries need at least the geoJson attribute, so the projection must
+	 * include it. Defaults to ALL.
+	 */
+	public GeoTableBuilder withProjection(Projection projection) {
+		this.projection = projection;
+		return this;
+	}
+
+	/**
+	 * Enable a stream on the table, e.g. to keep a GeoReplica up to date. The replica needs NEW_IMAGE or
+	 * NEW_AND_OLD_IMAGES. Disabled by default.
+	 */
+	public GeoTableBuilder withStreamViewType(StreamViewType streamViewType) {
+		this.streamViewType = streamViewType;
+		return this;
+	}
+
+	public CreateTableRequest build() {
+		BillingMode mode = billingMode != null ? billingMode
+				: (layout == GeoTableLayout.GLOBAL_INDEX ? BillingMode.PAY_PER_REQUEST : BillingMode.PROVISIONED);
+
+		List<AttributeDefinition> attributeDefinitions = new ArrayList<AttributeDefinition>();
+		attributeDefinitions.add(AttributeDefinition.builder().attributeType(ScalarAttributeType.N)
+				.attributeName(config.getHashKeyAttributeName()).build());
+		attributeDefinitions.add(AttributeDefinition.builder().attributeType(ScalarAttributeType.S)
+				.attributeName(config.getRangeKeyAttributeName()).build());
+		attributeDefinitions.add(AttributeDefinition.builder().attributeType(ScalarAttributeType.N)
+				.attributeName(config.getGeohashAttributeName()).build());
+		for (HashKeyGranularity granularity : config.getAdditionalHashKeyGranularities()) {
+			attributeDefinitions.add(AttributeDefinition.builder().attributeType(ScalarAttributeType.N)
+					.attributeName(granularity.getHashKeyAttributeName()).build());
+		}
+
+		KeySchemaElement hashKey = KeySchemaElement.builder().keyType(KeyType.HASH)
+				.attributeName(config.getHashKeyAttributeName()).build();
+		KeySchemaElement geohash = KeySchemaElement.builder().keyType(KeyType.RANGE)
+				.attributeName(config.getGeohashAttributeName()).build();
+
+		CreateTableRequest.Builder builder = CreateTableRequest.builder().tableName(config.getTableName())
+				.attributeDefinitions(attributeDefinitions).billingMode(mode);
+		if (mode == BillingMode.PROVISIONED) {
+			builder.provisionedThroughput(provisionedThroughput);
+		}
+		if (streamViewType != null) {
+			builder.streamSpecification(StreamSpecification.builder().streamEnabled(true)
+					.streamViewType(streamViewType).build());
+		}
+
+		// Additional hash key granularities are always global indexes, as a local index shares the hash key of the table.
+		List<GlobalSecondaryIndex> globalSecondaryIndexes = new ArrayList<GlobalSecondaryIndex>();
+		for (HashKeyGranularity granularity : config.getAdditionalHashKeyGranularities()) {
+			globalSecondaryIndexes.add(getGlobalSecondaryIndex(granularity.getIndexName(), KeySchemaElement.builder()
+					.keyType(KeyType.HASH).attributeName(granularity.getHashKeyAttributeName()).build(), geohash, mode));
+		}
+
+		if (layout == GeoTableLayout.GLOBAL_INDEX) {
+			globalSecondaryIndexes.add(0, getGlobalSecondaryIndex(config.getGeohashIndexName(), hashKey, geohash, mode));
+
+			builder.keySchema(
+					KeySchemaElement.builder().keyType(KeyType.HASH).attributeName(config.getRangeKeyAttributeName())
+							.build());
+		} else {
+			builder.keySchema(
+					hashKey,
+					KeySchemaElement.builder().keyType(KeyType.RANGE).attributeName(config.getRangeKeyAttributeName())
+							.build()).localSecondaryIndexes(
+					LocalSecondaryIndex.builder().indexName(config.getGeohashIndexName()).keySchema(hashKey, geohash)
+							.projection(projection).build());
+		}
+		if (!globalSecondaryIndexes.isEmpty()) {
+			builder.globalSecondaryIndexes(globalSecondaryIndexes);
+		}
+
+		return builder.build();
+	}
+
+	private GlobalSecondaryIndex getGlobalSecondaryIndex(String indexName, KeySchemaElement hashKey,
+			KeySchemaElement geohash, BillingMode mode) {
+		GlobalSecondaryIndex.Builder index = GlobalSecondaryIndex.builder().indexName(indexName)
+				.keySchema(hashKey, geohash).projection(projection);
+		if (mode == BillingMode.PROVISIONED) {
+			index.provisionedThroughput(indexProvisionedThroughput);
+		}
+
+		return index.build();
+	}
+}
@@ -16,15 +16,7 @@
 package com.amazonaws.geo.util;
 
 import com.amazonaws.geo.GeoDataManagerConfiguration;
-import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
-import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
-import software.amazon.awssdk.services.dynamodb.model.KeyType;
-import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndex;
-import software.amazon.awssdk.services.dynamodb.model.Projection;
-import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
-import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
-import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
 
 /**
  * Utility class.
@@ -47,35 +39,22 @@ public class GeoTableUtil {
 	 * CreateTableResult createTableResult = ddb.createTable(createTableRequest);
 	 * </pre>
 	 * 
+	 * The key layout follows {@link GeoDataManagerConfiguration#getTableLayout()}. Use {@link GeoTableBuilder} to change
+	 * the billing mode, throughput or index projection.
+	 * 
 	 * @return Generated create table request.
 	 */
 	public static CreateTableRequest getCreateTableRequest(GeoDataManagerConfiguration config) {
-		CreateTableRequest createTableRequest = CreateTableRequest.builder()
-				.tableName(config.getTableName())
-				.provisionedThroughput(
-						ProvisionedThroughput.builder().readCapacityUnits(10L).writeCapacityUnits(5L).build())
-				.keySchema(
-						KeySchemaElement.builder().keyType(KeyType.HASH).attributeName(
-								config.getHashKeyAttributeName()).build(),
-						KeySchemaElement.builder().keyType(KeyType.RANGE).attributeName(
-								config.getRangeKeyAttributeName()).build())
-				.attributeDefinitions(
-						AttributeDefinition.builder().attributeType(ScalarAttributeType.N).attributeName(
-								config.getHashKeyAttributeName()).build(),
-						AttributeDefinition.builder().attributeType(ScalarAttributeType.S).attributeName(
-								config.getRangeKeyAttributeName()).build(),
-						AttributeDefinition.builder().attributeType(ScalarAttributeType.N).attributeName(
-								config.getGeohashAttributeName()).build())
-				.localSecondaryIndexes(
-						LocalSecondaryIndex.builder()
-								.indexName(config.getGeohashIndexName())
-								.keySchema(
-										KeySchemaElement.builder().keyType(KeyType.HASH).attributeName(
-												config.getHashKeyAttributeName()).build(),
-										KeySchemaElement.builder().keyType(KeyType.RANGE).attributeName(
-												config.getGeohashAttributeName()).build())
-								.projection(Projection.builder().projectionType(ProjectionType.ALL).build()).build()).build();
+		return new GeoTableBuilder(config).build();
+	}
 
-		return createTableRequest;
+	/**
+	 * Construct a create table request for the time bucket table that holds the points of a timestamp, see
+	 * {@link GeoDataManagerConfiguration#setTimeBucketMillis(long)}.
+	 * 
+	 * @return Generated create table request.
+	 */
+	public static CreateTableRequest getCreateTableRequest(GeoDataManagerConfiguration config, long timestamp) {
+		return getCreateTableRequest(config).toBuilder().tableName(config.getTimeBucketTableName(timestamp)).build();
 	}
 }
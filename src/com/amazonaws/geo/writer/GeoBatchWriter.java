@@ -0,0 +1,425 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ * 
+ *  http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.geo.writer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.geo.GeoDataManager;
+import com.amazonaws.geo.GeoDataManagerConfiguration;
+import com.amazonaws.geo.dynamodb.internal.DynamoDBManager;
+import com.amazonaws.geo.model.BatchWritePointResponse;
+import com.amazonaws.geo.model.PutPointRequest;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * <p>
+ * Buffers point writes and sends them as BatchWriteItem calls, instead of one PutItem round trip per point. A batch is
+ * sent once it holds maxBatchSize points, or once its oldest point has waited lingerMillis. Batches are sent on the
+ * executor of GeoDataManagerConfiguration, and items Amazon DynamoDB leaves unprocessed are retried with exponential
+ * backoff. The points of a batch the executor rejects fail with an SdkException.
+ * </p>
+ * <p>
+ * A point written again before its batch is sent replaces the earlier write, so that a batch never holds the same
+ * item twice; the futures of both writes complete with the batch. A point written again while its batch is in flight
+ * waits for that batch, so that a retried write never overwrites a later one. Points are written as with
+ * {@link GeoDataManager#batchWritePoints(List)}: the item holds only the point attributes.
+ * </p>
+ * <p>
+ * The buffer holds at most bufferCapacity points, counting the points of batches in flight. putPoint blocks while it
+ * is full, which slows writers down to the throughput of the table.
+ * </p>
+ * <b>Sample usage:</b>
+ * 
+ * <pre>
+ * try (GeoBatchWriter geoBatchWriter = new GeoBatchWriter(config)) {
+ * 	CompletableFuture&lt;BatchWritePointResponse&gt; future = geoBatchWriter.putPoint(new PutPointRequest(geoPoint,
+ * 			rangeKeyValue));
+ * }
+ * </pre>
+ * 
+ * @see GeoDataManager
+ * */
+public class GeoBatchWriter implements AutoCloseable {
+	/**
+	 * Most items Amazon DynamoDB accepts in a BatchWriteItem call.
+	 */
+	public static final int MAX_BATCH_SIZE = 25;
+
+	private static final long DEFAULT_LINGER_MILLIS = 10;
+	private static final int DEFAULT_BUFFER_CAPACITY = 10000;
+
+	private static final int MAX_ATTEMPTS = 8;
+	private static final long BASE_BACKOFF_MILLIS = 25;
+
+	private final GeoDataManagerConfiguration config;
+	private final DynamoDBManager dynamoDBManager;
+	private final int maxBatchSize;
+	private final long lingerNanos;
+	private final Semaphore capacity;
+	private final Thread flusher;
+
+	private final Object lock = new Object();
+	private final LinkedHashMap<List<Object>, PendingPut> pendingPuts = new LinkedHashMap<>();
+	private final Map<List<Object>, PendingPut> waitingPuts = new HashMap<>();
+	private final Map<List<Object>, PendingPut> inFlightPuts = new HashMap<>();
+	private boolean flushRequested;
+	private boolean closed;
+
+	public GeoBatchWriter(GeoDataManagerConfiguration config) {
+		this(config, MAX_BATCH_SIZE, DEFAULT_LINGER_MILLIS, DEFAULT_BUFFER_CAPACITY);
+	}
+
+	/**
+	 * @param config
+	 *            Configuration of the table written to.
+	 * 
+	 * @param maxBatchSize
+	 *            Number of points from which a batch is sent without waiting, at most MAX_BATCH_SIZE.
+	 * 
+	 * @param lingerMillis
+	 *            Longest time a point waits for its batch to fill.
+	 * 
+	 * @param bufferCapacity
+	 *            Most points buffered or in flight before putPoint blocks.
+	 */
+	public GeoBatchWriter(GeoDataManagerConfiguration config, int maxBatchSize, long lingerMillis,
+			int bufferCapacity) {
+		if (maxBatchSize < 1 || maxBatchSize > MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("maxBatchSize must be between 1 and " + MAX_BATCH_SIZE + ".");
+		}
+		if (bufferCapacity < maxBatchSize) {
+			throw new IllegalArgumentException("bufferCapacity must be at least maxBatchSize.");
+		}
+
+		this.config = config;
+		this.dynamoDBManager = new DynamoDBManager(config);
+		this.maxBatchSize = maxBatchSize;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+		this.capacity = new Semaphore(bufferCapacity);
+
+		flusher = new Thread(this::runFlusher, "geo-batch-writer");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Buffer a point write. Blocks only while the buffer is full.
+	 * 
+	 * @return Completes with the response of the BatchWriteItem call that wrote the point, or exceptionally if the
+	 *         call failed or the point stayed unprocessed.
+	 */
+	public CompletableFuture<BatchWritePointResponse> putPoint(PutPointRequest putPointRequest) {
+		List<Object> key = getKey(dynamoDBManager.getTableName(putPointRequest),
+				dynamoDBManager.getPrimaryKey(putPointRequest));
+		CompletableFuture<BatchWritePointResponse> future = new CompletableFuture<>();
+
+		synchronized (lock) {
+			checkOpen();
+			if (tryReplace(key, putPointRequest, future)) {
+				return future;
+			}
+		}
+
+		try {
+			capacity.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw AbortedException.builder().message("Interrupted while waiting for buffer capacity").cause(e)
+					.build();
+		}
+
+		synchronized (lock) {
+			if (closed) {
+				capacity.release();
+				checkOpen();
+			}
+			if (tryReplace(key, putPointRequest, future)) {
+				capacity.release();
+				return future;
+			}
+
+			PendingPut pendingPut = new PendingPut(key, putPointRequest, future, System.nanoTime());
+			if (inFlightPuts.containsKey(key)) {
+				waitingPuts.put(key, pendingPut);
+			} else {
+				pendingPuts.put(key, pendingPut);
+			}
+			if (pendingPuts.size() == 1 || pendingPuts.size() >= maxBatchSize) {
+				lock.notifyAll();
+			}
+		}
+
+		return future;
+	}
+
+	/**
+	 * Send the buffered points without waiting for their batches to fill, and wait until every point accepted so far
+	 * is written or has failed.
+	 */
+	public void flush() {
+		List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+		synchronized (lock) {
+			for (PendingPut pendingPut : pendingPuts.values()) {
+				futures.addAll(pendingPut.futures);
+			}
+			for (PendingPut pendingPut : waitingPuts.values()) {
+				futures.addAll(pendingPut.futures);
+			}
+			for (PendingPut pendingPut : inFlightPuts.values()) {
+				futures.addAll(pendingPut.futures);
+			}
+			flushRequested = true;
+			lock.notifyAll();
+		}
+
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).handle((r, e) -> r).join();
+	}
+
+	/**
+	 * Write the buffered points and stop accepting new ones.
+	 */
+	@Override
+	public void close() {
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+		}
+		flush();
+
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("GeoBatchWriter is closed.");
+		}
+	}
+
+	/**
+	 * Replace the write of the same item not sent yet, if any.
+	 */
+	private boolean tryReplace(List<Object> key, PutPointRequest putPointRequest,
+			CompletableFuture<BatchWritePointResponse> future) {
+		PendingPut pendingPut = pendingPuts.get(key);
+		if (pendingPut == null) {
+			pendingPut = waitingPuts.get(key);
+		}
+		if (pendingPut == null) {
+			return false;
+		}
+
+		pendingPut.putPointRequest = putPointRequest;
+		pendingPut.futures.add(future);
+
+		return true;
+	}
+
+	private void runFlusher() {
+		while (true) {
+			List<PendingPut> batch;
+			synchronized (lock) {
+				try {
+					if (!awaitBatch()) {
+						return;
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				batch = new ArrayList<PendingPut>(maxBatchSize);
+				Iterator<PendingPut> iterator = pendingPuts.values().iterator();
+				while (batch.size() < maxBatchSize && iterator.hasNext()) {
+					PendingPut pendingPut = iterator.next();
+					iterator.remove();
+					batch.add(pendingPut);
+					inFlightPuts.put(pendingPut.key, pendingPut);
+				}
+				if (pendingPuts.isEmpty()) {
+					flushRequested = false;
+				}
+			}
+
+			submit(batch, 1);
+		}
+	}
+
+	/**
+	 * Hand a batch to the executor. If the executor rejects it, e.g. because it is shut down, the points of the batch
+	 * fail, so that their futures complete and their buffer capacity is given back.
+	 */
+	private void submit(List<PendingPut> batch, int attempt) {
+		try {
+			config.getExecutorService().execute(() -> write(batch, attempt));
+		} catch (RejectedExecutionException e) {
+			SdkException exception = SdkException.builder().message("The executor rejected a batch write.").cause(e)
+					.build();
+			for (PendingPut pendingPut : batch) {
+				complete(pendingPut, null, exception);
+			}
+		}
+	}
+
+	/**
+	 * Wait until a batch is full, its oldest point has waited long enough, or a flush is requested.
+	 * 
+	 * @return false if the writer is closed and nothing is left to send.
+	 */
+	private boolean awaitBatch() throws InterruptedException {
+		while (true) {
+			if (pendingPuts.isEmpty()) {
+				if (closed && waitingPuts.isEmpty()) {
+					return false;
+				}
+				lock.wait();
+				continue;
+			}
+			if (pendingPuts.size() >= maxBatchSize || flushRequested || closed) {
+				return true;
+			}
+
+			long waitNanos = pendingPuts.values().iterator().next().arrivalNanos + lingerNanos - System.nanoTime();
+			if (waitNanos <= 0) {
+				return true;
+			}
+			TimeUnit.NANOSECONDS.timedWait(lock, waitNanos);
+		}
+	}
+
+	/**
+	 * Send a batch, and retry its unprocessed items with exponential backoff and jitter.
+	 */
+	private void write(List<PendingPut> batch, int attempt) {
+		List<PendingPut> unprocessedPuts = Collections.emptyList();
+		try {
+			List<PutPointRequest> putPointRequests = new ArrayList<PutPointRequest>(batch.size());
+			for (PendingPut pendingPut : batch) {
+				putPointRequests.add(pendingPut.putPointRequest);
+			}
+
+			BatchWritePointResponse batchWritePointResponse = dynamoDBManager.batchWritePoints(putPointRequests);
+
+			Set<List<Object>> unprocessedKeys = new HashSet<List<Object>>();
+			for (Map.Entry<String, List<WriteRequest>> unprocessedItems : batchWritePointResponse
+					.getBatchWriteItemResponse().unprocessedItems().entrySet()) {
+				for (WriteRequest writeRequest : unprocessedItems.getValue()) {
+					unprocessedKeys.add(getKey(unprocessedItems.getKey(),
+							dynamoDBManager.getPrimaryKey(writeRequest.putRequest().item())));
+				}
+			}
+
+			unprocessedPuts = new ArrayList<PendingPut>(unprocessedKeys.size());
+			for (PendingPut pendingPut : batch) {
+				if (unprocessedKeys.contains(pendingPut.key)) {
+					unprocessedPuts.add(pendingPut);
+				} else {
+					complete(pendingPut, batchWritePointResponse, null);
+				}
+			}
+		} catch (RuntimeException e) {
+			for (PendingPut pendingPut : batch) {
+				complete(pendingPut, null, e);
+			}
+			return;
+		}
+
+		if (unprocessedPuts.isEmpty()) {
+			return;
+		}
+		if (attempt == MAX_ATTEMPTS) {
+			SdkException e = SdkException.builder()
+					.message("Items left unprocessed after " + MAX_ATTEMPTS + " BatchWriteItem calls.").build();
+			for (PendingPut pendingPut : unprocessedPuts) {
+				complete(pendingPut, null, e);
+			}
+			return;
+		}
+
+		long backoffMillis = BASE_BACKOFF_MILLIS << (attempt - 1);
+		long delayMillis = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+		List<PendingPut> retry = unprocessedPuts;
+		CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(
+				() -> submit(retry, attempt + 1));
+	}
+
+	/**
+	 * Identify the item a write targets, in the table of its time bucket if it has a timestamp.
+	 */
+	private static List<Object> getKey(String tableName, Map<String, AttributeValue> primaryKey) {
+		return Arrays.<Object> asList(tableName, primaryKey);
+	}
+
+	private void complete(PendingPut pendingPut, BatchWritePointResponse batchWritePointResponse,
+			RuntimeException exception) {
+		synchronized (lock) {
+			inFlightPuts.remove(pendingPut.key);
+
+			// The next write of the item can now be sent.
+			PendingPut waitingPut = waitingPuts.remove(pendingPut.key);
+			if (waitingPut != null) {
+				pendingPuts.put(waitingPut.key, waitingPut);
+				lock.notifyAll();
+			}
+		}
+		capacity.release();
+
+		for (CompletableFuture<BatchWritePointResponse> future : pendingPut.futures) {
+			if (exception != null) {
+				future.completeExceptionally(exception);
+			} else {
+				future.complete(batchWritePointResponse);
+			}
+		}
+	}
+
+	/**
+	 * A buffered point write, and the futures of the writes of the same item it replaced.
+	 */
+	private static class PendingPut {
+		private final List<Object> key;
+		private PutPointRequest putPointRequest;
+		private final List<CompletableFuture<BatchWritePointResponse>> futures = new ArrayList<>(1);
+		private final long arrivalNanos;
+
+		PendingPut(List<Object> key, PutPointRequest putPointRequest,
+				CompletableFuture<BatchWritePointResponse> future, long arrivalNanos) {
+			this.key = key;
+			this.putPointRequest = putPointRequest;
+			this.futures.add(future);
+			this.arrivalNanos = arrivalNanos;
+		}
+	}
+}